@@ -0,0 +1,39 @@
+package test.sdc.socket.bench;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.common.buffer.LeakDetection;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Entry point of the benchmark. Settings are read from system properties (see {@link BenchSettings}).
+ */
+public final class Application {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Application.class);
+
+    /**
+     * Main method.
+     *
+     * @param args start-up arguments
+     */
+    public static void main(final String[] args) {
+        LeakDetection.install();
+        int status = 0;
+        try {
+            final BenchSettings settings = BenchSettings.fromProperties(System.getProperties());
+            final BenchReport report = new LoadBenchmark(settings).run();
+            final Path output = Paths.get(settings.getOutput());
+            report.write(output);
+            LOGGER.info("Results written to {}:\n{}", output.toAbsolutePath(), report);
+        } catch (final Exception ex) {
+            LOGGER.error("Benchmark failed", ex);
+            status = 1;
+        }
+        // Server runs until the process exits
+        System.exit(status);
+    }
+
+}
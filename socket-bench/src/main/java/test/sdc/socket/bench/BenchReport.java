@@ -0,0 +1,140 @@
+package test.sdc.socket.bench;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Results of a benchmark, as a tree of named values that is written as JSON. Histograms are summed up by their
+ * percentiles, and also written whole, in the compressed format of HdrHistogram (base 64), so that they can be
+ * analysed or merged afterwards.
+ */
+public final class BenchReport {
+
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9, 99.99};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p99_9", "p99_99"};
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    /**
+     * Set value.
+     *
+     * @param name  name of the value
+     * @param value value: number, boolean, text or nested report
+     * @return this report
+     */
+    public BenchReport put(final String name, final Object value) {
+        this.values.put(name, value);
+        return this;
+    }
+
+    /**
+     * Build report of a histogram.
+     *
+     * @param histogram histogram
+     * @return report
+     */
+    public static BenchReport of(final Histogram histogram) {
+        final BenchReport report = new BenchReport()
+                .put("count", histogram.getTotalCount())
+                .put("min", histogram.getTotalCount() == 0L ? 0L : histogram.getMinValue())
+                .put("mean", histogram.getMean());
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            report.put(PERCENTILE_NAMES[i], histogram.getValueAtPercentile(PERCENTILES[i]));
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        final int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return report
+                .put("max", histogram.getMaxValue())
+                .put("histogram", Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length)));
+    }
+
+    /**
+     * Write report as JSON.
+     *
+     * @param path path of the file
+     * @throws IOException report could not be written
+     */
+    public void write(final Path path)
+            throws IOException {
+        try (final Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(this.toString());
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        final StringBuilder json = new StringBuilder();
+        this.appendTo(json, "");
+        return json.toString();
+    }
+
+    /**
+     * Append report to JSON text.
+     *
+     * @param json   JSON text
+     * @param indent indentation of the report
+     */
+    private void appendTo(final StringBuilder json, final String indent) {
+        json.append('{');
+        String separator = "\n";
+        for (final Map.Entry<String, Object> entry : this.values.entrySet()) {
+            json.append(separator).append(indent).append("  ");
+            appendString(json, entry.getKey());
+            json.append(": ");
+            final Object value = entry.getValue();
+            if (value instanceof BenchReport) {
+                ((BenchReport) value).appendTo(json, indent + "  ");
+            } else if (value instanceof Double || value instanceof Float) {
+                final double number = ((Number) value).doubleValue();
+                json.append(Double.isNaN(number) || Double.isInfinite(number)
+                        ? "null"
+                        : String.format(Locale.ROOT, "%.3f", number));
+            } else if (value instanceof Number || value instanceof Boolean) {
+                json.append(value);
+            } else if (value == null) {
+                json.append("null");
+            } else {
+                appendString(json, value.toString());
+            }
+            separator = ",\n";
+        }
+        json.append('\n').append(indent).append('}');
+    }
+
+    /**
+     * Append text to JSON text, as a string.
+     *
+     * @param json JSON text
+     * @param text text
+     */
+    private static void appendString(final StringBuilder json, final String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            final char character = text.charAt(i);
+            if (character == '"' || character == '\\') {
+                json.append('\\').append(character);
+            } else if (character < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) character));
+            } else {
+                json.append(character);
+            }
+        }
+        json.append('"');
+    }
+
+}
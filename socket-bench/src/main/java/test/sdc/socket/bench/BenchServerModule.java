@@ -0,0 +1,63 @@
+package test.sdc.socket.bench;
+
+import com.codahale.metrics.MetricRegistry;
+import dagger.Module;
+import dagger.Provides;
+import test.sdc.socket.server.Server;
+import test.sdc.socket.server.ServerModule;
+import test.sdc.socket.server.workload.WorkloadSettings;
+
+import javax.inject.Named;
+import java.util.Properties;
+
+/**
+ * Module in charge of building the dependency graph of the server of a benchmark: the server only listens to the
+ * loopback interface, its workload generator runs at the rate of the benchmark, and data updates carry their origin
+ * time, which latency is measured from. Other workload settings are read from system properties, as usual.
+ */
+@Module(includes = ServerModule.class, injects = {Server.class, MetricRegistry.class}, overrides = true)
+final class BenchServerModule {
+
+    private final BenchSettings settings;
+
+    /**
+     * Constructor.
+     *
+     * @param settings benchmark settings
+     */
+    BenchServerModule(final BenchSettings settings) {
+        this.settings = settings;
+    }
+
+    @Named("host")
+    @Provides
+    String provideServerHost() {
+        return "127.0.0.1";
+    }
+
+    @Named("port")
+    @Provides
+    Integer provideServerPort() {
+        return this.settings.getPort();
+    }
+
+    @Named("transport")
+    @Provides
+    String provideTransportKey() {
+        return this.settings.getTransportKey();
+    }
+
+    @Named("latencyTimestamps")
+    @Provides
+    Boolean provideLatencyTimestamps() {
+        return true;
+    }
+
+    @Provides
+    WorkloadSettings provideWorkloadSettings() {
+        final Properties properties = new Properties(System.getProperties());
+        properties.setProperty("workload.rate", String.valueOf(this.settings.getRate()));
+        return WorkloadSettings.fromProperties(properties);
+    }
+
+}
@@ -0,0 +1,115 @@
+package test.sdc.socket.bench;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import io.netty.channel.SimpleChannelInboundHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.client.event.LoginSuccessEvent;
+import test.sdc.socket.client.interfacing.ClientConnection;
+import test.sdc.socket.client.session.LoginManager;
+import test.sdc.socket.client.session.SubscriptionManager;
+import test.sdc.socket.model.protocol.MessageProtos.Message;
+
+import javax.inject.Inject;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Client session of a benchmark, which runs along with many others in the same process.
+ */
+public final class BenchSession {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BenchSession.class);
+
+    private final ClientConnection connection;
+    private final SimpleChannelInboundHandler<Message> handler;
+    private final LoginManager loginManager;
+    private final SubscriptionManager subscriptionManager;
+    private final EventBus eventBus;
+    private final BenchStatistics statistics;
+    private final MetricRegistry metrics;
+    private CountDownLatch loggedIn = null;
+    private long startTime;
+    private boolean setUp = false;
+
+    /**
+     * Constructor.
+     *
+     * @param connection          connection
+     * @param handler             message handler
+     * @param loginManager        login manager
+     * @param subscriptionManager subscription manager
+     * @param eventBus            event bus
+     * @param statistics          benchmark statistics
+     * @param metrics             metric registry of the session
+     */
+    @Inject
+    public BenchSession(final ClientConnection connection, final SimpleChannelInboundHandler<Message> handler,
+                        final LoginManager loginManager, final SubscriptionManager subscriptionManager,
+                        final EventBus eventBus, final BenchStatistics statistics, final MetricRegistry metrics) {
+        this.connection = connection;
+        this.handler = handler;
+        this.loginManager = loginManager;
+        this.subscriptionManager = subscriptionManager;
+        this.eventBus = eventBus;
+        this.statistics = statistics;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Connect to server, then log in and subscribe to data streams in the background.
+     *
+     * @param loggedIn latch counted down once the session has logged in for the first time, shared by all sessions
+     * @throws InterruptedException connection thread was interrupted
+     */
+    public void start(final CountDownLatch loggedIn)
+            throws InterruptedException {
+        this.loggedIn = requireNonNull(loggedIn, "Latch must not be null");
+        this.eventBus.register(this);
+        this.loginManager.startListening();
+        this.subscriptionManager.startListening();
+        this.startTime = System.nanoTime();
+        this.connection.start(this.handler);
+    }
+
+    /**
+     * Close connection.
+     */
+    public void dispose() {
+        this.connection.dispose();
+    }
+
+    /**
+     * Get number of data updates that the session missed, or received out of order, so far.
+     *
+     * @return number of missed data updates
+     */
+    public long getMissedUpdates() {
+        return this.metrics.counter("missedDataUpdates").getCount();
+    }
+
+    /**
+     * Listen to successful login events.
+     *
+     * @param event successful login event
+     */
+    @Subscribe
+    public void onLoginSuccess(final LoginSuccessEvent event) {
+        try {
+            LOGGER.trace("Login success event: {}", event);
+            synchronized (this) {
+                if (!this.setUp) {
+                    this.setUp = true;
+                    this.statistics.recordSetup(System.nanoTime() - this.startTime);
+                    this.loggedIn.countDown();
+                }
+            }
+        } catch (final Exception ex) {
+            LOGGER.error("Failed to process login success event", ex);
+        }
+    }
+
+}
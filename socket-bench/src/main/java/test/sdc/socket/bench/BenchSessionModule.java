@@ -0,0 +1,116 @@
+package test.sdc.socket.bench;
+
+import com.google.common.eventbus.AsyncEventBus;
+import com.google.common.eventbus.EventBus;
+import dagger.Module;
+import dagger.Provides;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.Timer;
+import test.sdc.socket.client.ClientModule;
+import test.sdc.socket.client.interfacing.ClientMessageHandler;
+import test.sdc.socket.common.Transport;
+import test.sdc.socket.model.protocol.MessageProtos.Message;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * Module in charge of building the dependency graph of a client session of a benchmark. Sessions have their own
+ * login, connection and metric registry, while they share threads and buffers.
+ */
+@Module(includes = ClientModule.class, injects = {BenchSession.class}, overrides = true, library = true)
+final class BenchSessionModule {
+
+    private final String login;
+    private final InetSocketAddress serverAddress;
+    private final Transport transport;
+    private final EventLoopGroup group;
+    private final Timer timeoutTimer;
+    private final ByteBufAllocator allocator;
+    private final Executor eventExecutor;
+    private final BenchStatistics statistics;
+
+    /**
+     * Constructor.
+     *
+     * @param login         login of the session
+     * @param serverAddress server address
+     * @param transport     network transport
+     * @param group         event loop group shared by all sessions
+     * @param timeoutTimer  timer of request timeouts shared by all sessions
+     * @param allocator     buffer allocator shared by all sessions
+     * @param eventExecutor executor of the events of all sessions
+     * @param statistics    benchmark statistics
+     */
+    BenchSessionModule(final String login, final InetSocketAddress serverAddress, final Transport transport,
+                       final EventLoopGroup group, final Timer timeoutTimer, final ByteBufAllocator allocator,
+                       final Executor eventExecutor, final BenchStatistics statistics) {
+        this.login = login;
+        this.serverAddress = serverAddress;
+        this.transport = transport;
+        this.group = group;
+        this.timeoutTimer = timeoutTimer;
+        this.allocator = allocator;
+        this.eventExecutor = eventExecutor;
+        this.statistics = statistics;
+    }
+
+    @Provides
+    InetSocketAddress provideServerAddress() {
+        return this.serverAddress;
+    }
+
+    @Named("login")
+    @Provides
+    String provideLogin() {
+        return this.login;
+    }
+
+    @Provides
+    Transport provideTransport() {
+        return this.transport;
+    }
+
+    @Named("frameRecorderSize")
+    @Provides
+    Integer provideFrameRecorderSize() {
+        return 0; // Sessions do not record their frames, so that memory does not grow with their number
+    }
+
+    @Provides
+    EventLoopGroup provideEventLoopGroup() {
+        return this.group;
+    }
+
+    @Provides
+    Timer provideRequestTimeoutTimer() {
+        return this.timeoutTimer;
+    }
+
+    @Provides
+    ByteBufAllocator provideAllocator() {
+        return this.allocator;
+    }
+
+    @Provides
+    @Singleton
+    EventBus provideEventBus() {
+        return new AsyncEventBus(this.eventExecutor);
+    }
+
+    @Provides
+    BenchStatistics provideStatistics() {
+        return this.statistics;
+    }
+
+    @Provides
+    @Singleton
+    SimpleChannelInboundHandler<Message> provideMessageHandler(final ClientMessageHandler handler) {
+        return new LatencyRecordingHandler(handler, this.statistics);
+    }
+
+}
@@ -0,0 +1,148 @@
+package test.sdc.socket.bench;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Settings of a load benchmark, read from system properties:
+ * <ul>
+ * <li>{@code bench.sessions}: number of client sessions (default: 100)</li>
+ * <li>{@code bench.rate}: number of values added per second by the workload generator of the server (default: 1000),
+ * whose other settings are read from their own system properties</li>
+ * <li>{@code bench.warmup}: warm-up duration, in seconds, once all sessions are logged in (default: 10)</li>
+ * <li>{@code bench.duration}: measurement duration, in seconds (default: 30)</li>
+ * <li>{@code bench.transport}: network transport, among IO_URING, EPOLL and NIO (default: automatic selection)</li>
+ * <li>{@code bench.threads}: number of event loop threads shared by client sessions (default: Netty default)</li>
+ * <li>{@code bench.port}: loopback port of the server (default: 12345)</li>
+ * <li>{@code bench.output}: file the results are written to, as JSON (default: bench-results.json)</li>
+ * </ul>
+ */
+public final class BenchSettings {
+
+    private final int sessions;
+    private final int rate;
+    private final Duration warmup;
+    private final Duration duration;
+    private final String transportKey;
+    private final int threads;
+    private final int port;
+    private final String output;
+
+    /**
+     * Constructor.
+     *
+     * @param sessions     number of client sessions
+     * @param rate         number of values added per second by the workload generator of the server
+     * @param warmup       warm-up duration
+     * @param duration     measurement duration
+     * @param transportKey key of the network transport (null for automatic selection)
+     * @param threads      number of event loop threads shared by client sessions (0 for default)
+     * @param port         loopback port of the server
+     * @param output       path of the file the results are written to
+     */
+    public BenchSettings(final int sessions, final int rate, final Duration warmup, final Duration duration,
+                         final String transportKey, final int threads, final int port, final String output) {
+        if (sessions <= 0) {
+            throw new IllegalArgumentException("Number of sessions must be positive");
+        }
+        this.sessions = sessions;
+        this.rate = rate;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.transportKey = transportKey;
+        this.threads = threads;
+        this.port = port;
+        this.output = output;
+    }
+
+    /**
+     * Read settings from system properties.
+     *
+     * @param properties system properties
+     * @return settings
+     */
+    public static BenchSettings fromProperties(final Properties properties) {
+        return new BenchSettings(
+                Integer.parseInt(properties.getProperty("bench.sessions", "100")),
+                Integer.parseInt(properties.getProperty("bench.rate", "1000")),
+                Duration.ofSeconds(Long.parseLong(properties.getProperty("bench.warmup", "10"))),
+                Duration.ofSeconds(Long.parseLong(properties.getProperty("bench.duration", "30"))),
+                properties.getProperty("bench.transport"),
+                Integer.parseInt(properties.getProperty("bench.threads", "0")),
+                Integer.parseInt(properties.getProperty("bench.port", "12345")),
+                properties.getProperty("bench.output", "bench-results.json"));
+    }
+
+    /**
+     * Get number of client sessions.
+     *
+     * @return number of client sessions
+     */
+    public int getSessions() {
+        return this.sessions;
+    }
+
+    /**
+     * Get number of values added per second by the workload generator of the server.
+     *
+     * @return rate
+     */
+    public int getRate() {
+        return this.rate;
+    }
+
+    /**
+     * Get warm-up duration, once all sessions are logged in.
+     *
+     * @return warm-up duration
+     */
+    public Duration getWarmup() {
+        return this.warmup;
+    }
+
+    /**
+     * Get measurement duration.
+     *
+     * @return measurement duration
+     */
+    public Duration getDuration() {
+        return this.duration;
+    }
+
+    /**
+     * Get key of the network transport.
+     *
+     * @return key of the network transport (null for automatic selection)
+     */
+    public String getTransportKey() {
+        return this.transportKey;
+    }
+
+    /**
+     * Get number of event loop threads shared by client sessions.
+     *
+     * @return number of threads (0 for default)
+     */
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * Get loopback port of the server.
+     *
+     * @return port
+     */
+    public int getPort() {
+        return this.port;
+    }
+
+    /**
+     * Get path of the file the results are written to.
+     *
+     * @return path
+     */
+    public String getOutput() {
+        return this.output;
+    }
+
+}
@@ -0,0 +1,91 @@
+package test.sdc.socket.bench;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics shared by all client sessions of a benchmark. Recording does not lock, so that the event loops of the
+ * sessions do not contend with each other, while intervals are taken from another thread.
+ */
+public final class BenchStatistics {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder latencies = new Recorder(SIGNIFICANT_DIGITS);
+    private final Recorder setupTimes = new Recorder(SIGNIFICANT_DIGITS);
+    private final LongAdder receivedUpdates = new LongAdder();
+    private final LongAdder unstampedUpdates = new LongAdder();
+
+    /**
+     * Record reception of a data update.
+     *
+     * @param latency duration between the origin time of the update and its reception (nanoseconds), or a negative
+     *                value if the update has no origin time
+     */
+    public void recordUpdate(final long latency) {
+        this.receivedUpdates.increment();
+        if (latency < 0L) {
+            this.unstampedUpdates.increment();
+        } else {
+            this.latencies.recordValue(latency);
+        }
+    }
+
+    /**
+     * Record duration between the start of the connection of a session and its first successful login.
+     *
+     * @param setupTime connection setup time (nanoseconds)
+     */
+    public void recordSetup(final long setupTime) {
+        this.setupTimes.recordValue(setupTime);
+    }
+
+    /**
+     * Start a new interval: statistics recorded so far are discarded.
+     */
+    public void reset() {
+        this.latencies.reset();
+        this.receivedUpdates.reset();
+        this.unstampedUpdates.reset();
+    }
+
+    /**
+     * Get latencies recorded since the start of the interval, and start a new one.
+     *
+     * @return latencies (nanoseconds)
+     */
+    public Histogram takeLatencies() {
+        return this.latencies.getIntervalHistogram();
+    }
+
+    /**
+     * Get connection setup times recorded so far.
+     *
+     * @return connection setup times (nanoseconds)
+     */
+    public Histogram takeSetupTimes() {
+        return this.setupTimes.getIntervalHistogram();
+    }
+
+    /**
+     * Get number of data updates received since the start of the interval, and start counting again.
+     *
+     * @return number of received data updates
+     */
+    public long takeReceivedUpdates() {
+        return this.receivedUpdates.sumThenReset();
+    }
+
+    /**
+     * Get number of data updates received since the start of the interval, which had no origin time, and
+     * start counting again.
+     *
+     * @return number of data updates without latency
+     */
+    public long takeUnstampedUpdates() {
+        return this.unstampedUpdates.sumThenReset();
+    }
+
+}
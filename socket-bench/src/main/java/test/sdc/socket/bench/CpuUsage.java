@@ -0,0 +1,93 @@
+package test.sdc.socket.bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CPU time spent by the process, split between the threads of the client sessions, whose name starts with a given
+ * prefix, and the other ones, which belong to the server. Time spent by the JVM itself (garbage collection,
+ * compilation) is only part of the time of the process.
+ */
+final class CpuUsage {
+
+    private final String clientThreadPrefix;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final OperatingSystemMXBean system = ManagementFactory.getOperatingSystemMXBean();
+    private final Map<Long, Long> startTimes = new HashMap<>();
+    private long startProcessTime;
+    private long startWallTime;
+
+    /**
+     * Constructor.
+     *
+     * @param clientThreadPrefix prefix of the names of the threads of the client sessions
+     */
+    CpuUsage(final String clientThreadPrefix) {
+        this.clientThreadPrefix = clientThreadPrefix;
+        if (this.threads.isThreadCpuTimeSupported()) {
+            this.threads.setThreadCpuTimeEnabled(true);
+        }
+    }
+
+    /**
+     * Start measurement.
+     */
+    void start() {
+        this.startTimes.clear();
+        for (final long threadId : this.threads.getAllThreadIds()) {
+            this.startTimes.put(threadId, Math.max(this.threads.getThreadCpuTime(threadId), 0L));
+        }
+        this.startProcessTime = this.getProcessCpuTime();
+        this.startWallTime = System.nanoTime();
+    }
+
+    /**
+     * Stop measurement.
+     *
+     * @return number of cores used on average since the start of the measurement, by the process
+     * ({@code process}), the server threads ({@code server}) and the client threads ({@code client}), or -1 if
+     * not supported by the JVM
+     */
+    Map<String, Double> stop() {
+        final double wallTime = System.nanoTime() - this.startWallTime;
+        long serverTime = 0L;
+        long clientTime = 0L;
+        for (final ThreadInfo thread : this.threads.getThreadInfo(this.threads.getAllThreadIds())) {
+            if (thread == null) {
+                continue;
+            }
+            final long cpuTime = this.threads.getThreadCpuTime(thread.getThreadId());
+            if (cpuTime < 0L) {
+                continue;
+            }
+            final long elapsed = cpuTime - this.startTimes.getOrDefault(thread.getThreadId(), 0L);
+            if (thread.getThreadName().startsWith(this.clientThreadPrefix)) {
+                clientTime += elapsed;
+            } else if (!"main".equals(thread.getThreadName())) {
+                serverTime += elapsed;
+            }
+        }
+        final long processTime = this.getProcessCpuTime();
+        final Map<String, Double> usage = new HashMap<>();
+        usage.put("process", processTime < 0L ? -1.0 : (processTime - this.startProcessTime) / wallTime);
+        usage.put("server", this.threads.isThreadCpuTimeEnabled() ? serverTime / wallTime : -1.0);
+        usage.put("client", this.threads.isThreadCpuTimeEnabled() ? clientTime / wallTime : -1.0);
+        return usage;
+    }
+
+    /**
+     * Get CPU time of the process.
+     *
+     * @return CPU time (nanoseconds), or -1 if not supported by the JVM
+     */
+    private long getProcessCpuTime() {
+        return this.system instanceof com.sun.management.OperatingSystemMXBean
+                ? ((com.sun.management.OperatingSystemMXBean) this.system).getProcessCpuTime()
+                : -1L;
+    }
+
+}
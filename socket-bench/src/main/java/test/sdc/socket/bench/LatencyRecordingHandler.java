@@ -0,0 +1,70 @@
+package test.sdc.socket.bench;
+
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import test.sdc.socket.common.metrics.EpochClock;
+import test.sdc.socket.model.protocol.MessageProtos.Message;
+import test.sdc.socket.model.protocol.data.DataUpdateProtos.DataUpdate;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Handle incoming messages of a client session: the latency of received data updates is recorded before messages
+ * are handed to the message handler of the client. Latency is measured from the origin time of each update, which is
+ * the time the workload generator intended to add it, so that it includes the delays of the generator and of the
+ * server, such as a dispatcher that is full. The server runs in the same process, hence on the same clock.
+ * Updates that a session gets as part of the content of a stream, such as the ones it catches up with after falling
+ * behind, have no origin time: they are only counted.
+ */
+@Sharable
+public final class LatencyRecordingHandler
+        extends SimpleChannelInboundHandler<Message> {
+
+    private final SimpleChannelInboundHandler<Message> delegate;
+    private final BenchStatistics statistics;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate   message handler of the client, which releases messages
+     * @param statistics benchmark statistics
+     */
+    public LatencyRecordingHandler(final SimpleChannelInboundHandler<Message> delegate,
+                                   final BenchStatistics statistics) {
+        super(false);
+        this.delegate = requireNonNull(delegate, "Delegate must not be null");
+        this.statistics = statistics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void channelRead0(final ChannelHandlerContext ctx, final Message msg)
+            throws Exception {
+        requireNonNull(ctx, "Channel handler context must not be null");
+        requireNonNull(msg, "Input object must not be null");
+        final long now = EpochClock.now();
+        if (msg.hasDataUpdate()) {
+            this.record(msg.getDataUpdate(), now);
+        }
+        if (msg.hasDataUpdateBatch()) {
+            for (final DataUpdate update : msg.getDataUpdateBatch().getUpdatesList()) {
+                this.record(update, now);
+            }
+        }
+        this.delegate.channelRead(ctx, msg);
+    }
+
+    /**
+     * Record latency of data update.
+     *
+     * @param update data update
+     * @param now    reception time ({@link EpochClock})
+     */
+    private void record(final DataUpdate update, final long now) {
+        this.statistics.recordUpdate(update.hasOriginTime() ? Math.max(now - update.getOriginTime(), 0L) : -1L);
+    }
+
+}
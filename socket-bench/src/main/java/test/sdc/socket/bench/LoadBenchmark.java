@@ -0,0 +1,194 @@
+package test.sdc.socket.bench;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import dagger.ObjectGraph;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.common.Transport;
+import test.sdc.socket.common.buffer.Allocators;
+import test.sdc.socket.server.Server;
+import test.sdc.socket.server.workload.WorkloadGenerator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Load benchmark: a server and many client sessions run in the same process, over the loopback interface.
+ * Sessions share the same event loop group, timer and buffer allocator, and each of them logs in with its own login
+ * and subscribes to all streams, so that every value added by the workload generator of the server is fanned out to
+ * all of them.
+ * Once all sessions are logged in and warmed up, the benchmark measures the latency between the time each data update
+ * was intended to be added by the workload generator and its reception by each session, the throughput of the server
+ * and its CPU usage. As the schedule of the generator is open-loop, the latency includes the delays of the generator
+ * and of the server, instead of omitting them (coordinated omission).
+ */
+public final class LoadBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadBenchmark.class);
+
+    private static final String CLIENT_THREAD_PREFIX = "bench-";
+    private static final Duration SERVER_START_TIMEOUT = Duration.ofSeconds(30L);
+
+    private final BenchSettings settings;
+    private final BenchStatistics statistics = new BenchStatistics();
+    private final List<BenchSession> sessions = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param settings benchmark settings
+     */
+    public LoadBenchmark(final BenchSettings settings) {
+        this.settings = requireNonNull(settings, "Settings must not be null");
+    }
+
+    /**
+     * Run benchmark. Server keeps running afterwards, until the process exits.
+     *
+     * @return results
+     * @throws InterruptedException benchmark thread was interrupted
+     * @throws IOException          server did not start in time
+     */
+    public BenchReport run()
+            throws InterruptedException, IOException {
+        final ObjectGraph serverGraph = ObjectGraph.create(new BenchServerModule(this.settings));
+        final Meter addedElements = serverGraph.get(MetricRegistry.class)
+                .meter(MetricRegistry.name(WorkloadGenerator.class, "added"));
+        Executors.newSingleThreadExecutor().submit(serverGraph.get(Server.class));
+        final InetSocketAddress serverAddress = new InetSocketAddress("127.0.0.1", this.settings.getPort());
+        awaitServer(serverAddress);
+
+        final Transport transport = Transport.select(this.settings.getTransportKey());
+        final EventLoopGroup group = transport.newEventLoopGroup(this.settings.getThreads(),
+                new DefaultThreadFactory(CLIENT_THREAD_PREFIX + "client", true));
+        final Timer timeoutTimer = new HashedWheelTimer(
+                new DefaultThreadFactory(CLIENT_THREAD_PREFIX + "requestTimeout", true));
+        final ExecutorService eventExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat(CLIENT_THREAD_PREFIX + "events-%d")
+                .setDaemon(true)
+                .build());
+        final ByteBufAllocator allocator = Allocators.newAllocator(true, true, null, null);
+        try {
+            final long connectionStart = System.nanoTime();
+            final CountDownLatch loggedIn = new CountDownLatch(this.settings.getSessions());
+            LOGGER.info("Opening {} sessions ({} transport)", this.settings.getSessions(), transport);
+            for (int i = 0; i < this.settings.getSessions(); i++) {
+                final BenchSession session = ObjectGraph.create(new BenchSessionModule("bench-" + i, serverAddress,
+                        transport, group, timeoutTimer, allocator, eventExecutor, this.statistics))
+                        .get(BenchSession.class);
+                this.sessions.add(session);
+                session.start(loggedIn);
+            }
+            loggedIn.await();
+            final long connectionTime = System.nanoTime() - connectionStart;
+            final Histogram setupTimes = this.statistics.takeSetupTimes();
+            LOGGER.info("{} sessions logged in after {} ms - warming up for {} s", this.sessions.size(),
+                    TimeUnit.NANOSECONDS.toMillis(connectionTime), this.settings.getWarmup().getSeconds());
+            Thread.sleep(this.settings.getWarmup().toMillis());
+
+            final CpuUsage cpuUsage = new CpuUsage(CLIENT_THREAD_PREFIX);
+            final long missedBefore = this.getMissedUpdates();
+            this.statistics.reset();
+            final long addedBefore = addedElements.getCount();
+            cpuUsage.start();
+            LOGGER.info("Measuring for {} s", this.settings.getDuration().getSeconds());
+            final long measurementStart = System.nanoTime();
+            Thread.sleep(this.settings.getDuration().toMillis());
+            final double seconds = (System.nanoTime() - measurementStart) / (double) TimeUnit.SECONDS.toNanos(1L);
+            final Histogram latencies = this.statistics.takeLatencies();
+            final long receivedUpdates = this.statistics.takeReceivedUpdates();
+            final long unstampedUpdates = this.statistics.takeUnstampedUpdates();
+            final long addedUpdates = addedElements.getCount() - addedBefore;
+            final Map<String, Double> cores = cpuUsage.stop();
+            final long missedUpdates = this.getMissedUpdates() - missedBefore;
+
+            return new BenchReport()
+                    .put("settings", new BenchReport()
+                            .put("sessions", this.settings.getSessions())
+                            .put("rate", this.settings.getRate())
+                            .put("warmupSeconds", this.settings.getWarmup().getSeconds())
+                            .put("durationSeconds", this.settings.getDuration().getSeconds())
+                            .put("transport", transport.getKey())
+                            .put("clientThreads", this.settings.getThreads())
+                            .put("availableProcessors", Runtime.getRuntime().availableProcessors()))
+                    .put("connection", new BenchReport()
+                            .put("totalMillis", TimeUnit.NANOSECONDS.toMillis(connectionTime))
+                            .put("setupNanos", BenchReport.of(setupTimes)))
+                    .put("updates", new BenchReport()
+                            .put("added", addedUpdates)
+                            .put("received", receivedUpdates)
+                            .put("unstamped", unstampedUpdates)
+                            .put("missed", missedUpdates))
+                    .put("throughput", new BenchReport()
+                            .put("addedPerSecond", addedUpdates / seconds)
+                            .put("receivedPerSecond", receivedUpdates / seconds))
+                    .put("latencyNanos", BenchReport.of(latencies))
+                    .put("cpuCores", new BenchReport()
+                            .put("process", cores.get("process"))
+                            .put("server", cores.get("server"))
+                            .put("client", cores.get("client")));
+        } finally {
+            this.sessions.forEach(BenchSession::dispose);
+            // Connection loss events are posted before the event loops terminate
+            group.shutdownGracefully().awaitUninterruptibly();
+            timeoutTimer.stop();
+            eventExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Get number of data updates that sessions missed so far.
+     *
+     * @return number of missed data updates
+     */
+    private long getMissedUpdates() {
+        long missedUpdates = 0L;
+        for (final BenchSession session : this.sessions) {
+            missedUpdates += session.getMissedUpdates();
+        }
+        return missedUpdates;
+    }
+
+    /**
+     * Wait until server accepts connections.
+     *
+     * @param serverAddress server address
+     * @throws InterruptedException waiting thread was interrupted
+     * @throws IOException          server did not start in time
+     */
+    private static void awaitServer(final InetSocketAddress serverAddress)
+            throws InterruptedException, IOException {
+        final long deadline = System.nanoTime() + SERVER_START_TIMEOUT.toNanos();
+        while (true) {
+            try (final Socket socket = new Socket()) {
+                socket.connect(serverAddress, 100);
+                return;
+            } catch (final IOException ex) {
+                if (System.nanoTime() > deadline) {
+                    throw new IOException("Server did not start within " + SERVER_START_TIMEOUT, ex);
+                }
+                Thread.sleep(100L);
+            }
+        }
+    }
+
+}
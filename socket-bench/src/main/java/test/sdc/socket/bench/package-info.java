@@ -0,0 +1,4 @@
+/**
+ * Load benchmark: server and many client sessions in the same process, over the loopback interface.
+ */
+package test.sdc.socket.bench;
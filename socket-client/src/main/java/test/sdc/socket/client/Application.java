@@ -1,6 +1,7 @@
 package test.sdc.socket.client;
 
 import dagger.ObjectGraph;
+import test.sdc.socket.common.buffer.LeakDetection;
 
 import java.util.concurrent.Executors;
 
@@ -12,6 +13,7 @@ public final class Application {
      * @param args start-up arguments
      */
     public static void main(final String[] args) {
+        LeakDetection.install();
         final ObjectGraph objectGraph = ObjectGraph.create(new ClientModule());
         final Client server = objectGraph.get(Client.class);
         Executors.newSingleThreadExecutor().submit(server);
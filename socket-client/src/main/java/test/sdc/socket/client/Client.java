@@ -2,15 +2,22 @@ package test.sdc.socket.client;
 
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.MetricRegistry;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import test.sdc.socket.common.interfacing.ChannelInstrumentation;
+import test.sdc.socket.common.interfacing.FrameRecorder;
 import test.sdc.socket.client.interfacing.ClientConnection;
 import test.sdc.socket.client.session.LoginManager;
+import test.sdc.socket.client.session.SubscriptionManager;
 import test.sdc.socket.model.protocol.MessageProtos.Message;
 
 import javax.inject.Inject;
-import javax.net.ssl.SSLException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 
 /**
  * Server.
@@ -23,15 +30,28 @@ public final class Client
     private final ClientConnection connection;
     private final SimpleChannelInboundHandler<Message> handler;
     private final LoginManager loginManager;
+    private final SubscriptionManager subscriptionManager;
+    private final EventLoopGroup group;
+    private final Timer timeoutTimer;
+    private final ChannelInstrumentation instrumentation;
+    private final FrameRecorder frameRecorder;
     private final MetricRegistry metrics;
 
     @Inject
     public Client(final ClientConnection connection,
                   final SimpleChannelInboundHandler<Message> handler,
-                  final LoginManager loginManager, final MetricRegistry metrics) {
+                  final LoginManager loginManager, final SubscriptionManager subscriptionManager,
+                  final EventLoopGroup group, final Timer timeoutTimer,
+                  final ChannelInstrumentation instrumentation, final FrameRecorder frameRecorder,
+                  final MetricRegistry metrics) {
         this.connection = connection;
         this.handler = handler;
         this.loginManager = loginManager;
+        this.subscriptionManager = subscriptionManager;
+        this.group = group;
+        this.timeoutTimer = timeoutTimer;
+        this.instrumentation = instrumentation;
+        this.frameRecorder = frameRecorder;
         this.metrics = metrics;
     }
 
@@ -52,22 +72,41 @@ public final class Client
      * Connect to server.
      *
      * @throws InterruptedException connection thread was interrupted
-     * @throws SSLException         indicates some kind of error detected by an SSL subsystem
      */
     private void startConnection()
-            throws SSLException, InterruptedException {
+            throws InterruptedException {
         this.loginManager.startListening();
-        Runtime.getRuntime().addShutdownHook(new Thread(connection::dispose));
+        this.subscriptionManager.startListening();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::dispose));
         this.connection.start(this.handler);
     }
 
+    /**
+     * Liberate resources gracefully.
+     */
+    private void dispose() {
+        this.connection.dispose();
+        // Shut down the event loop to terminate all threads.
+        this.group.shutdownGracefully();
+        this.timeoutTimer.stop();
+    }
+
     /**
      * Activate JMX monitoring.
+     *
+     * @throws JMException management beans cannot be registered
      */
-    private void startMonitoring() {
+    private void startMonitoring()
+            throws JMException {
         final JmxReporter reporter = JmxReporter.forRegistry(this.metrics).build();
         Runtime.getRuntime().addShutdownHook(new Thread(reporter::stop));
         reporter.start();
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this.instrumentation,
+                new ObjectName("test.sdc.socket.client", "type", ChannelInstrumentation.class.getSimpleName()));
+        if (this.frameRecorder != null) {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this.frameRecorder,
+                    new ObjectName("test.sdc.socket.client", "type", FrameRecorder.class.getSimpleName()));
+        }
     }
 
 }
\ No newline at end of file
@@ -6,24 +6,42 @@ import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
 import dagger.Module;
 import dagger.Provides;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import test.sdc.socket.client.interfacing.ClientConnection;
 import test.sdc.socket.client.interfacing.ClientMessageHandler;
 import test.sdc.socket.client.session.LoginManager;
+import test.sdc.socket.client.session.SequenceTracker;
+import test.sdc.socket.client.session.SubscriptionManager;
 import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.Transport;
+import test.sdc.socket.common.buffer.Allocators;
+import test.sdc.socket.common.buffer.LeakDetection;
+import test.sdc.socket.common.interfacing.ChannelInstrumentation;
+import test.sdc.socket.common.interfacing.FrameRecorder;
+import test.sdc.socket.common.interfacing.MessageCompression;
+import test.sdc.socket.common.ssl.SslSupport;
 import test.sdc.socket.model.protocol.MessageProtos;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
 import java.util.concurrent.Executors;
 
 /**
  * Module in charge of building the dependency graph of the application.
+ * Modules that override some of its bindings can reuse it, so that several clients run in the same process.
  */
 @Module(injects = {Client.class})
-final class ClientModule {
+public final class ClientModule {
 
     @Provides
     InetSocketAddress provideServerAddress() {
@@ -42,12 +60,74 @@ final class ClientModule {
         return "";
     }
 
+    @Named("maxUpdateRate")
+    @Provides
+    Integer provideMaxUpdateRate() {
+        return null; // Unlimited
+    }
+
+    @Named("subscriptions")
+    @Provides
+    String provideSubscriptions() {
+        return ""; // All streams
+    }
+
     @Named("sslEnabled")
     @Provides
     Boolean provideSslActivation() {
         return false;
     }
 
+    @Named("sslProvider")
+    @Provides
+    String provideSslProviderKey() {
+        return null; // JDK, which resumes sessions
+    }
+
+    @Named("sslTrustStore")
+    @Provides
+    String provideSslTrustStorePath() {
+        return null; // Any server certificate is trusted
+    }
+
+    @Named("sslTrustStorePassword")
+    @Provides
+    String provideSslTrustStorePassword() {
+        return null;
+    }
+
+    @Named("sslSessionCacheSize")
+    @Provides
+    Long provideSslSessionCacheSize() {
+        return null; // Provider default
+    }
+
+    @Named("sslSessionTimeout")
+    @Provides
+    Duration provideSslSessionTimeout() {
+        return null; // Provider default
+    }
+
+    @Provides
+    @Singleton
+    SslSupport provideSslSupport(@Named("sslEnabled") final Boolean sslEnabled,
+                                 @Named("sslProvider") final String providerKey,
+                                 @Named("sslTrustStore") final String trustStorePath,
+                                 @Named("sslTrustStorePassword") final String trustStorePassword,
+                                 @Named("sslSessionCacheSize") final Long sessionCacheSize,
+                                 @Named("sslSessionTimeout") final Duration sessionTimeout,
+                                 final MetricRegistry metrics) {
+        if (!sslEnabled) {
+            return null;
+        }
+        try {
+            return SslSupport.forClient(providerKey, trustStorePath, trustStorePassword, sessionCacheSize,
+                    sessionTimeout, metrics);
+        } catch (final GeneralSecurityException | IOException ex) {
+            throw new IllegalStateException("SSL context cannot be initialized", ex);
+        }
+    }
+
     @Provides
     Charset provideEncodingCharset() {
         return Charsets.UTF_8;
@@ -58,18 +138,173 @@ final class ClientModule {
         return null;
     }
 
+    @Named("messageCompressionFormats")
+    @Provides
+    String provideMessageCompressionFormats() {
+        return "SNAPPY,ZLIB";
+    }
+
+    @Named("messageCompressionThreshold")
+    @Provides
+    Integer provideMessageCompressionThreshold() {
+        return 512;
+    }
+
+    @Named("maxMessageSize")
+    @Provides
+    Integer provideMaxMessageSize() {
+        return 16 * 1024 * 1024; // Once decompressed
+    }
+
+    @Provides
+    @Singleton
+    MessageCompression provideMessageCompression(@Named("messageCompressionFormats") final String formatKeys,
+                                                 @Named("messageCompressionThreshold") final Integer threshold,
+                                                 @Named("maxMessageSize") final Integer maxMessageSize,
+                                                 final MetricRegistry metrics) {
+        return new MessageCompression(formatKeys, threshold, maxMessageSize, metrics);
+    }
+
+    @Named("channelInstrumentation")
+    @Provides
+    Boolean provideChannelInstrumentationActivation() {
+        return false; // Can be switched on through JMX
+    }
+
+    @Provides
+    @Singleton
+    ChannelInstrumentation provideChannelInstrumentation(@Named("channelInstrumentation") final Boolean enabled,
+                                                         final MetricRegistry metrics) {
+        return new ChannelInstrumentation(enabled, metrics);
+    }
+
+    @Named("frameRecorderSize")
+    @Provides
+    Integer provideFrameRecorderSize() {
+        return 1024; // No frame is recorded if 0
+    }
+
+    @Named("frameRecorderMaxFrameSize")
+    @Provides
+    Integer provideFrameRecorderMaxFrameSize() {
+        return 4096;
+    }
+
+    @Provides
+    @Singleton
+    FrameRecorder provideFrameRecorder(@Named("frameRecorderSize") final Integer size,
+                                       @Named("frameRecorderMaxFrameSize") final Integer maxFrameSize) {
+        return size == 0 ? null : new FrameRecorder(size, maxFrameSize);
+    }
+
+    @Named("transport")
+    @Provides
+    String provideTransportKey() {
+        return null; // Automatic selection
+    }
+
+    @Provides
+    @Singleton
+    Transport provideTransport(@Named("transport") final String transportKey) {
+        return Transport.select(transportKey);
+    }
+
+    @Provides
+    @Singleton
+    EventLoopGroup provideEventLoopGroup(final Transport transport) {
+        return transport.newEventLoopGroup(0);
+    }
+
+    @Named("allocatorPooled")
+    @Provides
+    Boolean provideAllocatorPooling() {
+        return true;
+    }
+
+    @Named("allocatorPreferDirect")
+    @Provides
+    Boolean provideAllocatorDirectPreference() {
+        return true;
+    }
+
+    @Named("allocatorArenas")
+    @Provides
+    Integer provideAllocatorArenas() {
+        return null; // Netty default
+    }
+
+    @Named("allocatorChunkSize")
+    @Provides
+    Integer provideAllocatorChunkSize() {
+        return null; // Netty default
+    }
+
+    @Named("leakDetectionLevel")
+    @Provides
+    String provideLeakDetectionLevel() {
+        return null; // Netty default, unless set by system property
+    }
+
+    @Provides
+    @Singleton
+    ByteBufAllocator provideAllocator(@Named("allocatorPooled") final Boolean pooled,
+                                      @Named("allocatorPreferDirect") final Boolean preferDirect,
+                                      @Named("allocatorArenas") final Integer nbArenas,
+                                      @Named("allocatorChunkSize") final Integer chunkSize,
+                                      @Named("leakDetectionLevel") final String leakDetectionLevel,
+                                      final MetricRegistry metrics) {
+        LeakDetection.configure(leakDetectionLevel, metrics);
+        final ByteBufAllocator allocator = Allocators.newAllocator(pooled, preferDirect, nbArenas, chunkSize);
+        Allocators.registerMetrics(allocator, metrics);
+        return allocator;
+    }
+
     @Provides
     SimpleChannelInboundHandler<MessageProtos.Message> provideMessageHandler(final ClientMessageHandler handler) {
         return handler;
     }
 
+    @Named("requestTimeout")
+    @Provides
+    Duration provideRequestTimeout() {
+        return Duration.ofSeconds(10L);
+    }
+
+    @Named("reconnectBaseDelay")
+    @Provides
+    Duration provideReconnectBaseDelay() {
+        return Duration.ofMillis(500L);
+    }
+
+    @Named("reconnectMaxDelay")
+    @Provides
+    Duration provideReconnectMaxDelay() {
+        return Duration.ofSeconds(30L);
+    }
+
     @Provides
     @Singleton
-    ClientConnection provideConnection(@Named("sslEnabled") final Boolean sslEnabled,
-                                       final InetSocketAddress serverAddress, final Charset encodingCharset,
+    Timer provideRequestTimeoutTimer() {
+        return new HashedWheelTimer(new DefaultThreadFactory("requestTimeout", true));
+    }
+
+    @Provides
+    @Singleton
+    ClientConnection provideConnection(final SslSupport sslSupport,
+                                       final InetSocketAddress serverAddress,
                                        final DataCompressionFormat compression,
-                                       final EventBus eventBus) {
-        return new ClientConnection(sslEnabled, serverAddress, encodingCharset, compression, eventBus);
+                                       final MessageCompression messageCompression,
+                                       final ChannelInstrumentation instrumentation,
+                                       final FrameRecorder frameRecorder, final Transport transport,
+                                       final EventLoopGroup group, final ByteBufAllocator allocator,
+                                       final EventBus eventBus, final Timer timeoutTimer,
+                                       @Named("requestTimeout") final Duration requestTimeout,
+                                       @Named("reconnectBaseDelay") final Duration reconnectBaseDelay,
+                                       @Named("reconnectMaxDelay") final Duration reconnectMaxDelay,
+                                       final MetricRegistry metrics) {
+        return new ClientConnection(sslSupport, serverAddress, compression, messageCompression, instrumentation,
+                frameRecorder, transport, group, allocator, eventBus, timeoutTimer, requestTimeout,
+                reconnectBaseDelay, reconnectMaxDelay, metrics);
     }
 
     @Provides
@@ -84,11 +319,28 @@ final class ClientModule {
         return new MetricRegistry();
     }
 
+    @Provides
+    @Singleton
+    SequenceTracker provideSequenceTracker(final MetricRegistry metrics) {
+        return new SequenceTracker(metrics);
+    }
+
     @Provides
     @Singleton
     LoginManager provideLoginManager(@Named("login") final String login, @Named("password") final String password,
-                                     final ClientConnection connection, final EventBus eventBus, final MetricRegistry metrics) {
-        return new LoginManager(login, password, connection, eventBus, metrics);
+                                     @Named("maxUpdateRate") final Integer maxUpdateRate,
+                                     final Charset encodingCharset, final MessageCompression messageCompression,
+                                     final ClientConnection connection, final EventBus eventBus) {
+        return new LoginManager(login, password, maxUpdateRate, encodingCharset, messageCompression, connection,
+                eventBus);
+    }
+
+    @Provides
+    @Singleton
+    SubscriptionManager provideSubscriptionManager(@Named("subscriptions") final String prefixes,
+                                                   final Charset encodingCharset, final ClientConnection connection,
+                                                   final SequenceTracker sequenceTracker, final EventBus eventBus) {
+        return new SubscriptionManager(prefixes, encodingCharset, connection, sequenceTracker, eventBus);
     }
 
 }
\ No newline at end of file
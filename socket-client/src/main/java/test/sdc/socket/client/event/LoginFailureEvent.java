@@ -5,14 +5,14 @@ package test.sdc.socket.client.event;
  */
 public final class LoginFailureEvent {
 
-    private String msgRefId;
+    private final long msgRefId;
 
     /**
      * Constructor.
      *
      * @param msgRefId message reference, which can be used to associate response to request
      */
-    public LoginFailureEvent(final String msgRefId) {
+    public LoginFailureEvent(final long msgRefId) {
         this.msgRefId = msgRefId;
     }
 
@@ -21,7 +21,7 @@ public final class LoginFailureEvent {
      *
      * @return message reference, which can be used to associate response to request
      */
-    public String getMsgRefId() {
+    public long getMsgRefId() {
         return this.msgRefId;
     }
 
@@ -1,78 +1,137 @@
 package test.sdc.socket.client.interfacing;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.eventbus.EventBus;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.InvalidProtocolBufferException;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import test.sdc.socket.client.event.ConnectionEstablishedEvent;
 import test.sdc.socket.client.event.ConnectionLossEvent;
 import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.Transport;
+import test.sdc.socket.common.interfacing.ByteBufProtobufDecoder;
+import test.sdc.socket.common.interfacing.ChannelInstrumentation;
+import test.sdc.socket.common.interfacing.FrameRecorder;
 import test.sdc.socket.common.interfacing.LeChannelInitializer;
+import test.sdc.socket.common.interfacing.MessageCompression;
+import test.sdc.socket.common.ssl.SslSupport;
 import test.sdc.socket.model.protocol.MessageProtos.Message;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.net.ssl.SSLException;
 import java.net.InetSocketAddress;
-import java.nio.charset.Charset;
+import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static java.util.Objects.requireNonNull;
 
 /**
  * Client connection.
+ * When the connection is lost, it is established again after a delay that grows exponentially with the number of
+ * failed attempts (see {@link ReconnectBackoff}), on the same event loop group.
+ * Requests are sent without waiting for their responses, so that many of them can be in flight at the same time:
+ * responses are matched to requests by their message reference, and requests that get no response in time fail.
+ * The event loop group and the timer of request timeouts can be shared by many connections, so they are not
+ * released along with the connection.
  */
 public class ClientConnection {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientConnection.class);
 
-    private final Boolean sslEnabled;
+    private final SslSupport sslSupport;
     private final InetSocketAddress serverAddress;
-    private final Charset encodingCharset;
     private final DataCompressionFormat compression;
+    private final MessageCompression messageCompression;
+    private final ChannelInstrumentation instrumentation;
+    private final FrameRecorder frameRecorder;
+    private final Transport transport;
+    private final ByteBufAllocator allocator;
     private final EventBus eventBus;
+    private final Duration requestTimeout;
+    private final MetricRegistry metrics;
+    private final Meter requestTimeouts;
+    private final ReconnectBackoff reconnectBackoff;
+    private final Meter reconnects;
+    private final Meter failedReconnects;
+    private final Timer downtime;
 
-    private final EventLoopGroup group = new NioEventLoopGroup();
+    private final EventLoopGroup group;
+    private final io.netty.util.Timer timeoutTimer;
+    private final AtomicLong msgRefIds = new AtomicLong();
+    private final ConcurrentMap<Long, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+    private volatile Bootstrap bootstrap = null;
     private volatile Channel channel = null;
+    private volatile long connectionLossTime;
+    private volatile boolean disposed = false;
 
     /**
      * Constructor.
      *
-     * @param sslEnabled      enable SSL
-     * @param serverAddress   server address
-     * @param encodingCharset encoding character set
-     * @param compression     data compression format (optional)
-     * @param eventBus        event bus
+     * @param sslSupport         SSL support, shared by successive connections (null if SSL is disabled)
+     * @param serverAddress      server address
+     * @param compression        stream compression format (optional)
+     * @param messageCompression message compression
+     * @param instrumentation    channel instrumentation
+     * @param frameRecorder      frame recorder (null if frames are not recorded)
+     * @param transport          network transport
+     * @param group              event loop group
+     * @param allocator          buffer allocator
+     * @param eventBus           event bus
+     * @param timeoutTimer       timer of request timeouts
+     * @param requestTimeout     maximum duration between the emission of a request and the reception of its response
+     * @param reconnectBaseDelay maximum delay before the first reconnection attempt
+     * @param reconnectMaxDelay  maximum delay between reconnection attempts
+     * @param metrics            metric registry
      */
     @Inject
-    public ClientConnection(@Named("sslEnabled") final Boolean sslEnabled,
-                            final InetSocketAddress serverAddress, final Charset encodingCharset,
-                            final DataCompressionFormat compression,
-                            final EventBus eventBus) {
-        this.sslEnabled = sslEnabled;
+    public ClientConnection(final SslSupport sslSupport,
+                            final InetSocketAddress serverAddress,
+                            final DataCompressionFormat compression, final MessageCompression messageCompression,
+                            final ChannelInstrumentation instrumentation, final FrameRecorder frameRecorder,
+                            final Transport transport, final EventLoopGroup group,
+                            final ByteBufAllocator allocator, final EventBus eventBus,
+                            final io.netty.util.Timer timeoutTimer,
+                            @Named("requestTimeout") final Duration requestTimeout,
+                            @Named("reconnectBaseDelay") final Duration reconnectBaseDelay,
+                            @Named("reconnectMaxDelay") final Duration reconnectMaxDelay,
+                            final MetricRegistry metrics) {
+        this.sslSupport = sslSupport;
         this.serverAddress = serverAddress;
-        this.encodingCharset = encodingCharset;
         this.compression = compression;
+        this.messageCompression = messageCompression;
+        this.instrumentation = instrumentation;
+        this.frameRecorder = frameRecorder;
+        this.transport = transport;
+        this.group = group;
+        this.allocator = allocator;
         this.eventBus = eventBus;
-    }
-
-    /**
-     * Initialize SSL context.
-     *
-     * @return SSL context
-     * @throws SSLException indicates some kind of error detected by an SSL subsystem
-     */
-    private static SslContext initSslContext()
-            throws SSLException {
-        return SslContextBuilder.forClient()
-                .trustManager(InsecureTrustManagerFactory.INSTANCE)
-                .build();
+        this.timeoutTimer = timeoutTimer;
+        this.requestTimeout = requireNonNull(requestTimeout, "Request timeout must not be null");
+        this.metrics = metrics;
+        this.requestTimeouts = metrics.meter(name(ClientConnection.class, "requests", "timeouts"));
+        metrics.register(name(ClientConnection.class, "requests", "pending"),
+                (Gauge<Integer>) this.pendingRequests::size);
+        this.reconnectBackoff = new ReconnectBackoff(reconnectBaseDelay, reconnectMaxDelay);
+        this.reconnects = metrics.meter(name(ClientConnection.class, "reconnects"));
+        this.failedReconnects = metrics.meter(name(ClientConnection.class, "reconnects", "failures"));
+        this.downtime = metrics.timer(name(ClientConnection.class, "downtime"));
     }
 
     /**
@@ -80,51 +139,208 @@ public class ClientConnection {
      *
      * @param messageHandler message handler, which receives data from connection
      * @throws InterruptedException connection thread was interrupted
-     * @throws SSLException         indicates some kind of error detected by an SSL subsystem
      */
     public void start(final SimpleChannelInboundHandler<Message> messageHandler)
-            throws InterruptedException, SSLException {
+            throws InterruptedException {
         requireNonNull(messageHandler, "Message handler must not be null");
-        LOGGER.info("Starting connection to {}", this.serverAddress);
-        // Configure SSL
-        final SslContext sslContext = this.sslEnabled ? initSslContext() : null;
-
+        LOGGER.info("Starting connection to {} ({} transport)", this.serverAddress, this.transport);
         // Configure the client.
-        final ChannelInitializer<SocketChannel> channelInitializer = LeChannelInitializer.forClient(
-                sslContext, messageHandler, this.encodingCharset, this.compression, this.serverAddress);
-        final Bootstrap bootstrap = new Bootstrap()
+        final ChannelInitializer<Channel> channelInitializer = LeChannelInitializer.forClient(
+                this.sslSupport, messageHandler, this.compression, this.messageCompression, this.instrumentation,
+                this.frameRecorder, this.serverAddress);
+        this.bootstrap = new Bootstrap()
                 .group(this.group)
-                .channel(NioSocketChannel.class)
+                .channel(this.transport.getSocketChannelClass())
                 .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.ALLOCATOR, this.allocator)
                 .handler(channelInitializer);
 
         // Start the client.
-        this.channel = bootstrap.connect(this.serverAddress).sync().channel();
-        this.eventBus.post(new ConnectionEstablishedEvent());
-        this.channel.closeFuture().addListener(new ChannelClosureListener());
+        this.onConnected(this.bootstrap.connect(this.serverAddress).sync().channel());
         LOGGER.info("Connection startup completed successfully");
     }
 
     /**
-     * Send message to server.
+     * Use channel that has just been connected to server.
      *
-     * @param message message
-     * @throws InterruptedException message emission thread was interrupted
+     * @param channel channel
      */
-    public void send(final Message message)
-            throws InterruptedException {
-        requireNonNull(message, "Input message must not be null");
-        LOGGER.info("Sending message...");
-        this.channel.writeAndFlush(message).sync();
+    private void onConnected(final Channel channel) {
+        this.channel = channel;
+        this.reconnectBackoff.reset();
+        this.eventBus.post(new ConnectionEstablishedEvent());
+        channel.closeFuture().addListener(new ChannelClosureListener());
     }
 
     /**
-     * Liberate resources gracefully.
+     * Schedule next reconnection attempt.
+     */
+    private void scheduleReconnection() {
+        final Duration delay = this.reconnectBackoff.nextDelay();
+        LOGGER.info("Reconnecting to {} in {} ms", this.serverAddress, delay.toMillis());
+        try {
+            this.group.schedule(this::reconnect, delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException ex) {
+            LOGGER.debug("Reconnection cancelled, as connection is being disposed");
+        }
+    }
+
+    /**
+     * Try to connect to server again.
+     */
+    private void reconnect() {
+        if (this.disposed) {
+            return;
+        }
+        this.bootstrap.connect(this.serverAddress).addListener((ChannelFuture future) -> {
+            if (future.isSuccess()) {
+                this.reconnects.mark();
+                this.downtime.update(System.nanoTime() - this.connectionLossTime, TimeUnit.NANOSECONDS);
+                LOGGER.info("Connection to {} re-established", this.serverAddress);
+                this.onConnected(future.channel());
+            } else if (!this.disposed) {
+                this.failedReconnects.mark();
+                LOGGER.warn("Reconnection to {} failed: {}", this.serverAddress, future.cause().toString());
+                this.scheduleReconnection();
+            }
+        });
+    }
+
+    /**
+     * Schedule task on the event loop group of the connection.
+     *
+     * @param task  task
+     * @param delay delay before execution
+     * @return result of the task, which can be used to cancel it
+     */
+    public ScheduledFuture<?> schedule(final Runnable task, final Duration delay) {
+        requireNonNull(task, "Task must not be null");
+        return this.group.schedule(task, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get next message reference, which associates a response to its request.
+     *
+     * @return message reference (unique for the connection)
+     */
+    public long nextMsgRefId() {
+        return this.msgRefIds.incrementAndGet();
+    }
+
+    /**
+     * Send request to server, without waiting for it to be written.
+     * The response is completed from the event loop of the connection, so actions that depend on it must not block.
+     *
+     * @param request request, whose message reference has been drawn from {@link #nextMsgRefId()}
+     * @return response, which fails if the request cannot be sent, if the connection is lost, or if the response
+     * does not arrive in time
+     */
+    public CompletableFuture<Message> request(final Message request) {
+        requireNonNull(request, "Request must not be null");
+        if (!request.hasMsgRefId()) {
+            throw new IllegalArgumentException("Request must have a message reference");
+        }
+        final long msgRefId = request.getMsgRefId();
+        final Channel channel = this.channel;
+        final CompletableFuture<Message> response = new CompletableFuture<>();
+        if (channel == null || !channel.isActive()) {
+            response.completeExceptionally(new ClosedChannelException());
+            return response;
+        }
+        final PendingRequest pendingRequest = new PendingRequest(response,
+                this.metrics.timer(name(ClientConnection.class, "roundTrip", requestType(request))).time(),
+                this.timeoutTimer.newTimeout(timeout -> this.onTimeout(msgRefId),
+                        this.requestTimeout.toMillis(), TimeUnit.MILLISECONDS));
+        if (this.pendingRequests.putIfAbsent(msgRefId, pendingRequest) != null) {
+            pendingRequest.timeout.cancel();
+            throw new IllegalArgumentException("A request is already pending with message reference " + msgRefId);
+        }
+        LOGGER.debug("Sending request {}", msgRefId);
+        channel.writeAndFlush(request).addListener(future -> {
+            if (!future.isSuccess()) {
+                this.fail(msgRefId, future.cause());
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Complete the pending request a response belongs to.
+     * Response is copied, as it is only valid until the handler that received it returns.
+     *
+     * @param response response
+     * @return response matched a pending request
+     */
+    public boolean onResponse(final Message response) {
+        requireNonNull(response, "Response must not be null");
+        final PendingRequest pendingRequest = this.pendingRequests.remove(response.getMsgRefId());
+        if (pendingRequest == null) {
+            return false;
+        }
+        pendingRequest.timeout.cancel();
+        pendingRequest.timerContext.stop();
+        try {
+            pendingRequest.response.complete(ByteBufProtobufDecoder.detach(response));
+        } catch (final InvalidProtocolBufferException ex) {
+            pendingRequest.response.completeExceptionally(ex);
+        }
+        return true;
+    }
+
+    /**
+     * Fail request that did not get its response in time.
+     *
+     * @param msgRefId message reference of the request
+     */
+    private void onTimeout(final long msgRefId) {
+        if (this.fail(msgRefId, new TimeoutException("No response to request " + msgRefId + " after "
+                + this.requestTimeout.toMillis() + " ms"))) {
+            this.requestTimeouts.mark();
+        }
+    }
+
+    /**
+     * Fail pending request.
+     *
+     * @param msgRefId message reference of the request
+     * @param cause    cause of the failure
+     * @return request was pending
+     */
+    private boolean fail(final long msgRefId, final Throwable cause) {
+        final PendingRequest pendingRequest = this.pendingRequests.remove(msgRefId);
+        if (pendingRequest == null) {
+            return false;
+        }
+        pendingRequest.timeout.cancel();
+        pendingRequest.response.completeExceptionally(cause);
+        return true;
+    }
+
+    /**
+     * Get type of request, which is the name of its field that holds a message.
+     *
+     * @param request request
+     * @return request type
+     */
+    private static String requestType(final Message request) {
+        for (final FieldDescriptor field : Message.getDescriptor().getFields()) {
+            if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE && request.hasField(field)) {
+                return field.getName();
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * Close connection, which is not established again.
      */
     public void dispose() {
         LOGGER.info("Stopping client connection...");
-        // Shut down the event loop to terminate all threads.
-        this.group.shutdownGracefully();
+        this.disposed = true;
+        final Channel channel = this.channel;
+        if (channel != null) {
+            channel.close();
+        }
     }
 
     /**
@@ -141,7 +357,38 @@ public class ClientConnection {
                 throws Exception {
             requireNonNull(future, "Result of an asynchronous Channel I/O operation must not be null");
             LOGGER.info("Connection to server was lost");
+            for (final Long msgRefId : ClientConnection.this.pendingRequests.keySet()) {
+                ClientConnection.this.fail(msgRefId, new ClosedChannelException());
+            }
             ClientConnection.this.eventBus.post(new ConnectionLossEvent());
+            if (!ClientConnection.this.disposed) {
+                ClientConnection.this.connectionLossTime = System.nanoTime();
+                ClientConnection.this.scheduleReconnection();
+            }
+        }
+    }
+
+    /**
+     * Request waiting for its response.
+     */
+    private static final class PendingRequest {
+
+        private final CompletableFuture<Message> response;
+        private final Timer.Context timerContext;
+        private final Timeout timeout;
+
+        /**
+         * Constructor.
+         *
+         * @param response     response to complete
+         * @param timerContext round-trip time measurement
+         * @param timeout      timeout of the request
+         */
+        private PendingRequest(final CompletableFuture<Message> response, final Timer.Context timerContext,
+                               final Timeout timeout) {
+            this.response = response;
+            this.timerContext = timerContext;
+            this.timeout = timeout;
         }
     }
 
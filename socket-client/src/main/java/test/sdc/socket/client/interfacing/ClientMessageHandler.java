@@ -1,24 +1,37 @@
 package test.sdc.socket.client.interfacing;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.eventbus.EventBus;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import test.sdc.socket.client.event.LoginFailureEvent;
-import test.sdc.socket.client.event.LoginSuccessEvent;
+import test.sdc.socket.client.session.SequenceTracker;
+import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.interfacing.MessageCompression;
+import test.sdc.socket.common.metrics.EpochClock;
+import test.sdc.socket.common.metrics.HdrHistogramReservoir;
 import test.sdc.socket.model.protocol.MessageProtos.Message;
+import test.sdc.socket.model.protocol.data.DataUpdateProtos.DataUpdate;
 import test.sdc.socket.model.protocol.login.LoginResponseProtos.LoginResponse;
 
 import javax.inject.Inject;
+import java.nio.charset.Charset;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static java.util.Objects.requireNonNull;
 
 /**
  * Handle incoming messages.
+ * Latency of the data updates that carry the times they went through the server is recorded, in nanoseconds, stage
+ * by stage: from the repository to the dispatcher ({@code latency.dispatch}), from the dispatcher to the encoding of
+ * the message ({@code latency.send}, which includes batching), from the encoding of the message to its reception by
+ * this handler ({@code latency.transfer}), and overall ({@code latency.total}). Times taken on the server and on the
+ * client are only comparable when both hosts have their clocks synchronized: messages received before they were sent
+ * are counted ({@code latency.outOfSync}), and their negative latencies recorded as 0.
  */
 @Sharable
 public class ClientMessageHandler
@@ -26,19 +39,39 @@ public class ClientMessageHandler
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientMessageHandler.class);
 
-    private final EventBus eventBus;
+    private final ClientConnection connection;
+    private final SequenceTracker sequenceTracker;
+    private final Charset encodingCharset;
     private final Meter receivedDataUpdates;
+    private final Histogram dispatchLatency;
+    private final Histogram sendLatency;
+    private final Histogram transferLatency;
+    private final Histogram totalLatency;
+    private final Counter outOfSyncMessages;
 
     /**
      * Constructor.
      *
-     * @param eventBus event bus
-     * @param metrics metric registry
+     * @param connection      connection, which is handed the responses to its requests
+     * @param sequenceTracker sequence tracker
+     * @param encodingCharset encoding character set of text fields
+     * @param metrics         metric registry
      */
     @Inject
-    public ClientMessageHandler(final EventBus eventBus, final MetricRegistry metrics) {
-        this.eventBus = eventBus;
+    public ClientMessageHandler(final ClientConnection connection, final SequenceTracker sequenceTracker,
+                                final Charset encodingCharset, final MetricRegistry metrics) {
+        this.connection = connection;
+        this.sequenceTracker = sequenceTracker;
+        this.encodingCharset = encodingCharset;
         this.receivedDataUpdates = metrics.meter("receivedDataUpdates");
+        this.dispatchLatency = HdrHistogramReservoir.histogram(metrics,
+                name(ClientMessageHandler.class, "latency", "dispatch"));
+        this.sendLatency = HdrHistogramReservoir.histogram(metrics, name(ClientMessageHandler.class, "latency", "send"));
+        this.transferLatency = HdrHistogramReservoir.histogram(metrics,
+                name(ClientMessageHandler.class, "latency", "transfer"));
+        this.totalLatency = HdrHistogramReservoir.histogram(metrics,
+                name(ClientMessageHandler.class, "latency", "total"));
+        this.outOfSyncMessages = metrics.counter(name(ClientMessageHandler.class, "latency", "outOfSync"));
     }
 
     /**
@@ -51,37 +84,77 @@ public class ClientMessageHandler
         requireNonNull(msg, "Input object must not be null");
         LOGGER.trace("Processing message: {}", msg);
         if (msg.hasLoginResponse()) {
-            this.onLoginResponse(msg);
+            this.onLoginResponse(ctx, msg);
+        }
+        // Clock is only read for the messages that carry their send time
+        final long receiveTime = msg.hasSendTime() ? EpochClock.now() : 0L;
+        if (msg.hasSendTime() && receiveTime < msg.getSendTime()) {
+            this.outOfSyncMessages.inc();
         }
         if (msg.hasDataUpdate()) {
-            this.onDataUpdate(msg);
+            this.onDataUpdate(msg, msg.getDataUpdate(), receiveTime);
+        }
+        if (msg.hasDataUpdateBatch()) {
+            for (final DataUpdate update : msg.getDataUpdateBatch().getUpdatesList()) {
+                this.onDataUpdate(msg, update, receiveTime);
+            }
+        }
+        if (msg.hasMsgRefId() && !this.connection.onResponse(msg)) {
+            LOGGER.debug("Response {} does not match any pending request", msg.getMsgRefId());
         }
         LOGGER.trace("Done processing message {}", msg);
     }
 
     /**
-     * Process login response.
+     * Process login response, before it is handed to the login request: the negotiated compression format applies
+     * to the next messages of the channel.
      *
+     * @param ctx context
      * @param msg login response message
      */
-    private void onLoginResponse(final Message msg) {
+    private void onLoginResponse(final ChannelHandlerContext ctx, final Message msg) {
         if (msg.getLoginResponse().getValue() == LoginResponse.LoginResult.SUCCESS) {
-            LOGGER.info("User login succeeded - waiting for data...");
-            this.eventBus.post(new LoginSuccessEvent(msg.getMsgRefId()));
-        } else {
-            LOGGER.warn("Login failed ({}) - trying again in {}", msg.getLoginResponse().getValue());
-            this.eventBus.post(new LoginFailureEvent(msg.getMsgRefId()));
+            final DataCompressionFormat compression = msg.getLoginResponse().hasCompressionFormat()
+                    ? DataCompressionFormat.of(msg.getLoginResponse().getCompressionFormat()).orElse(null)
+                    : null;
+            LOGGER.debug("Message compression format: {}", compression);
+            MessageCompression.setFormat(ctx.channel(), compression);
         }
     }
 
     /**
-     * Process data update message.
+     * Process data update.
      *
-     * @param msg data update message
+     * @param msg         message the update belongs to
+     * @param update      data update
+     * @param receiveTime time the message was received, if it carries its send time
      */
-    private void onDataUpdate(final Message msg) {
-        LOGGER.info(msg.getDataUpdate().getLabel());
+    private void onDataUpdate(final Message msg, final DataUpdate update, final long receiveTime) {
+        if (LOGGER.isTraceEnabled()) {
+            // Label is only decoded when it is logged
+            LOGGER.trace(update.getLabelBytes().toString(this.encodingCharset));
+        }
+        if (update.hasSequence()) {
+            this.sequenceTracker.record(update.getStreamBytes(), update.getSequence());
+        }
         this.receivedDataUpdates.mark();
+        if (msg.hasSendTime() && update.hasOriginTime() && update.hasDispatchTime()) {
+            this.recordLatency(update, msg.getSendTime(), receiveTime);
+        }
+    }
+
+    /**
+     * Record latency of data update, stage by stage.
+     *
+     * @param update      data update, which carries its times
+     * @param sendTime    time the message of the update was encoded
+     * @param receiveTime time the message of the update was received
+     */
+    private void recordLatency(final DataUpdate update, final long sendTime, final long receiveTime) {
+        this.dispatchLatency.update(update.getDispatchTime() - update.getOriginTime());
+        this.sendLatency.update(sendTime - update.getDispatchTime());
+        this.transferLatency.update(receiveTime - sendTime);
+        this.totalLatency.update(receiveTime - update.getOriginTime());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package test.sdc.socket.client.interfacing;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Exponential backoff with full jitter: the delay before the n-th reconnection attempt is drawn uniformly between
+ * zero and the base delay times 2^n, up to the maximum delay. Clients that lost their connection at the same time,
+ * because the server restarted for instance, thus spread their attempts instead of coming back all at once.
+ */
+final class ReconnectBackoff {
+
+    private static final int MAX_EXPONENT = 30;
+
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param baseDelay delay ceiling of the first attempt
+     * @param maxDelay  maximum delay ceiling
+     */
+    ReconnectBackoff(final Duration baseDelay, final Duration maxDelay) {
+        requireNonNull(baseDelay, "Base delay must not be null");
+        requireNonNull(maxDelay, "Maximum delay must not be null");
+        if (baseDelay.isNegative() || baseDelay.isZero() || maxDelay.compareTo(baseDelay) < 0) {
+            throw new IllegalArgumentException("Base delay must be positive, and not exceed maximum delay");
+        }
+        this.baseDelayMillis = baseDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+    }
+
+    /**
+     * Get delay before next attempt.
+     *
+     * @return delay
+     */
+    Duration nextDelay() {
+        final int exponent = this.attempts.getAndUpdate(attempt -> Math.min(attempt + 1, MAX_EXPONENT));
+        final long ceiling = Math.min(this.maxDelayMillis, this.baseDelayMillis << exponent);
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1L));
+    }
+
+    /**
+     * Start again from the base delay, once connection has been established.
+     */
+    void reset() {
+        this.attempts.set(0);
+    }
+
+}
@@ -1,33 +1,30 @@
 package test.sdc.socket.client.session;
 
-import com.codahale.metrics.MetricRegistry;
-import com.codahale.metrics.Timer;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
+import com.google.protobuf.ByteString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import test.sdc.socket.client.event.ConnectionEstablishedEvent;
+import test.sdc.socket.client.event.ConnectionLossEvent;
 import test.sdc.socket.client.event.LoginFailureEvent;
 import test.sdc.socket.client.event.LoginSuccessEvent;
 import test.sdc.socket.client.interfacing.ClientConnection;
+import test.sdc.socket.common.interfacing.MessageCompression;
 import test.sdc.socket.model.protocol.MessageProtos.Message;
 import test.sdc.socket.model.protocol.login.LoginRequestProtos.LoginRequest;
+import test.sdc.socket.model.protocol.login.LoginResponseProtos.LoginResponse;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.nio.charset.Charset;
+import java.nio.channels.ClosedChannelException;
 import java.time.Duration;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-
-import static com.codahale.metrics.MetricRegistry.name;
+import java.util.concurrent.ScheduledFuture;
 
 /**
- * In charge of deciding when to send login requests.
+ * In charge of deciding when to send login requests: each time the connection is established, and some time after a
+ * failed login. Subscriptions, which resume streams from the last received data updates, follow successful logins.
  */
 public final class LoginManager {
 
@@ -37,29 +34,36 @@ public final class LoginManager {
 
     private final String login;
     private final String password;
+    private final Integer maxUpdateRate;
+    private final Charset encodingCharset;
+    private final MessageCompression messageCompression;
     private final ClientConnection connection;
     private final EventBus eventBus;
-    private final Timer responseTimer;
-    private final Map<String, Timer.Context> timerContexts = new HashMap<>();
-    private final Lock timerContextsLock = new ReentrantLock();
+    private ScheduledFuture<?> nextAttempt = null;
 
     /**
      * Constructor.
      *
-     * @param login      login
-     * @param password   password
-     * @param connection connection
-     * @param eventBus   event bus
+     * @param login              login
+     * @param password           password
+     * @param maxUpdateRate      maximum number of data updates per second (null if unlimited)
+     * @param encodingCharset    encoding character set of text fields
+     * @param messageCompression message compression, whose formats are advertised to the server
+     * @param connection         connection
+     * @param eventBus           event bus
      */
     @Inject
     public LoginManager(@Named("login") final String login, @Named("password") final String password,
-                        final ClientConnection connection, final EventBus eventBus,
-                        final MetricRegistry metrics) {
+                        @Named("maxUpdateRate") final Integer maxUpdateRate, final Charset encodingCharset,
+                        final MessageCompression messageCompression, final ClientConnection connection,
+                        final EventBus eventBus) {
         this.login = login;
         this.password = password;
+        this.maxUpdateRate = maxUpdateRate;
+        this.encodingCharset = encodingCharset;
+        this.messageCompression = messageCompression;
         this.connection = connection;
         this.eventBus = eventBus;
-        this.responseTimer = metrics.timer(name(LoginManager.class, "loginResponses"));
     }
 
     /**
@@ -93,82 +97,75 @@ public final class LoginManager {
     public void onLoginFailure(final LoginFailureEvent event) {
         try {
             LOGGER.trace("Login failure event: {}", event);
-            this.stopTimer(event.getMsgRefId());
-            Executors.newSingleThreadScheduledExecutor().schedule(this::sendLoginRequest,
-                    DELAY_UNTIL_NEXT_ATTEMPT.toMillis(), TimeUnit.MILLISECONDS);
+            synchronized (this) {
+                this.cancelNextAttempt();
+                this.nextAttempt = this.connection.schedule(this::sendLoginRequest, DELAY_UNTIL_NEXT_ATTEMPT);
+            }
         } catch (final Exception ex) {
             LOGGER.error("Failed to process login failure event", ex);
         }
     }
 
     /**
-     * Send login request to server.
-     */
-    private void sendLoginRequest() {
-        final Message request = Message.newBuilder()
-                .setMsgRefId(UUID.randomUUID().toString())
-                .setLoginRequest(LoginRequest.newBuilder()
-                        .setLogin("sdc")
-                        .setPassword("")
-                        .build())
-                .build();
-        LOGGER.debug("Sending login request to server: {}", request);
-        try {
-            this.startTimer(request.getMsgRefId());
-            this.connection.send(request);
-        } catch (final InterruptedException ex) {
-            LOGGER.warn("Login request emission failed: {}", ex.getMessage());
-            this.eventBus.post(new LoginFailureEvent(request.getMsgRefId()));
-        }
-    }
-
-    /**
-     * Listen to successful login events.
+     * Listen to connection loss events.
      *
-     * @param event successful login event
+     * @param event connection loss event
      */
     @Subscribe
-    public void onLoginSuccess(final LoginSuccessEvent event) {
+    public void onConnectionLoss(final ConnectionLossEvent event) {
         try {
-            LOGGER.trace("Login success event: {}", event);
-            this.stopTimer(event.getMsgRefId());
+            LOGGER.trace("Connection loss event: {}", event);
+            // Login is requested again once the connection is re-established
+            synchronized (this) {
+                this.cancelNextAttempt();
+            }
         } catch (final Exception ex) {
-            LOGGER.error("Failed to process login success event", ex);
+            LOGGER.error("Failed to process connection loss event", ex);
         }
     }
 
     /**
-     * Start response timer for request with input ID.
-     *
-     * @param msgRefId message reference ID that associates a response to a particular request
+     * Cancel next login attempt, if any.
      */
-    private void startTimer(final String msgRefId) {
-        this.timerContextsLock.lock();
-        try {
-            if (this.timerContexts.containsKey(msgRefId)) {
-                LOGGER.warn("A timer already exists for message reference {} - overwriting...", msgRefId);
-            }
-            this.timerContexts.put(msgRefId, this.responseTimer.time());
-        } finally {
-            this.timerContextsLock.unlock();
+    private void cancelNextAttempt() {
+        if (this.nextAttempt != null) {
+            this.nextAttempt.cancel(false);
+            this.nextAttempt = null;
         }
     }
 
     /**
-     * Stop response timer for request with input ID.
-     *
-     * @param msgRefId message reference ID that associates a response to a particular request
+     * Send login request to server.
      */
-    private void stopTimer(final String msgRefId) {
-        this.timerContextsLock.lock();
-        try {
-            if (this.timerContexts.containsKey(msgRefId)) {
-                this.timerContexts.get(msgRefId).stop();
-                this.timerContexts.remove(msgRefId);
-            }
-        } finally {
-            this.timerContextsLock.unlock();
+    private void sendLoginRequest() {
+        final LoginRequest.Builder loginRequest = LoginRequest.newBuilder()
+                .setLoginBytes(ByteString.copyFrom(this.login, this.encodingCharset))
+                .setPasswordBytes(ByteString.copyFrom(this.password, this.encodingCharset))
+                .addAllCompressionFormats(this.messageCompression.getFormatKeys());
+        if (this.maxUpdateRate != null) {
+            loginRequest.setMaxUpdateRate(this.maxUpdateRate);
         }
+        final Message request = Message.newBuilder()
+                .setMsgRefId(this.connection.nextMsgRefId())
+                .setLoginRequest(loginRequest.build())
+                .build();
+        LOGGER.debug("Sending login request to server: {}", request);
+        this.connection.request(request).whenComplete((response, cause) -> {
+            if (cause instanceof ClosedChannelException) {
+                LOGGER.debug("Login request {} was interrupted by connection loss", request.getMsgRefId());
+            } else if (cause != null) {
+                LOGGER.warn("Login request failed ({}) - trying again in {}", cause.toString(),
+                        DELAY_UNTIL_NEXT_ATTEMPT);
+                this.eventBus.post(new LoginFailureEvent(request.getMsgRefId()));
+            } else if (response.getLoginResponse().getValue() == LoginResponse.LoginResult.SUCCESS) {
+                LOGGER.info("User login succeeded - waiting for data...");
+                this.eventBus.post(new LoginSuccessEvent(response.getMsgRefId()));
+            } else {
+                LOGGER.warn("Login failed ({}) - trying again in {}", response.getLoginResponse().getValue(),
+                        DELAY_UNTIL_NEXT_ATTEMPT);
+                this.eventBus.post(new LoginFailureEvent(response.getMsgRefId()));
+            }
+        });
     }
 
-}
\ No newline at end of file
+}
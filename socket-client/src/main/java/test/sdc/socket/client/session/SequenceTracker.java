@@ -0,0 +1,147 @@
+package test.sdc.socket.client.session;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.protobuf.ByteString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keep track of the sequence numbers of received data updates, stream by stream, in order to detect missed or
+ * reordered updates, and to resume from the last received one after reconnecting.
+ * Updates that have been conflated by the server, as they were superseded by newer ones, are counted as missed, until
+ * they are received late. The last gaps of each stream are kept for that purpose, so that only updates that fill a
+ * counted gap are taken off the missed ones. Any other update that goes backwards means that the stream is sent again
+ * from an earlier position (snapshot of a stream that could not be resumed, or server restart): the position of the
+ * stream is reset to it.
+ * Streams are identified by their encoded name, so that names are not decoded for every update.
+ */
+public final class SequenceTracker {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SequenceTracker.class);
+
+    private static final int MAX_GAPS = 256;
+
+    private final Counter missedUpdates;
+    private final Counter outOfOrderUpdates;
+    private final Map<ByteString, StreamPosition> positions = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param metrics metric registry
+     */
+    @Inject
+    public SequenceTracker(final MetricRegistry metrics) {
+        this.missedUpdates = metrics.counter("missedDataUpdates");
+        this.outOfOrderUpdates = metrics.counter("outOfOrderDataUpdates");
+    }
+
+    /**
+     * Record reception of a data update.
+     *
+     * @param stream   encoded name of the stream, which may share the buffer of the received message
+     * @param sequence sequence number of the data update
+     */
+    public synchronized void record(final ByteString stream, final long sequence) {
+        final StreamPosition position = this.positions.get(stream);
+        if (position == null) {
+            // Copied, as the received message is released
+            this.positions.put(ByteString.copyFrom(stream.asReadOnlyByteBuffer()), new StreamPosition(sequence));
+            return;
+        }
+        final long lastSequence = position.lastSequence;
+        if (sequence > lastSequence + 1) {
+            LOGGER.debug("Missed data updates from sequence number {} to {}", lastSequence + 1, sequence - 1);
+            this.missedUpdates.inc(sequence - lastSequence - 1);
+            position.addGap(lastSequence + 1, sequence - 1);
+        } else if (sequence <= lastSequence) {
+            if (position.fillGap(sequence)) {
+                LOGGER.debug("Data update {} received after {}", sequence, lastSequence);
+                this.missedUpdates.dec();
+                this.outOfOrderUpdates.inc();
+                return;
+            }
+            LOGGER.debug("Data update {} received after {} - stream is sent again from there", sequence,
+                    lastSequence);
+            position.gaps.clear();
+        }
+        position.lastSequence = sequence;
+    }
+
+    /**
+     * Get sequence numbers of the last data updates received from the streams whose name starts with input prefix.
+     *
+     * @param prefix encoded prefix of stream names
+     * @return sequence numbers, by encoded stream name
+     */
+    public synchronized Map<ByteString, Long> getLastSequences(final ByteString prefix) {
+        final Map<ByteString, Long> lastSequences = new HashMap<>();
+        this.positions.forEach((stream, position) -> {
+            if (stream.startsWith(prefix)) {
+                lastSequences.put(stream, position.lastSequence);
+            }
+        });
+        return lastSequences;
+    }
+
+    /**
+     * Position of the client in a stream.
+     */
+    private static final class StreamPosition {
+
+        // Last sequence numbers of the gaps that have been counted as missed, by first sequence number
+        private final TreeMap<Long, Long> gaps = new TreeMap<>();
+        private long lastSequence;
+
+        /**
+         * Constructor.
+         *
+         * @param lastSequence sequence number of the first data update received from the stream
+         */
+        private StreamPosition(final long lastSequence) {
+            this.lastSequence = lastSequence;
+        }
+
+        /**
+         * Keep track of a gap that has been counted as missed. Oldest gaps are forgotten beyond a given number.
+         *
+         * @param firstSequence first missed sequence number
+         * @param lastSequence  last missed sequence number
+         */
+        private void addGap(final long firstSequence, final long lastSequence) {
+            this.gaps.put(firstSequence, lastSequence);
+            if (this.gaps.size() > MAX_GAPS) {
+                this.gaps.pollFirstEntry();
+            }
+        }
+
+        /**
+         * Take a late data update off the gaps that have been counted as missed.
+         *
+         * @param sequence sequence number of the data update
+         * @return data update belonged to a counted gap
+         */
+        private boolean fillGap(final long sequence) {
+            final Map.Entry<Long, Long> gap = this.gaps.floorEntry(sequence);
+            if (gap == null || sequence > gap.getValue()) {
+                return false;
+            }
+            this.gaps.remove(gap.getKey());
+            if (gap.getKey() < sequence) {
+                this.gaps.put(gap.getKey(), sequence - 1);
+            }
+            if (sequence < gap.getValue()) {
+                this.gaps.put(sequence + 1, gap.getValue());
+            }
+            return true;
+        }
+
+    }
+
+}
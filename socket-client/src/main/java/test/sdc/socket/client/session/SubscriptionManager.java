@@ -0,0 +1,207 @@
+package test.sdc.socket.client.session;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.protobuf.ByteString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.client.event.ConnectionLossEvent;
+import test.sdc.socket.client.event.LoginSuccessEvent;
+import test.sdc.socket.client.interfacing.ClientConnection;
+import test.sdc.socket.model.protocol.MessageProtos.Message;
+import test.sdc.socket.model.protocol.subscription.SubscribeRequestProtos.SubscribeRequest;
+import test.sdc.socket.model.protocol.subscription.SubscriptionResponseProtos.SubscriptionResponse.SubscriptionResult;
+import test.sdc.socket.model.protocol.subscription.UnsubscribeRequestProtos.UnsubscribeRequest;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In charge of the subscriptions of the client to data streams. Subscriptions are requested each time login succeeds,
+ * along with the position of the client in the matching streams, so that streams resume from the last received data
+ * update. Failed subscribe requests are sent again some time later.
+ */
+public final class SubscriptionManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubscriptionManager.class);
+
+    private static final Duration DELAY_UNTIL_NEXT_ATTEMPT = Duration.ofSeconds(1L);
+
+    private final Set<String> prefixes = new CopyOnWriteArraySet<>();
+    private final Charset encodingCharset;
+    private final ClientConnection connection;
+    private final SequenceTracker sequenceTracker;
+    private final EventBus eventBus;
+    private volatile boolean loggedIn = false;
+
+    /**
+     * Constructor.
+     *
+     * @param prefixes        comma-separated prefixes of the names of the streams the client subscribes to (empty
+     *                        for all streams, null for none)
+     * @param encodingCharset encoding character set of text fields
+     * @param connection      connection
+     * @param sequenceTracker tracker of received data updates
+     * @param eventBus        event bus
+     */
+    @Inject
+    public SubscriptionManager(@Named("subscriptions") final String prefixes, final Charset encodingCharset,
+                               final ClientConnection connection, final SequenceTracker sequenceTracker,
+                               final EventBus eventBus) {
+        if (prefixes != null) {
+            this.prefixes.addAll(Arrays.asList(prefixes.split(",", -1)));
+        }
+        this.encodingCharset = encodingCharset;
+        this.connection = connection;
+        this.sequenceTracker = sequenceTracker;
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Start listening to events.
+     */
+    public void startListening() {
+        this.eventBus.register(this);
+    }
+
+    /**
+     * Subscribe to the streams whose name starts with input prefix.
+     *
+     * @param prefix prefix of stream names (empty for all streams)
+     */
+    public void subscribe(final String prefix) {
+        requireNonNull(prefix, "Prefix must not be null");
+        if (this.prefixes.add(prefix) && this.loggedIn) {
+            this.sendSubscribeRequest(prefix);
+        }
+    }
+
+    /**
+     * Unsubscribe from the streams whose name starts with input prefix.
+     *
+     * @param prefix prefix of stream names, as subscribed
+     */
+    public void unsubscribe(final String prefix) {
+        requireNonNull(prefix, "Prefix must not be null");
+        if (this.prefixes.remove(prefix) && this.loggedIn) {
+            this.sendUnsubscribeRequest(prefix);
+        }
+    }
+
+    /**
+     * Listen to successful login events.
+     *
+     * @param event successful login event
+     */
+    @Subscribe
+    public void onLoginSuccess(final LoginSuccessEvent event) {
+        try {
+            LOGGER.trace("Login success event: {}", event);
+            this.loggedIn = true;
+            this.prefixes.forEach(this::sendSubscribeRequest);
+        } catch (final Exception ex) {
+            LOGGER.error("Failed to process login success event", ex);
+        }
+    }
+
+    /**
+     * Listen to connection loss events.
+     *
+     * @param event connection loss event
+     */
+    @Subscribe
+    public void onConnectionLoss(final ConnectionLossEvent event) {
+        try {
+            LOGGER.trace("Connection loss event: {}", event);
+            // Subscriptions are requested again once the client has logged in again
+            this.loggedIn = false;
+        } catch (final Exception ex) {
+            LOGGER.error("Failed to process connection loss event", ex);
+        }
+    }
+
+    /**
+     * Send subscribe request to server, along with the position of the client in the matching streams.
+     *
+     * @param prefix prefix of stream names
+     */
+    private void sendSubscribeRequest(final String prefix) {
+        final ByteString prefixBytes = ByteString.copyFrom(prefix, this.encodingCharset);
+        final SubscribeRequest.Builder subscribeRequest = SubscribeRequest.newBuilder()
+                .setPrefixBytes(prefixBytes);
+        this.sequenceTracker.getLastSequences(prefixBytes).forEach((stream, lastSequence) ->
+                subscribeRequest.addPositions(SubscribeRequest.StreamPosition.newBuilder()
+                        .setStreamBytes(stream)
+                        .setLastSequence(lastSequence)
+                        .build()));
+        final Message request = Message.newBuilder()
+                .setMsgRefId(this.connection.nextMsgRefId())
+                .setSubscribeRequest(subscribeRequest.build())
+                .build();
+        LOGGER.debug("Sending subscribe request to server: {}", request);
+        this.connection.request(request).whenComplete((response, cause) -> {
+            if (cause instanceof ClosedChannelException) {
+                LOGGER.debug("Subscribe request {} was interrupted by connection loss", request.getMsgRefId());
+            } else if (cause != null) {
+                LOGGER.warn("Subscription to '{}' failed ({}) - trying again in {}", prefix, cause.toString(),
+                        DELAY_UNTIL_NEXT_ATTEMPT);
+                this.scheduleSubscribeRequest(prefix);
+            } else if (response.getSubscriptionResponse().getValue() == SubscriptionResult.SUCCESS) {
+                LOGGER.info("Subscribed to '{}'", prefix);
+            } else {
+                // Not expected, as the server registers sessions before answering login requests
+                LOGGER.warn("Subscription to '{}' failed ({}) - trying again in {}", prefix,
+                        response.getSubscriptionResponse().getValue(), DELAY_UNTIL_NEXT_ATTEMPT);
+                this.scheduleSubscribeRequest(prefix);
+            }
+        });
+    }
+
+    /**
+     * Send subscribe request to server again some time later, unless the subscription has been cancelled or the
+     * client has to log in again in the meantime.
+     *
+     * @param prefix prefix of stream names
+     */
+    private void scheduleSubscribeRequest(final String prefix) {
+        this.connection.schedule(() -> {
+            if (this.loggedIn && this.prefixes.contains(prefix)) {
+                this.sendSubscribeRequest(prefix);
+            }
+        }, DELAY_UNTIL_NEXT_ATTEMPT);
+    }
+
+    /**
+     * Send unsubscribe request to server.
+     *
+     * @param prefix prefix of stream names
+     */
+    private void sendUnsubscribeRequest(final String prefix) {
+        final Message request = Message.newBuilder()
+                .setMsgRefId(this.connection.nextMsgRefId())
+                .setUnsubscribeRequest(UnsubscribeRequest.newBuilder()
+                        .setPrefixBytes(ByteString.copyFrom(prefix, this.encodingCharset))
+                        .build())
+                .build();
+        LOGGER.debug("Sending unsubscribe request to server: {}", request);
+        this.connection.request(request).whenComplete((response, cause) -> {
+            if (cause != null) {
+                LOGGER.warn("Unsubscription from '{}' failed ({})", prefix, cause.toString());
+            } else if (response.getSubscriptionResponse().getValue() == SubscriptionResult.SUCCESS) {
+                LOGGER.info("Unsubscribed from '{}'", prefix);
+            } else {
+                LOGGER.warn("Unsubscription from '{}' failed ({})", prefix,
+                        response.getSubscriptionResponse().getValue());
+            }
+        });
+    }
+
+}
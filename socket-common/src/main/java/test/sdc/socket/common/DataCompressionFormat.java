@@ -1,22 +1,30 @@
 package test.sdc.socket.common;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.TooLongFrameException;
 import io.netty.handler.codec.compression.JdkZlibDecoder;
 import io.netty.handler.codec.compression.JdkZlibEncoder;
+import io.netty.handler.codec.compression.Snappy;
 import io.netty.handler.codec.compression.SnappyFramedDecoder;
 import io.netty.handler.codec.compression.SnappyFramedEncoder;
+import io.netty.util.concurrent.FastThreadLocal;
 
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
- * Data compression formats used for client-server communication.
+ * Data compression formats used for client-server communication, either for the whole stream or message by message.
  */
 public enum DataCompressionFormat {
 
-    SNAPPY("SNAPPY") {
+    SNAPPY("SNAPPY", (byte) 1) {
         @Override
         public ChannelHandler newEncoder() {
             return new SnappyFramedEncoder();
@@ -26,8 +34,46 @@ public enum DataCompressionFormat {
         public ChannelHandler newDecoder() {
             return new SnappyFramedDecoder();
         }
+
+        @Override
+        public void compress(final ByteBuf in, final ByteBuf out) {
+            // Snappy blocks cannot back-reference more than 32 KiB, hence longer data is split into several blocks,
+            // each behind the length of its compressed form
+            while (in.isReadable()) {
+                final int blockLength = Math.min(in.readableBytes(), MAX_SNAPPY_BLOCK_SIZE);
+                final int lengthIndex = out.writerIndex();
+                out.writeShort(0);
+                new Snappy().encode(in.readSlice(blockLength), out, blockLength);
+                out.setShort(lengthIndex, out.writerIndex() - lengthIndex - 2);
+            }
+        }
+
+        @Override
+        public void decompress(final ByteBuf in, final ByteBuf out) {
+            while (in.isReadable()) {
+                if (in.readableBytes() < 2 || in.readableBytes() - 2 < in.getUnsignedShort(in.readerIndex())) {
+                    throw new DecoderException("Truncated SNAPPY data");
+                }
+                final ByteBuf block = in.readSlice(in.readUnsignedShort());
+                // Block starts with its uncompressed length, which the output buffer is sized after
+                long length = 0L;
+                for (int i = 0; i < MAX_PREAMBLE_SIZE && i < block.readableBytes(); i++) {
+                    final byte b = block.getByte(block.readerIndex() + i);
+                    length |= (long) (b & 0x7F) << (7 * i);
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                checkLength(length, out);
+                final int startIndex = out.writerIndex();
+                new Snappy().decode(block, out);
+                if (block.isReadable() || out.writerIndex() - startIndex != length) {
+                    throw new DecoderException("Truncated SNAPPY data");
+                }
+            }
+        }
     },
-    JDK_ZLIB("ZLIB") {
+    JDK_ZLIB("ZLIB", (byte) 2) {
         @Override
         public ChannelHandler newEncoder() {
             return new JdkZlibEncoder();
@@ -37,26 +83,112 @@ public enum DataCompressionFormat {
         public ChannelHandler newDecoder() {
             return new JdkZlibDecoder();
         }
+
+        @Override
+        public void compress(final ByteBuf in, final ByteBuf out) {
+            final Deflater deflater = DEFLATERS.get();
+            deflater.reset();
+            final int length = in.readableBytes();
+            if (in.hasArray()) {
+                deflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), length);
+            } else {
+                final byte[] input = new byte[length];
+                in.getBytes(in.readerIndex(), input);
+                deflater.setInput(input);
+            }
+            deflater.finish();
+            in.skipBytes(length);
+            final byte[] chunk = CHUNKS.get();
+            while (!deflater.finished()) {
+                out.writeBytes(chunk, 0, deflater.deflate(chunk));
+            }
+        }
+
+        @Override
+        public void decompress(final ByteBuf in, final ByteBuf out) {
+            final Inflater inflater = INFLATERS.get();
+            inflater.reset();
+            final int length = in.readableBytes();
+            if (in.hasArray()) {
+                inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), length);
+            } else {
+                final byte[] input = new byte[length];
+                in.getBytes(in.readerIndex(), input);
+                inflater.setInput(input);
+            }
+            in.skipBytes(length);
+            final byte[] chunk = CHUNKS.get();
+            try {
+                while (!inflater.finished()) {
+                    final int inflated = inflater.inflate(chunk);
+                    if (inflated == 0 && !inflater.finished()
+                            && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new DecoderException("Truncated ZLIB data");
+                    }
+                    checkLength(inflated, out);
+                    out.writeBytes(chunk, 0, inflated);
+                }
+            } catch (final DataFormatException ex) {
+                throw new DecoderException(ex);
+            }
+        }
+    };
+
+    private static final FastThreadLocal<Deflater> DEFLATERS = new FastThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater();
+        }
+
+        @Override
+        protected void onRemoval(final Deflater deflater) {
+            deflater.end();
+        }
+    };
+    private static final FastThreadLocal<Inflater> INFLATERS = new FastThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+
+        @Override
+        protected void onRemoval(final Inflater inflater) {
+            inflater.end();
+        }
+    };
+    private static final FastThreadLocal<byte[]> CHUNKS = new FastThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[8192];
+        }
     };
 
+    private static final int MAX_PREAMBLE_SIZE = 5;
+    private static final int MAX_SNAPPY_BLOCK_SIZE = Short.MAX_VALUE;
+
     private static final Map<String, DataCompressionFormat> KEY_INDEX = new HashMap<>();
+    private static final Map<Byte, DataCompressionFormat> ID_INDEX = new HashMap<>();
 
     static {
         for (final DataCompressionFormat instance : DataCompressionFormat.values()) {
             final String keyUC = instance.key == null ? null : instance.key.toUpperCase(Locale.ROOT);
             KEY_INDEX.put(keyUC, instance);
+            ID_INDEX.put(instance.id, instance);
         }
     }
 
     private final String key;
+    private final byte id;
 
     /**
      * Constructor.
      *
      * @param key configuration key
+     * @param id  identifier of the format in compressed messages (not 0)
      */
-    DataCompressionFormat(final String key) {
+    DataCompressionFormat(final String key, final byte id) {
         this.key = key;
+        this.id = id;
     }
 
     /**
@@ -72,6 +204,16 @@ public enum DataCompressionFormat {
                 : Optional.empty();
     }
 
+    /**
+     * Get instance from corresponding identifier in compressed messages.
+     *
+     * @param id identifier
+     * @return instance
+     */
+    public static Optional<DataCompressionFormat> of(final byte id) {
+        return Optional.ofNullable(ID_INDEX.get(id));
+    }
+
     /**
      * Get key used to identify format.
      *
@@ -81,6 +223,15 @@ public enum DataCompressionFormat {
         return this.key;
     }
 
+    /**
+     * Get identifier of the format in compressed messages.
+     *
+     * @return identifier (not 0)
+     */
+    public byte getId() {
+        return this.id;
+    }
+
     /**
      * Create new data encoder instance that handles data compression for current format.
      *
@@ -95,4 +246,36 @@ public enum DataCompressionFormat {
      */
     public abstract ChannelHandler newDecoder();
 
+    /**
+     * Compress readable bytes of input buffer as a single message, whatever its size.
+     *
+     * @param in  uncompressed data, which is fully read
+     * @param out buffer the compressed data is written to
+     */
+    public abstract void compress(ByteBuf in, ByteBuf out);
+
+    /**
+     * Decompress data that has been compressed with {@link #compress(ByteBuf, ByteBuf)}. Uncompressed data is
+     * bounded by the maximum capacity of the output buffer, which is checked before it grows.
+     *
+     * @param in  compressed data, which is fully read
+     * @param out buffer the uncompressed data is written to
+     * @throws DecoderException      data is corrupted
+     * @throws TooLongFrameException uncompressed data does not fit in the maximum capacity of the output buffer
+     */
+    public abstract void decompress(ByteBuf in, ByteBuf out);
+
+    /**
+     * Check that uncompressed data fits in the maximum capacity of the output buffer.
+     *
+     * @param length length of the uncompressed data that is about to be written
+     * @param out    buffer the uncompressed data is written to
+     * @throws TooLongFrameException uncompressed data does not fit
+     */
+    private static void checkLength(final long length, final ByteBuf out) {
+        if (length > out.maxWritableBytes()) {
+            throw new TooLongFrameException("Uncompressed data exceeds " + out.maxCapacity() + " bytes");
+        }
+    }
+
 }
\ No newline at end of file
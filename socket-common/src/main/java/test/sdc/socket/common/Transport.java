@@ -0,0 +1,229 @@
+package test.sdc.socket.common;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Network transports used for client-server communication, by order of preference.
+ */
+public enum Transport {
+
+    /**
+     * Linux io_uring transport, which is only available if Netty incubator transport is on the class path.
+     */
+    IO_URING("IO_URING") {
+        private static final String PACKAGE = "io.netty.incubator.channel.uring.";
+
+        @Override
+        public boolean isAvailable() {
+            try {
+                return (Boolean) Class.forName(PACKAGE + "IOUring").getMethod("isAvailable").invoke(null);
+            } catch (final ReflectiveOperationException | LinkageError ex) {
+                return false;
+            }
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(final int nThreads, final ThreadFactory threadFactory) {
+            try {
+                return Class.forName(PACKAGE + "IOUringEventLoopGroup").asSubclass(EventLoopGroup.class)
+                        .getConstructor(int.class, ThreadFactory.class)
+                        .newInstance(nThreads, threadFactory);
+            } catch (final ReflectiveOperationException ex) {
+                throw new IllegalStateException("io_uring transport is not available", ex);
+            }
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return loadClass(PACKAGE + "IOUringServerSocketChannel", ServerChannel.class);
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return loadClass(PACKAGE + "IOUringSocketChannel", SocketChannel.class);
+        }
+    },
+    EPOLL("EPOLL") {
+        @Override
+        public boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(final int nThreads, final ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(nThreads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return EpollSocketChannel.class;
+        }
+    },
+    NIO("NIO") {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public EventLoopGroup newEventLoopGroup(final int nThreads, final ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(nThreads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return NioSocketChannel.class;
+        }
+    };
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Transport.class);
+
+    private static final Map<String, Transport> KEY_INDEX = new HashMap<>();
+
+    static {
+        for (final Transport instance : Transport.values()) {
+            final String keyUC = instance.key == null ? null : instance.key.toUpperCase(Locale.ROOT);
+            KEY_INDEX.put(keyUC, instance);
+        }
+    }
+
+    private final String key;
+
+    /**
+     * Constructor.
+     *
+     * @param key configuration key
+     */
+    Transport(final String key) {
+        this.key = key;
+    }
+
+    /**
+     * Get instance from corresponding key (not case sensitive).
+     *
+     * @param key key
+     * @return instance
+     */
+    public static Optional<Transport> of(final String key) {
+        final String keyUC = key == null ? null : key.toUpperCase(Locale.ROOT);
+        return KEY_INDEX.containsKey(keyUC)
+                ? Optional.of(KEY_INDEX.get(keyUC))
+                : Optional.empty();
+    }
+
+    /**
+     * Select transport: requested one if it is available, otherwise the first available one by order of preference.
+     *
+     * @param key key of requested transport (null for automatic selection)
+     * @return transport
+     */
+    public static Transport select(final String key) {
+        if (key != null) {
+            final Optional<Transport> requested = of(key);
+            if (requested.isPresent() && requested.get().isAvailable()) {
+                return requested.get();
+            }
+            LOGGER.warn("Transport {} is not available - falling back to automatic selection", key);
+        }
+        final Transport transport = Arrays.stream(Transport.values())
+                .filter(Transport::isAvailable)
+                .findFirst()
+                .orElse(NIO);
+        LOGGER.info("Selected transport: {}", transport);
+        return transport;
+    }
+
+    /**
+     * Load class that is not necessarily on the class path.
+     *
+     * @param className  class name
+     * @param superClass expected super class
+     * @param <T>        expected super class
+     * @return class
+     */
+    private static <T> Class<? extends T> loadClass(final String className, final Class<T> superClass) {
+        try {
+            return Class.forName(className).asSubclass(superClass);
+        } catch (final ClassNotFoundException ex) {
+            throw new IllegalStateException(String.format("Class %s is not available", className), ex);
+        }
+    }
+
+    /**
+     * Get key used to identify transport.
+     *
+     * @return key used to identify transport
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Check if transport can be used on current platform.
+     *
+     * @return transport is available
+     */
+    public abstract boolean isAvailable();
+
+    /**
+     * Create new event loop group for current transport.
+     *
+     * @param nThreads number of threads (0 for default)
+     * @return event loop group
+     */
+    public EventLoopGroup newEventLoopGroup(final int nThreads) {
+        return this.newEventLoopGroup(nThreads, null);
+    }
+
+    /**
+     * Create new event loop group for current transport, whose threads are created by input factory.
+     *
+     * @param nThreads      number of threads (0 for default)
+     * @param threadFactory thread factory (null for default)
+     * @return event loop group
+     */
+    public abstract EventLoopGroup newEventLoopGroup(int nThreads, ThreadFactory threadFactory);
+
+    /**
+     * Get class of server channels for current transport.
+     *
+     * @return server channel class
+     */
+    public abstract Class<? extends ServerChannel> getServerChannelClass();
+
+    /**
+     * Get class of client channels for current transport.
+     *
+     * @return client channel class
+     */
+    public abstract Class<? extends SocketChannel> getSocketChannelClass();
+
+}
@@ -0,0 +1,142 @@
+package test.sdc.socket.common.buffer;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.internal.PlatformDependent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Creation and monitoring of the buffer allocators used by channels.
+ */
+public final class Allocators {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Allocators.class);
+
+    /**
+     * Private constructor (static methods only).
+     */
+    private Allocators() {
+    }
+
+    /**
+     * Create buffer allocator.
+     *
+     * @param pooled       buffers are pooled
+     * @param preferDirect buffers are direct (off-heap) when possible
+     * @param nbArenas     number of arenas of each kind, if pooled (null for Netty default)
+     * @param chunkSize    size of the chunks of memory allocated by arenas, if pooled: page size times a power of 2
+     *                     (null for Netty default)
+     * @return allocator
+     */
+    public static ByteBufAllocator newAllocator(final boolean pooled, final boolean preferDirect,
+                                                final Integer nbArenas, final Integer chunkSize) {
+        if (!pooled) {
+            LOGGER.info("Buffer allocator: unpooled, {}", preferDirect ? "direct" : "heap");
+            return new UnpooledByteBufAllocator(preferDirect);
+        }
+        final int pageSize = PooledByteBufAllocator.defaultPageSize();
+        final int maxOrder = chunkSize == null
+                ? PooledByteBufAllocator.defaultMaxOrder()
+                : toMaxOrder(pageSize, chunkSize);
+        final int nbHeapArenas = nbArenas == null ? PooledByteBufAllocator.defaultNumHeapArena() : nbArenas;
+        final int nbDirectArenas = nbArenas == null ? PooledByteBufAllocator.defaultNumDirectArena() : nbArenas;
+        LOGGER.info("Buffer allocator: pooled, {}, {} heap arenas, {} direct arenas, chunks of {} bytes",
+                preferDirect ? "direct" : "heap", nbHeapArenas, nbDirectArenas, pageSize << maxOrder);
+        return new PooledByteBufAllocator(preferDirect, nbHeapArenas, nbDirectArenas, pageSize, maxOrder,
+                PooledByteBufAllocator.defaultTinyCacheSize(), PooledByteBufAllocator.defaultSmallCacheSize(),
+                PooledByteBufAllocator.defaultNormalCacheSize(), PooledByteBufAllocator.defaultUseCacheForAllThreads());
+    }
+
+    /**
+     * Publish memory usage of allocator, and of direct memory in general.
+     * Pooled allocators also publish the usage of each arena. Netty does not expose thread cache hits, hence the
+     * number of thread caches and of allocations served by arenas are published instead.
+     * Metrics are only registered once per registry, so that this can be called for every connection: the ones of
+     * the first allocator are kept.
+     *
+     * @param allocator allocator
+     * @param metrics   metric registry
+     */
+    public static void registerMetrics(final ByteBufAllocator allocator, final MetricRegistry metrics) {
+        register(metrics, name(PlatformDependent.class, "usedDirectMemory"),
+                (Gauge<Long>) PlatformDependent::usedDirectMemory);
+        register(metrics, name(PlatformDependent.class, "maxDirectMemory"),
+                (Gauge<Long>) PlatformDependent::maxDirectMemory);
+        if (!(allocator instanceof ByteBufAllocatorMetricProvider)) {
+            return;
+        }
+        final ByteBufAllocatorMetric metric = ((ByteBufAllocatorMetricProvider) allocator).metric();
+        register(metrics, name(ByteBufAllocator.class, "usedDirectMemory"), (Gauge<Long>) metric::usedDirectMemory);
+        register(metrics, name(ByteBufAllocator.class, "usedHeapMemory"), (Gauge<Long>) metric::usedHeapMemory);
+        if (metric instanceof PooledByteBufAllocatorMetric) {
+            final PooledByteBufAllocatorMetric pooledMetric = (PooledByteBufAllocatorMetric) metric;
+            register(metrics, name(ByteBufAllocator.class, "threadLocalCaches"),
+                    (Gauge<Integer>) pooledMetric::numThreadLocalCaches);
+            registerArenaMetrics("directArenas", pooledMetric.directArenas(), metrics);
+            registerArenaMetrics("heapArenas", pooledMetric.heapArenas(), metrics);
+        }
+    }
+
+    /**
+     * Publish usage of each arena.
+     *
+     * @param kind    kind of arenas
+     * @param arenas  arenas
+     * @param metrics metric registry
+     */
+    private static void registerArenaMetrics(final String kind, final List<PoolArenaMetric> arenas,
+                                             final MetricRegistry metrics) {
+        for (int i = 0; i < arenas.size(); i++) {
+            final PoolArenaMetric arena = arenas.get(i);
+            final String prefix = name(ByteBufAllocator.class, kind, String.valueOf(i));
+            register(metrics, name(prefix, "activeAllocations"), (Gauge<Long>) arena::numActiveAllocations);
+            register(metrics, name(prefix, "activeBytes"), (Gauge<Long>) arena::numActiveBytes);
+            register(metrics, name(prefix, "allocations"), (Gauge<Long>) arena::numAllocations);
+            register(metrics, name(prefix, "hugeAllocations"), (Gauge<Long>) arena::numHugeAllocations);
+            register(metrics, name(prefix, "threadCaches"), (Gauge<Integer>) arena::numThreadCaches);
+        }
+    }
+
+    /**
+     * Register gauge, unless registry already has a metric with the same name.
+     *
+     * @param metrics metric registry
+     * @param name    name of the gauge
+     * @param gauge   gauge
+     */
+    private static void register(final MetricRegistry metrics, final String name, final Gauge<?> gauge) {
+        synchronized (metrics) {
+            if (!metrics.getGauges().containsKey(name)) {
+                metrics.register(name, gauge);
+            }
+        }
+    }
+
+    /**
+     * Get number of times the page size has to be doubled to get chunk size.
+     *
+     * @param pageSize  page size
+     * @param chunkSize chunk size
+     * @return max order
+     */
+    private static int toMaxOrder(final int pageSize, final int chunkSize) {
+        if (chunkSize < pageSize || Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Chunk size must be a power of 2, and at least %d bytes", pageSize));
+        }
+        return Integer.numberOfTrailingZeros(chunkSize) - Integer.numberOfTrailingZeros(pageSize);
+    }
+
+}
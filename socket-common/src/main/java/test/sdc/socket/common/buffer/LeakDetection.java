@@ -0,0 +1,143 @@
+package test.sdc.socket.common.buffer;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Configuration of the detection of buffers that are not released.
+ * Leaks are still reported by Netty, and they are counted as well, provided that the leak detectors have been installed
+ * first thing at start-up (see {@link #install()}).
+ */
+public final class LeakDetection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeakDetection.class);
+
+    private static final Meter LEAKS = new Meter();
+    private static volatile boolean installed = false;
+
+    /**
+     * Private constructor (static methods only).
+     */
+    private LeakDetection() {
+    }
+
+    /**
+     * Install leak detectors that count reported leaks. This has to be done first thing in the main method, before
+     * any buffer class is loaded, as Netty creates the leak detector of buffers when their class is initialized.
+     */
+    public static void install() {
+        ResourceLeakDetectorFactory.setResourceLeakDetectorFactory(new MeteredLeakDetectorFactory(LEAKS));
+        installed = true;
+    }
+
+    /**
+     * Configure leak detection, and publish the number of reported leaks. Detection level applies to the buffers
+     * that are allocated afterwards.
+     *
+     * @param level   detection level: DISABLED, SIMPLE or ADVANCED to sample buffers, PARANOID to track them all
+     *                (null to keep the level set by system property io.netty.leakDetection.level, or Netty default)
+     * @param metrics metric registry
+     */
+    public static void configure(final String level, final MetricRegistry metrics) {
+        if (level != null) {
+            ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.valueOf(level.toUpperCase(Locale.ROOT)));
+        }
+        LOGGER.info("Leak detection level: {}", ResourceLeakDetector.getLevel());
+        if (!installed) {
+            LOGGER.warn("Leak detectors have not been installed at start-up - leaks are not counted");
+        }
+        final String leaksName = name(ResourceLeakDetector.class, "leaks");
+        synchronized (metrics) {
+            if (!metrics.getMeters().containsKey(leaksName)) {
+                metrics.register(leaksName, LEAKS);
+            }
+        }
+    }
+
+    /**
+     * Factory of leak detectors that count reported leaks.
+     */
+    private static final class MeteredLeakDetectorFactory
+            extends ResourceLeakDetectorFactory {
+
+        private final Meter leaks;
+
+        /**
+         * Constructor.
+         *
+         * @param leaks meter of reported leaks
+         */
+        private MeteredLeakDetectorFactory(final Meter leaks) {
+            this.leaks = leaks;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public <T> ResourceLeakDetector<T> newResourceLeakDetector(final Class<T> resource,
+                                                                   final int samplingInterval) {
+            return new MeteredLeakDetector<>(resource, samplingInterval, this.leaks);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        @Deprecated
+        public <T> ResourceLeakDetector<T> newResourceLeakDetector(final Class<T> resource,
+                                                                   final int samplingInterval, final long maxActive) {
+            return this.newResourceLeakDetector(resource, samplingInterval);
+        }
+    }
+
+    /**
+     * Leak detector that counts reported leaks.
+     *
+     * @param <T> resource type
+     */
+    private static final class MeteredLeakDetector<T>
+            extends ResourceLeakDetector<T> {
+
+        private final Meter leaks;
+
+        /**
+         * Constructor.
+         *
+         * @param resource         resource type
+         * @param samplingInterval one resource out of this number is tracked (unless level is PARANOID)
+         * @param leaks            meter of reported leaks
+         */
+        private MeteredLeakDetector(final Class<T> resource, final int samplingInterval, final Meter leaks) {
+            super(resource, samplingInterval);
+            this.leaks = leaks;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void reportTracedLeak(final String resourceType, final String records) {
+            this.leaks.mark();
+            super.reportTracedLeak(resourceType, records);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void reportUntracedLeak(final String resourceType) {
+            this.leaks.mark();
+            super.reportUntracedLeak(resourceType);
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Allocation of network buffers.
+ */
+package test.sdc.socket.common.buffer;
@@ -0,0 +1,95 @@
+package test.sdc.socket.common.interfacing;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import com.google.protobuf.UnsafeByteOperations;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.DecoderException;
+
+import java.nio.ByteBuffer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decode protobuf messages straight from the NIO buffers of frames, without copying frames into arrays.
+ * String fields of decoded messages are views over the frame, which are only turned into strings when they are read.
+ * Hence, a decoded message is only valid while the next handlers read it: the frame is released as soon as they
+ * return, so a message that is kept longer has to be copied first (see {@link #detach(MessageLite)}).
+ */
+@Sharable
+public final class ByteBufProtobufDecoder
+        extends ChannelInboundHandlerAdapter {
+
+    private final Parser<? extends MessageLite> parser;
+
+    /**
+     * Constructor.
+     *
+     * @param prototype default instance of decoded messages
+     */
+    public ByteBufProtobufDecoder(final MessageLite prototype) {
+        this.parser = requireNonNull(prototype, "Prototype must not be null").getParserForType();
+    }
+
+    /**
+     * Copy message, so that it remains valid once the frame it was decoded from has been released.
+     *
+     * @param message decoded message
+     * @param <M>     message type
+     * @return copy of the message
+     * @throws InvalidProtocolBufferException message cannot be copied
+     */
+    @SuppressWarnings("unchecked")
+    public static <M extends MessageLite> M detach(final M message)
+            throws InvalidProtocolBufferException {
+        return (M) message.getParserForType().parseFrom(message.toByteArray());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        requireNonNull(ctx, "Channel handler context must not be null");
+        if (!(msg instanceof ByteBuf)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        final ByteBuf frame = (ByteBuf) msg;
+        try {
+            final MessageLite message;
+            try {
+                message = this.parser.parseFrom(newCodedInput(frame));
+            } catch (final InvalidProtocolBufferException ex) {
+                throw new DecoderException(ex);
+            }
+            ctx.fireChannelRead(message);
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * Create input stream over the readable bytes of a frame, whose string fields are views over the frame.
+     *
+     * @param frame frame
+     * @return input stream
+     */
+    private static CodedInputStream newCodedInput(final ByteBuf frame) {
+        ByteString bytes = ByteString.EMPTY;
+        for (final ByteBuffer buffer : frame.nioBuffers()) {
+            // Wrapped bytes are seen as immutable, which is a requirement for aliasing
+            bytes = bytes.concat(UnsafeByteOperations.unsafeWrap(buffer));
+        }
+        final CodedInputStream input = bytes.newCodedInput();
+        input.enableAliasing(true);
+        return input;
+    }
+
+}
@@ -0,0 +1,374 @@
+package test.sdc.socket.common.interfacing;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.MessageLite;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.common.metrics.HdrHistogramReservoir;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Instrumentation of the channels built by {@link LeChannelInitializer}, which can be switched on and off at runtime
+ * (see {@link ChannelInstrumentationMBean}). While it is off, channels do not hold any instrumentation handler, so
+ * that it costs nothing. While it is on, the following metrics are recorded, for all channels at once:
+ * <ul>
+ * <li>{@code bytesIn}, {@code bytesOut}: bytes read from and written to the transport (meters)</li>
+ * <li>{@code messagesIn}, {@code messagesOut}: messages handed to and written by the message handler (meters)</li>
+ * <li>{@code decodeTime}, {@code encodeTime}: time spent turning frames into messages and the other way around,
+ * i.e. (de)serialization and message compression (timers)</li>
+ * <li>{@code eventLoops.taskLatency}: time a task submitted to an event loop waits before it runs, probed every
+ * {@value #PROBE_PERIOD_MILLIS} ms on each event loop (histogram, in nanoseconds)</li>
+ * </ul>
+ * Number of tasks pending in the event loops of the channels is reported whether instrumentation is on or not
+ * ({@code eventLoops.pendingTasks} gauge), as it is only computed when read. Traffic of each channel is logged when it
+ * closes, at DEBUG level.
+ */
+public final class ChannelInstrumentation
+        implements ChannelInstrumentationMBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChannelInstrumentation.class);
+
+    private static final long PROBE_PERIOD_MILLIS = 100L;
+    private static final String TRAFFIC_HANDLER_NAME = "instrumentationTraffic";
+    private static final String FRAME_HANDLER_NAME = "instrumentationFrames";
+    private static final String MESSAGE_HANDLER_NAME = "instrumentationMessages";
+
+    private final ChannelGroup channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    private final Set<EventLoop> eventLoops = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService probeExecutor;
+    private final Meter bytesIn;
+    private final Meter bytesOut;
+    private final Meter messagesIn;
+    private final Meter messagesOut;
+    private final Timer decodeTime;
+    private final Timer encodeTime;
+    private final Histogram taskLatency;
+    private volatile boolean enabled = false;
+    private ScheduledFuture<?> probe = null;
+
+    /**
+     * Constructor.
+     *
+     * @param enabled channels are instrumented from the start
+     * @param metrics metric registry
+     */
+    public ChannelInstrumentation(final boolean enabled, final MetricRegistry metrics) {
+        requireNonNull(metrics, "Metric registry must not be null");
+        // Probe thread is only started once instrumentation is switched on
+        this.probeExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("event-loop-probe-%d")
+                .setDaemon(true)
+                .build());
+        this.bytesIn = metrics.meter(name(ChannelInstrumentation.class, "bytesIn"));
+        this.bytesOut = metrics.meter(name(ChannelInstrumentation.class, "bytesOut"));
+        this.messagesIn = metrics.meter(name(ChannelInstrumentation.class, "messagesIn"));
+        this.messagesOut = metrics.meter(name(ChannelInstrumentation.class, "messagesOut"));
+        this.decodeTime = HdrHistogramReservoir.timer(metrics, name(ChannelInstrumentation.class, "decodeTime"));
+        this.encodeTime = HdrHistogramReservoir.timer(metrics, name(ChannelInstrumentation.class, "encodeTime"));
+        this.taskLatency = HdrHistogramReservoir.histogram(metrics,
+                name(ChannelInstrumentation.class, "eventLoops", "taskLatency"));
+        metrics.register(name(ChannelInstrumentation.class, "eventLoops", "pendingTasks"),
+                (Gauge<Integer>) this::countPendingTasks);
+        this.setEnabled(enabled);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void setEnabled(final boolean enabled) {
+        if (enabled == this.enabled) {
+            return;
+        }
+        LOGGER.info("Channel instrumentation switched {}", enabled ? "on" : "off");
+        this.enabled = enabled;
+        if (enabled) {
+            this.probe = this.probeExecutor.scheduleAtFixedRate(this::probeEventLoops, PROBE_PERIOD_MILLIS,
+                    PROBE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        } else if (this.probe != null) {
+            this.probe.cancel(false);
+            this.probe = null;
+        }
+        // Pipelines are modified by the event loops of their channels, in the order switches happen
+        for (final Channel channel : this.channels) {
+            channel.eventLoop().execute(() -> this.update(channel.pipeline()));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getChannelCount() {
+        return this.channels.size();
+    }
+
+    /**
+     * Keep track of channel, and instrument it if instrumentation is on (event loop of the channel). Channel must
+     * already hold the handlers of {@link LeChannelInitializer}. It is forgotten as soon as it is closed.
+     *
+     * @param channel channel
+     */
+    void register(final Channel channel) {
+        requireNonNull(channel, "Channel must not be null");
+        this.channels.add(channel);
+        this.eventLoops.add(channel.eventLoop());
+        this.update(channel.pipeline());
+    }
+
+    /**
+     * Add instrumentation handlers to pipeline or remove them from it, depending on whether instrumentation is on
+     * (event loop of the channel).
+     *
+     * @param pipeline pipeline of the channel
+     */
+    private void update(final ChannelPipeline pipeline) {
+        final boolean instrumented = pipeline.get(TRAFFIC_HANDLER_NAME) != null;
+        if (this.enabled && !instrumented && pipeline.get(LeChannelInitializer.MESSAGE_HANDLER) != null) {
+            final ChannelTraffic traffic = new ChannelTraffic();
+            pipeline.addFirst(TRAFFIC_HANDLER_NAME, new TrafficHandler(traffic));
+            pipeline.addBefore(LeChannelInitializer.MESSAGE_COMPRESSION, FRAME_HANDLER_NAME, new FrameHandler(traffic));
+            pipeline.addBefore(LeChannelInitializer.MESSAGE_HANDLER, MESSAGE_HANDLER_NAME, new MessageHandler(traffic));
+        } else if (!this.enabled && instrumented) {
+            pipeline.remove(TRAFFIC_HANDLER_NAME);
+            pipeline.remove(FRAME_HANDLER_NAME);
+            pipeline.remove(MESSAGE_HANDLER_NAME);
+        }
+    }
+
+    /**
+     * Submit a task to each event loop, which records how long it waited before it ran (probe thread).
+     */
+    private void probeEventLoops() {
+        for (final EventLoop eventLoop : this.eventLoops) {
+            if (eventLoop.isShuttingDown()) {
+                this.eventLoops.remove(eventLoop);
+                continue;
+            }
+            final long submitTime = System.nanoTime();
+            try {
+                eventLoop.execute(() -> this.taskLatency.update(System.nanoTime() - submitTime));
+            } catch (final RejectedExecutionException ex) {
+                this.eventLoops.remove(eventLoop);
+            }
+        }
+    }
+
+    /**
+     * Count tasks pending in the event loops of the channels.
+     *
+     * @return number of pending tasks
+     */
+    private int countPendingTasks() {
+        int count = 0;
+        for (final EventLoop eventLoop : this.eventLoops) {
+            if (eventLoop instanceof SingleThreadEventExecutor) {
+                count += ((SingleThreadEventExecutor) eventLoop).pendingTasks();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Traffic of an instrumented channel, which is only accessed by its event loop.
+     */
+    private static final class ChannelTraffic {
+
+        private long bytesIn = 0L;
+        private long bytesOut = 0L;
+        private long messagesIn = 0L;
+        private long messagesOut = 0L;
+        private long decodeStartTime = 0L;
+        private long encodeStartTime = 0L;
+
+    }
+
+    /**
+     * Count bytes read from and written to the transport. It has to be the first handler of the pipeline.
+     */
+    private final class TrafficHandler
+            extends ChannelDuplexHandler {
+
+        private final ChannelTraffic traffic;
+
+        /**
+         * Constructor.
+         *
+         * @param traffic traffic of the channel
+         */
+        private TrafficHandler(final ChannelTraffic traffic) {
+            this.traffic = traffic;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+            requireNonNull(ctx, "Channel handler context must not be null");
+            if (msg instanceof ByteBuf) {
+                final int bytes = ((ByteBuf) msg).readableBytes();
+                this.traffic.bytesIn += bytes;
+                ChannelInstrumentation.this.bytesIn.mark(bytes);
+            }
+            ctx.fireChannelRead(msg);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+            requireNonNull(ctx, "Channel handler context must not be null");
+            final int bytes = msg instanceof ByteBuf ? ((ByteBuf) msg).readableBytes()
+                    : msg instanceof ByteBufHolder ? ((ByteBufHolder) msg).content().readableBytes()
+                    : 0;
+            this.traffic.bytesOut += bytes;
+            ChannelInstrumentation.this.bytesOut.mark(bytes);
+            ctx.write(msg, promise);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void channelInactive(final ChannelHandlerContext ctx)
+                throws Exception {
+            LOGGER.debug("Channel {} closed: {} bytes ({} messages) in, {} bytes ({} messages) out", ctx.channel(),
+                    this.traffic.bytesIn, this.traffic.messagesIn, this.traffic.bytesOut, this.traffic.messagesOut);
+            super.channelInactive(ctx);
+        }
+    }
+
+    /**
+     * Start timing the decoding of incoming frames, and stop timing the encoding of outgoing messages. It has to sit
+     * right before the message compression codec.
+     */
+    private final class FrameHandler
+            extends ChannelDuplexHandler {
+
+        private final ChannelTraffic traffic;
+
+        /**
+         * Constructor.
+         *
+         * @param traffic traffic of the channel
+         */
+        private FrameHandler(final ChannelTraffic traffic) {
+            this.traffic = traffic;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+            requireNonNull(ctx, "Channel handler context must not be null");
+            if (msg instanceof ByteBuf) {
+                this.traffic.decodeStartTime = System.nanoTime();
+            }
+            ctx.fireChannelRead(msg);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+            requireNonNull(ctx, "Channel handler context must not be null");
+            if (this.traffic.encodeStartTime != 0L) {
+                ChannelInstrumentation.this.encodeTime.update(System.nanoTime() - this.traffic.encodeStartTime,
+                        TimeUnit.NANOSECONDS);
+                this.traffic.encodeStartTime = 0L;
+            }
+            ctx.write(msg, promise);
+        }
+    }
+
+    /**
+     * Count messages handed to and written by the message handler, stop timing the decoding of incoming frames, and
+     * start timing the encoding of outgoing messages. It has to sit right before the message handler.
+     */
+    private final class MessageHandler
+            extends ChannelDuplexHandler {
+
+        private final ChannelTraffic traffic;
+
+        /**
+         * Constructor.
+         *
+         * @param traffic traffic of the channel
+         */
+        private MessageHandler(final ChannelTraffic traffic) {
+            this.traffic = traffic;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+            requireNonNull(ctx, "Channel handler context must not be null");
+            if (msg instanceof MessageLite) {
+                if (this.traffic.decodeStartTime != 0L) {
+                    ChannelInstrumentation.this.decodeTime.update(System.nanoTime() - this.traffic.decodeStartTime,
+                            TimeUnit.NANOSECONDS);
+                    this.traffic.decodeStartTime = 0L;
+                }
+                this.traffic.messagesIn++;
+                ChannelInstrumentation.this.messagesIn.mark();
+            }
+            ctx.fireChannelRead(msg);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+            requireNonNull(ctx, "Channel handler context must not be null");
+            if (msg instanceof MessageLite || msg instanceof EncodedMessage) {
+                this.traffic.messagesOut++;
+                ChannelInstrumentation.this.messagesOut.mark();
+                this.traffic.encodeStartTime = System.nanoTime();
+            }
+            ctx.write(msg, promise);
+        }
+    }
+
+}
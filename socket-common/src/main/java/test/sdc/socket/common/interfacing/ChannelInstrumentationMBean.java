@@ -0,0 +1,29 @@
+package test.sdc.socket.common.interfacing;
+
+/**
+ * Management interface of the channel instrumentation.
+ */
+public interface ChannelInstrumentationMBean {
+
+    /**
+     * Check if channels are instrumented.
+     *
+     * @return channels are instrumented
+     */
+    boolean isEnabled();
+
+    /**
+     * Switch instrumentation of the channels on or off, including the channels that are already open.
+     *
+     * @param enabled channels are instrumented
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Get number of open channels, whether they are instrumented or not.
+     *
+     * @return number of channels
+     */
+    int getChannelCount();
+
+}
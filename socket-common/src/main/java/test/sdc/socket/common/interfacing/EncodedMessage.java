@@ -0,0 +1,126 @@
+package test.sdc.socket.common.interfacing;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.DefaultByteBufHolder;
+import io.netty.handler.codec.EncoderException;
+
+import java.io.IOException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Message that has already been serialized and length-prefixed, so that it can be written as is to any number of
+ * channels. Protobuf and framing encoders of the pipeline let it through untouched.
+ */
+public final class EncodedMessage
+        extends DefaultByteBufHolder {
+
+    /**
+     * Constructor.
+     *
+     * @param frame length-prefixed serialized message
+     */
+    public EncodedMessage(final ByteBuf frame) {
+        super(frame);
+    }
+
+    /**
+     * Serialize and length-prefix message into a single buffer, the same way the channel pipeline would.
+     * Message is not compressed: channels that negotiated message compression compress it on their own.
+     *
+     * @param allocator buffer allocator
+     * @param message   message
+     * @return frame, which has to be released by the caller
+     */
+    public static ByteBuf encode(final ByteBufAllocator allocator, final MessageLite message) {
+        requireNonNull(allocator, "Buffer allocator must not be null");
+        requireNonNull(message, "Input message must not be null");
+        final int bodySize = 1 + message.getSerializedSize();
+        final int frameSize = CodedOutputStream.computeUInt32SizeNoTag(bodySize) + bodySize;
+        final ByteBuf frame = allocator.buffer(frameSize, frameSize);
+        try {
+            final CodedOutputStream output = CodedOutputStream.newInstance(frame.nioBuffer(frame.writerIndex(), frameSize));
+            output.writeUInt32NoTag(bodySize);
+            output.writeRawByte(MessageCompression.UNCOMPRESSED);
+            message.writeTo(output);
+            output.flush();
+            frame.writerIndex(frame.writerIndex() + frameSize);
+            return frame;
+        } catch (final IOException ex) {
+            frame.release();
+            throw new EncoderException(ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EncodedMessage replace(final ByteBuf content) {
+        return new EncodedMessage(content);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EncodedMessage copy() {
+        return (EncodedMessage) super.copy();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EncodedMessage duplicate() {
+        return (EncodedMessage) super.duplicate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EncodedMessage retainedDuplicate() {
+        return (EncodedMessage) super.retainedDuplicate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EncodedMessage retain() {
+        super.retain();
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EncodedMessage retain(final int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EncodedMessage touch() {
+        super.touch();
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EncodedMessage touch(final Object hint) {
+        super.touch(hint);
+        return this;
+    }
+
+}
@@ -0,0 +1,28 @@
+package test.sdc.socket.common.interfacing;
+
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Unwrap pre-framed messages, so that they reach the transport as plain buffers.
+ * It has to sit right behind the frame encoder in the outbound direction.
+ */
+@Sharable
+public final class EncodedMessageForwarder
+        extends ChannelOutboundHandlerAdapter {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+        if (msg instanceof EncodedMessage) {
+            ctx.write(((EncodedMessage) msg).content(), promise);
+        } else {
+            ctx.write(msg, promise);
+        }
+    }
+
+}
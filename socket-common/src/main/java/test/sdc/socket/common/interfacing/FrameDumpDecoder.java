@@ -0,0 +1,117 @@
+package test.sdc.socket.common.interfacing;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.TextFormat;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.DecoderException;
+import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.model.protocol.MessageProtos.Message;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decode a dump of the frame recorder (see {@link FrameRecorder#dump(String)}) offline, and print its frames one per
+ * line: sequence number, time, direction, channel, length, then decoded message. Frames that were truncated when
+ * they were recorded are not decoded.
+ */
+public final class FrameDumpDecoder {
+
+    private final MessageCompression compression;
+
+    /**
+     * Constructor.
+     */
+    public FrameDumpDecoder() {
+        // Frames may have been compressed with any of the formats
+        this.compression = new MessageCompression(Arrays.stream(DataCompressionFormat.values())
+                .map(DataCompressionFormat::getKey)
+                .collect(Collectors.joining(",")), 0, Integer.MAX_VALUE, new MetricRegistry());
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args start-up arguments: path of the dump file
+     */
+    public static void main(final String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: FrameDumpDecoder <dump file>");
+            System.exit(2);
+        }
+        try (InputStream input = Files.newInputStream(Paths.get(args[0]))) {
+            new FrameDumpDecoder().decode(input, System.out);
+        } catch (final IOException ex) {
+            System.err.println("Frame dump cannot be read: " + ex);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Decode dump, and print its frames.
+     *
+     * @param input  dump
+     * @param output output of the frames
+     * @throws IOException dump cannot be read, or is not a frame dump
+     */
+    public void decode(final InputStream input, final PrintStream output)
+            throws IOException {
+        requireNonNull(input, "Input stream must not be null");
+        requireNonNull(output, "Output stream must not be null");
+        final DataInputStream frames = new DataInputStream(new BufferedInputStream(input));
+        if (frames.readInt() != FrameRecorder.MAGIC) {
+            throw new IOException("Not a frame dump");
+        }
+        while (true) {
+            final long sequence;
+            try {
+                sequence = frames.readLong();
+            } catch (final EOFException ex) {
+                return;
+            }
+            final Instant time = Instant.ofEpochSecond(0L, frames.readLong());
+            final String direction = frames.readByte() == FrameRecorder.INBOUND ? "IN " : "OUT";
+            final String channel = frames.readUTF();
+            final int length = frames.readInt();
+            final byte[] bytes = new byte[frames.readInt()];
+            frames.readFully(bytes);
+            output.printf("#%d %s %s [%s] %d bytes: %s%n", sequence, time, direction, channel, length,
+                    bytes.length < length ? "(truncated)" : this.decodeMessage(bytes));
+        }
+    }
+
+    /**
+     * Decode message of a frame.
+     *
+     * @param bytes frame, behind its compression header
+     * @return message, as text
+     */
+    private String decodeMessage(final byte[] bytes) {
+        ByteBuf body = null;
+        try {
+            body = this.compression.decode(UnpooledByteBufAllocator.DEFAULT, Unpooled.wrappedBuffer(bytes));
+            return TextFormat.shortDebugString(Message.parseFrom(body.nioBuffer()));
+        } catch (final DecoderException | InvalidProtocolBufferException ex) {
+            return "(undecodable: " + ex.getMessage() + ")";
+        } finally {
+            if (body != null) {
+                body.release();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+package test.sdc.socket.common.interfacing;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.common.metrics.EpochClock;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Fixed-size ring of the most recent frames of all channels, with their time, direction and channel, so that the
+ * traffic that led to an issue can be looked at afterwards (see {@link FrameRecordingHandler}). Slots are allocated
+ * once, so that recording a frame only copies its bytes into the next slot, up to a maximum size. Frames are recorded
+ * as the message compression codec sees them: behind their compression header, without their length prefix, and
+ * after stream compression and SSL have been undone.
+ * Frames are recorded by the event loops of the channels, concurrently, and dumped on demand to a file (see
+ * {@link FrameRecorderMBean}). Writers claim their slot before recording into it: a frame whose slot is still being
+ * recorded by another writer, a whole ring earlier, is dropped. Slots are read through atomic arrays, as a sequence
+ * lock, so that a slot that is being recorded while it is dumped is left out of the dump instead of being torn.
+ */
+public final class FrameRecorder
+        implements FrameRecorderMBean {
+
+    /**
+     * Direction of frames read from the channel.
+     */
+    public static final byte INBOUND = 0;
+    /**
+     * Direction of frames written to the channel.
+     */
+    public static final byte OUTBOUND = 1;
+
+    static final int MAGIC = 0x46524D31;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FrameRecorder.class);
+
+    private static final long NONE = -1L;
+    private static final long RECORDING = -2L;
+
+    private final int capacity;
+    private final int maxFrameSize;
+    private final int frameWords;
+    // Bytes of the frames, 8 by 8 (big-endian)
+    private final AtomicLongArray data;
+    private final AtomicLongArray times;
+    private final AtomicIntegerArray lengths;
+    private final AtomicIntegerArray directions;
+    private final AtomicReferenceArray<String> channels;
+    private final AtomicLongArray sequences;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param capacity     number of frames to keep (power of 2)
+     * @param maxFrameSize number of bytes kept per frame, beyond which frames are truncated
+     */
+    public FrameRecorder(final int capacity, final int maxFrameSize) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of 2");
+        }
+        if (maxFrameSize <= 0) {
+            throw new IllegalArgumentException("Maximum frame size must be positive");
+        }
+        this.capacity = capacity;
+        this.maxFrameSize = maxFrameSize;
+        this.frameWords = (maxFrameSize + Long.BYTES - 1) / Long.BYTES;
+        this.data = new AtomicLongArray(capacity * this.frameWords);
+        this.times = new AtomicLongArray(capacity);
+        this.lengths = new AtomicIntegerArray(capacity);
+        this.directions = new AtomicIntegerArray(capacity);
+        this.channels = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.sequences.set(i, NONE);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxFrameSize() {
+        return this.maxFrameSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRecordedFrames() {
+        return this.nextSequence.get();
+    }
+
+    /**
+     * Record frame, in place of the oldest one, unless its slot is still being recorded by another writer.
+     *
+     * @param channel   channel of the frame
+     * @param direction direction of the frame ({@link #INBOUND} or {@link #OUTBOUND})
+     * @param frame     buffer that holds the frame, which is left untouched
+     * @param index     index of the frame in the buffer
+     * @param length    number of bytes of the frame
+     */
+    public void record(final Channel channel, final byte direction, final ByteBuf frame, final int index,
+                       final int length) {
+        final long sequence = this.nextSequence.getAndIncrement();
+        final int slot = (int) sequence & (this.capacity - 1);
+        // Slot is claimed while it is written, so that other writers leave it alone, and dumps leave it out
+        final long previousSequence = this.sequences.get(slot);
+        if (previousSequence == RECORDING || previousSequence > sequence
+                || !this.sequences.compareAndSet(slot, previousSequence, RECORDING)) {
+            return;
+        }
+        this.times.lazySet(slot, EpochClock.now());
+        this.lengths.lazySet(slot, length);
+        this.directions.lazySet(slot, direction);
+        // Short text of channel identifiers is computed once per channel, and cached by Netty
+        this.channels.lazySet(slot, channel.id().asShortText());
+        final int recordedLength = Math.min(length, this.maxFrameSize);
+        final int firstWord = slot * this.frameWords;
+        int offset = 0;
+        for (; offset + Long.BYTES <= recordedLength; offset += Long.BYTES) {
+            this.data.lazySet(firstWord + offset / Long.BYTES, frame.getLong(index + offset));
+        }
+        if (offset < recordedLength) {
+            long word = 0L;
+            for (int i = offset; i < recordedLength; i++) {
+                word |= (frame.getByte(index + i) & 0xFFL) << (Long.SIZE - Byte.SIZE * (i - offset + 1));
+            }
+            this.data.lazySet(firstWord + offset / Long.BYTES, word);
+        }
+        this.sequences.set(slot, sequence);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String dump(final String path)
+            throws IOException {
+        requireNonNull(path, "Path must not be null");
+        final Path file = Paths.get(path);
+        final int count;
+        try (OutputStream output = Files.newOutputStream(file)) {
+            count = this.dump(output);
+        }
+        final String summary = count + " frames written to " + file.toAbsolutePath();
+        LOGGER.info("Frame dump: {}", summary);
+        return summary;
+    }
+
+    /**
+     * Write the frames that are currently kept, from the oldest to the most recent one, behind {@link #MAGIC}.
+     * Each frame is written as its sequence number, time (nanoseconds since the epoch), direction, channel, length,
+     * number of recorded bytes, then recorded bytes.
+     *
+     * @param output output stream, which is left open
+     * @return number of frames
+     * @throws IOException frames cannot be written
+     */
+    int dump(final OutputStream output)
+            throws IOException {
+        final long lastSequence = this.nextSequence.get() - 1;
+        final long firstSequence = Math.max(0L, lastSequence - this.capacity + 1);
+        final byte[] bytes = new byte[this.maxFrameSize];
+        final DataOutputStream frames = new DataOutputStream(new BufferedOutputStream(output));
+        frames.writeInt(MAGIC);
+        int count = 0;
+        for (long sequence = firstSequence; sequence <= lastSequence; sequence++) {
+            final int slot = (int) sequence & (this.capacity - 1);
+            if (this.sequences.get(slot) != sequence) {
+                continue;
+            }
+            final long time = this.times.get(slot);
+            final int length = this.lengths.get(slot);
+            final byte direction = (byte) this.directions.get(slot);
+            final String channel = this.channels.get(slot);
+            final int recordedLength = Math.min(length, this.maxFrameSize);
+            final int firstWord = slot * this.frameWords;
+            for (int offset = 0; offset < recordedLength; offset += Long.BYTES) {
+                final long word = this.data.get(firstWord + offset / Long.BYTES);
+                for (int i = offset; i < Math.min(offset + Long.BYTES, recordedLength); i++) {
+                    bytes[i] = (byte) (word >>> (Long.SIZE - Byte.SIZE * (i - offset + 1)));
+                }
+            }
+            if (this.sequences.get(slot) != sequence) {
+                // Slot has been recorded again in the meantime
+                continue;
+            }
+            frames.writeLong(sequence);
+            frames.writeLong(time);
+            frames.writeByte(direction);
+            frames.writeUTF(channel);
+            frames.writeInt(length);
+            frames.writeInt(recordedLength);
+            frames.write(bytes, 0, recordedLength);
+            count++;
+        }
+        frames.flush();
+        return count;
+    }
+
+}
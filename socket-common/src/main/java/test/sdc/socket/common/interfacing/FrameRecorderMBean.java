@@ -0,0 +1,42 @@
+package test.sdc.socket.common.interfacing;
+
+import java.io.IOException;
+
+/**
+ * Management interface of the frame recorder.
+ */
+public interface FrameRecorderMBean {
+
+    /**
+     * Get number of frames the recorder keeps.
+     *
+     * @return number of frames
+     */
+    int getCapacity();
+
+    /**
+     * Get number of bytes kept per frame, beyond which frames are truncated.
+     *
+     * @return number of bytes
+     */
+    int getMaxFrameSize();
+
+    /**
+     * Get number of frames recorded since start-up.
+     *
+     * @return number of frames
+     */
+    long getRecordedFrames();
+
+    /**
+     * Write the frames that are currently kept to a file, from the oldest to the most recent one. File can be read
+     * offline by {@link FrameDumpDecoder}.
+     *
+     * @param path path of the file, which is replaced if it exists
+     * @return summary of the dump
+     * @throws IOException file cannot be written
+     */
+    String dump(String path)
+            throws IOException;
+
+}
@@ -0,0 +1,67 @@
+package test.sdc.socket.common.interfacing;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Record incoming and outgoing frames (see {@link FrameRecorder}).
+ * It has to sit between the frame codecs and the message compression codec, where frames are seen behind their
+ * compression header: length prefix of pre-framed messages is skipped.
+ */
+@Sharable
+public final class FrameRecordingHandler
+        extends ChannelDuplexHandler {
+
+    private final FrameRecorder recorder;
+
+    /**
+     * Constructor.
+     *
+     * @param recorder frame recorder
+     */
+    public FrameRecordingHandler(final FrameRecorder recorder) {
+        this.recorder = requireNonNull(recorder, "Frame recorder must not be null");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        requireNonNull(ctx, "Channel handler context must not be null");
+        if (msg instanceof ByteBuf) {
+            final ByteBuf frame = (ByteBuf) msg;
+            this.recorder.record(ctx.channel(), FrameRecorder.INBOUND, frame, frame.readerIndex(),
+                    frame.readableBytes());
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+        requireNonNull(ctx, "Channel handler context must not be null");
+        if (msg instanceof ByteBuf) {
+            final ByteBuf frame = (ByteBuf) msg;
+            this.recorder.record(ctx.channel(), FrameRecorder.OUTBOUND, frame, frame.readerIndex(),
+                    frame.readableBytes());
+        } else if (msg instanceof EncodedMessage) {
+            final ByteBuf frame = ((EncodedMessage) msg).content();
+            int messageIndex = frame.readerIndex();
+            while (frame.getByte(messageIndex++) < 0) {
+                // Skip length prefix
+            }
+            this.recorder.record(ctx.channel(), FrameRecorder.OUTBOUND, frame, messageIndex,
+                    frame.writerIndex() - messageIndex);
+        }
+        ctx.write(msg, promise);
+    }
+
+}
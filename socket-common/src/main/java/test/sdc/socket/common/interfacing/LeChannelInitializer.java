@@ -1,97 +1,122 @@
 package test.sdc.socket.common.interfacing;
 
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.protobuf.ProtobufDecoder;
-import io.netty.handler.codec.protobuf.ProtobufEncoder;
 import io.netty.handler.codec.protobuf.ProtobufVarint32FrameDecoder;
 import io.netty.handler.codec.protobuf.ProtobufVarint32LengthFieldPrepender;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
-import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.ssl.SslSupport;
 import test.sdc.socket.model.protocol.MessageProtos.Message;
 
 import java.net.InetSocketAddress;
-import java.nio.charset.Charset;
 
 import static java.util.Objects.requireNonNull;
 
 public class LeChannelInitializer
-        extends ChannelInitializer<SocketChannel> {
+        extends ChannelInitializer<Channel> {
 
-    private final SslContext sslContext;
+    static final String MESSAGE_COMPRESSION = "messageCompression";
+    static final String MESSAGE_HANDLER = "messageHandler";
+
+    // Logger of the traffic logging handler, which is only added to channels when it logs something
+    private static final Logger TRAFFIC_LOGGER = LoggerFactory.getLogger(LoggingHandler.class);
+
+    private final SslSupport sslSupport;
     private final SimpleChannelInboundHandler<Message> messageHandler;
-    private final Charset encodingCharset;
     private final DataCompressionFormat compression;
+    private final MessageCompressionCodec messageCompressionCodec;
+    private final ChannelInstrumentation instrumentation;
+    private final FrameRecordingHandler frameRecordingHandler;
     private final InetSocketAddress serverAddress;
 
     /**
      * Constructor.
      *
-     * @param sslContext      SSL context (null if irrelevant)
-     * @param messageHandler  message handler
-     * @param encodingCharset encoding character set
-     * @param compression     data compression format (optional)
-     * @param serverAddress   server address (null on server side)
+     * @param sslSupport         SSL support (null if SSL is disabled)
+     * @param messageHandler     message handler
+     * @param compression        stream compression format (optional)
+     * @param messageCompression message compression
+     * @param instrumentation    channel instrumentation (null if channels are never instrumented)
+     * @param frameRecorder      frame recorder (null if frames are not recorded)
+     * @param serverAddress      server address (null on server side)
      */
-    private LeChannelInitializer(final SslContext sslContext,
+    private LeChannelInitializer(final SslSupport sslSupport,
                                  final SimpleChannelInboundHandler<Message> messageHandler,
-                                 final Charset encodingCharset,
                                  final DataCompressionFormat compression,
+                                 final MessageCompression messageCompression,
+                                 final ChannelInstrumentation instrumentation,
+                                 final FrameRecorder frameRecorder,
                                  final InetSocketAddress serverAddress) {
         super();
-        this.sslContext = sslContext;
+        this.sslSupport = sslSupport;
         this.messageHandler = messageHandler;
-        this.encodingCharset = encodingCharset;
         this.compression = compression;
+        this.messageCompressionCodec = new MessageCompressionCodec(messageCompression);
+        this.instrumentation = instrumentation;
+        this.frameRecordingHandler = frameRecorder == null ? null : new FrameRecordingHandler(frameRecorder);
         this.serverAddress = serverAddress;
     }
 
-    public static LeChannelInitializer forClient(final SslContext sslContext,
+    public static LeChannelInitializer forClient(final SslSupport sslSupport,
                                                  final SimpleChannelInboundHandler<Message> messageHandler,
-                                                 final Charset encodingCharset,
                                                  final DataCompressionFormat compression,
+                                                 final MessageCompression messageCompression,
+                                                 final ChannelInstrumentation instrumentation,
+                                                 final FrameRecorder frameRecorder,
                                                  final InetSocketAddress serverAddress) {
-        return new LeChannelInitializer(sslContext, messageHandler, encodingCharset, compression, serverAddress);
+        return new LeChannelInitializer(sslSupport, messageHandler, compression, messageCompression,
+                instrumentation, frameRecorder, serverAddress);
     }
 
-    public static LeChannelInitializer forServer(final SslContext sslContext,
+    public static LeChannelInitializer forServer(final SslSupport sslSupport,
                                                  final SimpleChannelInboundHandler<Message> messageHandler,
-                                                 final Charset encodingCharset,
-                                                 final DataCompressionFormat compression) {
-        return new LeChannelInitializer(sslContext, messageHandler, encodingCharset, compression, null);
+                                                 final DataCompressionFormat compression,
+                                                 final MessageCompression messageCompression,
+                                                 final ChannelInstrumentation instrumentation,
+                                                 final FrameRecorder frameRecorder) {
+        return new LeChannelInitializer(sslSupport, messageHandler, compression, messageCompression,
+                instrumentation, frameRecorder, null);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public void initChannel(final SocketChannel ch) {
-        requireNonNull(ch, "Socket channel must not be null");
+    public void initChannel(final Channel ch) {
+        requireNonNull(ch, "Channel must not be null");
         final ChannelPipeline pipeline = ch.pipeline();
-        if (this.sslContext != null) {
-            final SslHandler sslHandler = this.serverAddress == null
-                    ? this.sslContext.newHandler(ch.alloc())
-                    : this.sslContext.newHandler(ch.alloc(), this.serverAddress.getHostString(), this.serverAddress.getPort());
-            pipeline.addLast(sslHandler);
+        if (this.sslSupport != null) {
+            this.sslSupport.addHandlers(ch, this.serverAddress);
+        }
+        if (TRAFFIC_LOGGER.isTraceEnabled()) {
+            pipeline.addLast(new LoggingHandler(LogLevel.TRACE));
         }
-        pipeline.addLast(new LoggingHandler(LogLevel.TRACE));
         if (this.compression != null) {
             pipeline.addLast(this.compression.newEncoder());
             pipeline.addLast(this.compression.newDecoder());
         }
         pipeline
-                // Outgoing messages (encoders)
+                // Framing - pre-framed messages skip the frame encoder
+                .addLast("encodedMessageForwarder", new EncodedMessageForwarder())
                 .addLast("frameEncoder", new ProtobufVarint32LengthFieldPrepender())
-                .addLast("protobufEncoder", new ProtobufEncoder())
-                // Incoming messages (decoders + handlers)
-                .addLast("frameDecoder", new ProtobufVarint32FrameDecoder())
-                .addLast("protobufDecoder", new ProtobufDecoder(Message.getDefaultInstance()))
-                .addLast("messageHandler", this.messageHandler);
+                .addLast("frameDecoder", new ProtobufVarint32FrameDecoder());
+        if (this.frameRecordingHandler != null) {
+            pipeline.addLast("frameRecorder", this.frameRecordingHandler);
+        }
+        pipeline
+                // Outgoing messages are serialized along with their compression, incoming ones are decompressed
+                .addLast(MESSAGE_COMPRESSION, this.messageCompressionCodec)
+                .addLast("protobufDecoder", new ByteBufProtobufDecoder(Message.getDefaultInstance()))
+                .addLast(MESSAGE_HANDLER, this.messageHandler);
+        if (this.instrumentation != null) {
+            this.instrumentation.register(ch);
+        }
     }
 
 }
\ No newline at end of file
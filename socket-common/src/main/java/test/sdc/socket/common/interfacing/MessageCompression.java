@@ -0,0 +1,323 @@
+package test.sdc.socket.common.interfacing;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.common.DataCompressionFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compression of messages one by one, with the format both sides agreed on when the client logged in.
+ * Each serialized message starts with a header byte, which is either {@link #UNCOMPRESSED} or the identifier of the
+ * format the rest of the message is compressed with. Only messages that reach the size threshold are compressed, and
+ * they are sent uncompressed if compression fails or does not make them smaller. Incoming messages must not exceed a
+ * maximum size once decompressed, so that a small message cannot inflate into an arbitrary amount of memory.
+ */
+public final class MessageCompression {
+
+    /**
+     * Header of messages that are not compressed.
+     */
+    public static final byte UNCOMPRESSED = 0;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageCompression.class);
+
+    private static final int MAX_PREFIX_SIZE = 5;
+
+    private static final AttributeKey<DataCompressionFormat> FORMAT =
+            AttributeKey.valueOf(MessageCompression.class, "format");
+
+    private final List<DataCompressionFormat> formats;
+    private final int threshold;
+    private final int maxMessageSize;
+    private final Map<DataCompressionFormat, FormatMetrics> metrics = new EnumMap<>(DataCompressionFormat.class);
+
+    /**
+     * Constructor.
+     *
+     * @param formatKeys comma-separated keys of supported formats, by order of preference (null or empty if none)
+     * @param threshold      minimum size of compressed messages (bytes)
+     * @param maxMessageSize maximum size of incoming messages once decompressed (bytes)
+     * @param metrics        metric registry
+     */
+    public MessageCompression(final String formatKeys, final int threshold, final int maxMessageSize,
+                              final MetricRegistry metrics) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Compression threshold must not be negative");
+        }
+        if (maxMessageSize <= 0) {
+            throw new IllegalArgumentException("Maximum message size must be positive");
+        }
+        requireNonNull(metrics, "Metric registry must not be null");
+        final List<DataCompressionFormat> formats = new ArrayList<>();
+        if (formatKeys != null && !formatKeys.trim().isEmpty()) {
+            for (final String key : formatKeys.split(",")) {
+                final DataCompressionFormat format = DataCompressionFormat.of(key.trim())
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown compression format: " + key));
+                if (!formats.contains(format)) {
+                    formats.add(format);
+                }
+            }
+        }
+        this.formats = Collections.unmodifiableList(formats);
+        this.threshold = threshold;
+        this.maxMessageSize = maxMessageSize;
+        for (final DataCompressionFormat format : this.formats) {
+            this.metrics.put(format, new FormatMetrics(format, metrics));
+        }
+    }
+
+    /**
+     * Get format that channel compresses outgoing messages with.
+     *
+     * @param channel channel
+     * @return format (null if messages are not compressed)
+     */
+    public static DataCompressionFormat getFormat(final Channel channel) {
+        return channel.attr(FORMAT).get();
+    }
+
+    /**
+     * Set format that channel compresses outgoing messages with, once it has been negotiated.
+     *
+     * @param channel channel
+     * @param format  format (null if messages are not compressed)
+     */
+    public static void setFormat(final Channel channel, final DataCompressionFormat format) {
+        requireNonNull(channel, "Channel must not be null");
+        channel.attr(FORMAT).set(format);
+    }
+
+    /**
+     * Get keys of supported formats, which are advertised to the server.
+     *
+     * @return keys, by order of preference
+     */
+    public List<String> getFormatKeys() {
+        final List<String> keys = new ArrayList<>(this.formats.size());
+        this.formats.forEach(format -> keys.add(format.getKey()));
+        return keys;
+    }
+
+    /**
+     * Choose format among the ones supported by the client.
+     *
+     * @param clientFormatKeys keys of the formats supported by the client, by order of preference
+     * @return format preferred by the client among the supported ones (empty if none)
+     */
+    public Optional<DataCompressionFormat> negotiate(final List<String> clientFormatKeys) {
+        requireNonNull(clientFormatKeys, "Client format keys must not be null");
+        return clientFormatKeys.stream()
+                .map(DataCompressionFormat::of)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .filter(this.formats::contains)
+                .findFirst();
+    }
+
+    /**
+     * Serialize message behind its header, compressing it if it is large enough.
+     *
+     * @param allocator buffer allocator
+     * @param message   message
+     * @param format    format negotiated for the channel (null if messages are not compressed)
+     * @return serialized message, which has to be released by the caller
+     */
+    public ByteBuf encode(final ByteBufAllocator allocator, final MessageLite message,
+                          final DataCompressionFormat format) {
+        requireNonNull(allocator, "Buffer allocator must not be null");
+        requireNonNull(message, "Input message must not be null");
+        final int bodySize = message.getSerializedSize();
+        final ByteBuf buffer = allocator.buffer(1 + bodySize);
+        try {
+            buffer.writeByte(UNCOMPRESSED);
+            final CodedOutputStream output = CodedOutputStream.newInstance(
+                    buffer.nioBuffer(buffer.writerIndex(), bodySize));
+            message.writeTo(output);
+            output.flush();
+            buffer.writerIndex(buffer.writerIndex() + bodySize);
+        } catch (final IOException ex) {
+            buffer.release();
+            throw new EncoderException(ex);
+        }
+        final ByteBuf compressed = this.compress(allocator, buffer, format, 0);
+        if (compressed == null) {
+            return buffer;
+        }
+        buffer.release();
+        return compressed;
+    }
+
+    /**
+     * Compress pre-framed message (see {@link EncodedMessage}), if it is large enough and gets smaller once
+     * compressed. Frames that are already compressed are left as is.
+     *
+     * @param allocator buffer allocator
+     * @param frame     length-prefixed message, which is left untouched
+     * @param format    format negotiated for the channel (null if messages are not compressed)
+     * @return length-prefixed compressed message, which has to be released by the caller (null if frame must be sent
+     * as is)
+     */
+    public ByteBuf compressFrame(final ByteBufAllocator allocator, final ByteBuf frame,
+                                 final DataCompressionFormat format) {
+        requireNonNull(frame, "Frame must not be null");
+        int messageIndex = frame.readerIndex();
+        while (frame.getByte(messageIndex++) < 0) {
+            // Skip length prefix
+        }
+        final ByteBuf compressed = this.compress(allocator,
+                frame.slice(messageIndex, frame.writerIndex() - messageIndex), format, MAX_PREFIX_SIZE);
+        if (compressed == null) {
+            return null;
+        }
+        // Length prefix is written right in front of the message, in the room left for it
+        final int messageSize = compressed.readableBytes();
+        int prefixIndex = compressed.readerIndex() - CodedOutputStream.computeUInt32SizeNoTag(messageSize);
+        compressed.readerIndex(prefixIndex);
+        int value = messageSize;
+        while ((value & ~0x7F) != 0) {
+            compressed.setByte(prefixIndex++, (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        compressed.setByte(prefixIndex, value);
+        return compressed;
+    }
+
+    /**
+     * Compress message that has been serialized behind an {@link #UNCOMPRESSED} header, if it is large enough and
+     * gets smaller once compressed. Messages that are already compressed, or that fail to compress, are left as is.
+     *
+     * @param allocator buffer allocator
+     * @param message   serialized message behind its header, which is left untouched
+     * @param format    format negotiated for the channel (null if messages are not compressed)
+     * @param headroom  number of bytes to leave in front of the compressed message
+     * @return compressed message behind its header and headroom, which has to be released by the caller (null if
+     * message must be sent as is)
+     */
+    private ByteBuf compress(final ByteBufAllocator allocator, final ByteBuf message,
+                             final DataCompressionFormat format, final int headroom) {
+        final int bodySize = message.readableBytes() - 1;
+        if (format == null || bodySize < this.threshold
+                || message.getByte(message.readerIndex()) != UNCOMPRESSED) {
+            return null;
+        }
+        final FormatMetrics formatMetrics = this.metrics.get(format);
+        if (formatMetrics == null) {
+            throw new EncoderException("Compression format not supported: " + format);
+        }
+        final ByteBuf compressed = allocator.buffer(headroom + 1 + bodySize);
+        final Timer.Context timerContext = formatMetrics.compressionTime.time();
+        try {
+            compressed.writerIndex(headroom).readerIndex(headroom);
+            compressed.writeByte(format.getId());
+            format.compress(message.slice(message.readerIndex() + 1, bodySize), compressed);
+        } catch (final RuntimeException ex) {
+            LOGGER.warn("Failed to compress message of {} bytes with {} - sending it uncompressed",
+                    bodySize, format, ex);
+            formatMetrics.failures.mark();
+            compressed.release();
+            return null;
+        } finally {
+            timerContext.stop();
+        }
+        if (compressed.readableBytes() >= message.readableBytes()) {
+            formatMetrics.incompressible.mark();
+            compressed.release();
+            return null;
+        }
+        formatMetrics.ratio.update(100L * compressed.readableBytes() / message.readableBytes());
+        return compressed;
+    }
+
+    /**
+     * Decompress message if its header says so.
+     *
+     * @param allocator buffer allocator
+     * @param message   message behind its header, which is released once decompressed
+     * @return serialized message without header
+     * @throws DecoderException      header is invalid, or message is corrupted
+     * @throws TooLongFrameException message exceeds maximum size once decompressed
+     */
+    public ByteBuf decode(final ByteBufAllocator allocator, final ByteBuf message) {
+        requireNonNull(message, "Input message must not be null");
+        if (!message.isReadable()) {
+            message.release();
+            throw new DecoderException("Message header is missing");
+        }
+        final byte header = message.readByte();
+        if (header == UNCOMPRESSED) {
+            return message;
+        }
+        try {
+            final FormatMetrics formatMetrics = DataCompressionFormat.of(header)
+                    .map(this.metrics::get)
+                    .orElseThrow(() -> new DecoderException("Compression format not supported: " + header));
+            final ByteBuf decompressed = allocator.buffer(
+                    (int) Math.min(message.readableBytes() * 2L, this.maxMessageSize), this.maxMessageSize);
+            final Timer.Context timerContext = formatMetrics.decompressionTime.time();
+            try {
+                formatMetrics.format.decompress(message, decompressed);
+                return decompressed;
+            } catch (final RuntimeException ex) {
+                decompressed.release();
+                throw ex;
+            } finally {
+                timerContext.stop();
+            }
+        } finally {
+            message.release();
+        }
+    }
+
+    /**
+     * Metrics of a compression format.
+     */
+    private static final class FormatMetrics {
+
+        private final DataCompressionFormat format;
+        private final Histogram ratio;
+        private final Meter incompressible;
+        private final Meter failures;
+        private final Timer compressionTime;
+        private final Timer decompressionTime;
+
+        /**
+         * Constructor.
+         *
+         * @param format  compression format
+         * @param metrics metric registry
+         */
+        private FormatMetrics(final DataCompressionFormat format, final MetricRegistry metrics) {
+            this.format = format;
+            this.ratio = metrics.histogram(name(MessageCompression.class, format.getKey(), "ratio"));
+            this.incompressible = metrics.meter(name(MessageCompression.class, format.getKey(), "incompressible"));
+            this.failures = metrics.meter(name(MessageCompression.class, format.getKey(), "failures"));
+            this.compressionTime = metrics.timer(name(MessageCompression.class, format.getKey(), "compressionTime"));
+            this.decompressionTime = metrics.timer(
+                    name(MessageCompression.class, format.getKey(), "decompressionTime"));
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package test.sdc.socket.common.interfacing;
+
+import com.google.protobuf.MessageLite;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serialize outgoing messages and decompress incoming ones, as described by {@link MessageCompression}.
+ * Outgoing messages are compressed with the format negotiated for the channel, if any. Pre-framed messages are
+ * compressed too, and framed again, unless they have already been compressed.
+ * It has to sit between the frame codecs and the protobuf decoder. Channels whose incoming messages exceed the maximum
+ * size once decompressed are closed, while outgoing messages that cannot be encoded are logged and discarded.
+ */
+@Sharable
+public final class MessageCompressionCodec
+        extends ChannelDuplexHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageCompressionCodec.class);
+
+    private final MessageCompression compression;
+
+    /**
+     * Constructor.
+     *
+     * @param compression message compression
+     */
+    public MessageCompressionCodec(final MessageCompression compression) {
+        this.compression = requireNonNull(compression, "Message compression must not be null");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        requireNonNull(ctx, "Channel handler context must not be null");
+        if (msg instanceof ByteBuf) {
+            final ByteBuf message;
+            try {
+                message = this.compression.decode(ctx.alloc(), (ByteBuf) msg);
+            } catch (final TooLongFrameException ex) {
+                LOGGER.warn("Closing channel {}: {}", ctx.channel(), ex.getMessage());
+                ctx.close();
+                return;
+            }
+            ctx.fireChannelRead(message);
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
+        requireNonNull(ctx, "Channel handler context must not be null");
+        final Object encoded;
+        try {
+            if (msg instanceof MessageLite) {
+                encoded = this.compression.encode(ctx.alloc(), (MessageLite) msg,
+                        MessageCompression.getFormat(ctx.channel()));
+            } else if (msg instanceof EncodedMessage) {
+                encoded = this.compressFrame(ctx, (EncodedMessage) msg);
+            } else {
+                encoded = msg;
+            }
+        } catch (final EncoderException ex) {
+            LOGGER.error("Failed to encode message for channel {}", ctx.channel(), ex);
+            ReferenceCountUtil.release(msg);
+            promise.setFailure(ex);
+            return;
+        }
+        ctx.write(encoded, promise);
+    }
+
+    /**
+     * Compress pre-framed message, unless it is not eligible or already compressed.
+     *
+     * @param ctx     context
+     * @param message pre-framed message, which is released if it is replaced
+     * @return pre-framed message to write
+     */
+    private EncodedMessage compressFrame(final ChannelHandlerContext ctx, final EncodedMessage message) {
+        final ByteBuf compressed = this.compression.compressFrame(ctx.alloc(), message.content(),
+                MessageCompression.getFormat(ctx.channel()));
+        if (compressed == null) {
+            return message;
+        }
+        message.release();
+        return new EncodedMessage(compressed);
+    }
+
+}
@@ -0,0 +1,41 @@
+package test.sdc.socket.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * High-resolution wall clock, in nanoseconds since the epoch: {@link System#nanoTime()} offset by the wall clock time
+ * read once, when the class is loaded. Times of a process are as precise as {@link System#nanoTime()}, while times of
+ * different processes are only comparable up to the millisecond precision of the wall clock, and as far as hosts have
+ * their clocks synchronized.
+ */
+public final class EpochClock {
+
+    private static final long ORIGIN_NANO_TIME = System.nanoTime();
+    private static final long ORIGIN_EPOCH_TIME = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+
+    /**
+     * Private constructor (static methods only).
+     */
+    private EpochClock() {
+    }
+
+    /**
+     * Get current time.
+     *
+     * @return nanoseconds since the epoch
+     */
+    public static long now() {
+        return fromNanoTime(System.nanoTime());
+    }
+
+    /**
+     * Convert time read from {@link System#nanoTime()} in this process.
+     *
+     * @param nanoTime time ({@link System#nanoTime()})
+     * @return nanoseconds since the epoch
+     */
+    public static long fromNanoTime(final long nanoTime) {
+        return ORIGIN_EPOCH_TIME + nanoTime - ORIGIN_NANO_TIME;
+    }
+
+}
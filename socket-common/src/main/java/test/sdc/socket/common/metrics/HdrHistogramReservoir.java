@@ -0,0 +1,204 @@
+package test.sdc.socket.common.metrics;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reservoir of a histogram, backed by an HdrHistogram recorder: values are recorded without locking nor allocating,
+ * with 3 significant digits, whatever their range. Snapshots cover all the values recorded since the reservoir was
+ * created. Negative values are recorded as 0.
+ */
+public final class HdrHistogramReservoir
+        implements Reservoir {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final org.HdrHistogram.Histogram total = new org.HdrHistogram.Histogram(SIGNIFICANT_DIGITS);
+    private org.HdrHistogram.Histogram interval = null;
+
+    /**
+     * Get histogram of registry, backed by such a reservoir. It is registered if it does not exist yet.
+     *
+     * @param metrics metric registry
+     * @param name    name of the histogram
+     * @return histogram
+     */
+    public static Histogram histogram(final MetricRegistry metrics, final String name) {
+        requireNonNull(metrics, "Metric registry must not be null");
+        synchronized (metrics) {
+            final Histogram histogram = metrics.getHistograms().get(name);
+            return histogram == null
+                    ? metrics.register(name, new Histogram(new HdrHistogramReservoir()))
+                    : histogram;
+        }
+    }
+
+    /**
+     * Get timer of registry, backed by such a reservoir. It is registered if it does not exist yet.
+     *
+     * @param metrics metric registry
+     * @param name    name of the timer
+     * @return timer
+     */
+    public static Timer timer(final MetricRegistry metrics, final String name) {
+        requireNonNull(metrics, "Metric registry must not be null");
+        synchronized (metrics) {
+            final Timer timer = metrics.getTimers().get(name);
+            return timer == null
+                    ? metrics.register(name, new Timer(new HdrHistogramReservoir()))
+                    : timer;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int size() {
+        this.collect();
+        return (int) Math.min(this.total.getTotalCount(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void update(final long value) {
+        this.recorder.recordValue(Math.max(value, 0L));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        this.collect();
+        return new HdrSnapshot(this.total.copy());
+    }
+
+    /**
+     * Add the values recorded since the last call to the total histogram (lock held).
+     */
+    private void collect() {
+        this.interval = this.recorder.getIntervalHistogram(this.interval);
+        this.total.add(this.interval);
+    }
+
+    /**
+     * Snapshot of the values recorded by an HdrHistogram. Values are the ones of the recorded buckets, once each.
+     */
+    private static final class HdrSnapshot
+            extends Snapshot {
+
+        private final org.HdrHistogram.Histogram histogram;
+
+        /**
+         * Constructor.
+         *
+         * @param histogram histogram, which is not modified afterwards
+         */
+        private HdrSnapshot(final org.HdrHistogram.Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getValue(final double quantile) {
+            return this.histogram.getValueAtPercentile(quantile * 100.0);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long[] getValues() {
+            final long[] values = new long[this.countBuckets()];
+            int i = 0;
+            for (final HistogramIterationValue value : this.histogram.recordedValues()) {
+                values[i++] = value.getValueIteratedTo();
+            }
+            return values;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return (int) Math.min(this.histogram.getTotalCount(), Integer.MAX_VALUE);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getMax() {
+            return this.histogram.getTotalCount() == 0L ? 0L : this.histogram.getMaxValue();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getMean() {
+            return this.histogram.getTotalCount() == 0L ? 0.0 : this.histogram.getMean();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public long getMin() {
+            return this.histogram.getTotalCount() == 0L ? 0L : this.histogram.getMinValue();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getStdDev() {
+            return this.histogram.getTotalCount() == 0L ? 0.0 : this.histogram.getStdDeviation();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void dump(final OutputStream output) {
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (final long value : this.getValues()) {
+                    writer.println(value);
+                }
+            }
+        }
+
+        /**
+         * Count recorded buckets.
+         *
+         * @return number of buckets
+         */
+        private int countBuckets() {
+            int count = 0;
+            for (final HistogramIterationValue ignored : this.histogram.recordedValues()) {
+                count++;
+            }
+            return count;
+        }
+    }
+
+}
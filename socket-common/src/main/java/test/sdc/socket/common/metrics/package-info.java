@@ -0,0 +1,4 @@
+/**
+ * Clocks and metrics shared by the server and the client.
+ */
+package test.sdc.socket.common.metrics;
@@ -0,0 +1,100 @@
+package test.sdc.socket.common.ssl;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the duration of the SSL handshake of a channel, and check whether it resumed a previous session.
+ * It removes itself from the pipeline once the handshake is over.
+ * Creation times of OpenSSL sessions are truncated to the second, so that sessions are only counted as resumed when
+ * they were created in an earlier second than the start of the handshake.
+ */
+final class SslHandshakeMonitor
+        extends ChannelInboundHandlerAdapter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SslHandshakeMonitor.class);
+
+    private final SslHandler sslHandler;
+    private final Timer handshakes;
+    private final Meter failures;
+    private final Meter resumptions;
+    private long startTime;
+    private long startTimeMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param sslHandler  SSL handler of the channel
+     * @param handshakes  timer of successful handshakes
+     * @param failures    meter of failed handshakes
+     * @param resumptions meter of handshakes that resumed a session
+     */
+    SslHandshakeMonitor(final SslHandler sslHandler, final Timer handshakes, final Meter failures,
+                        final Meter resumptions) {
+        this.sslHandler = sslHandler;
+        this.handshakes = handshakes;
+        this.failures = failures;
+        this.resumptions = resumptions;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void handlerAdded(final ChannelHandlerContext ctx) {
+        if (ctx.channel().isActive()) {
+            this.start();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void channelActive(final ChannelHandlerContext ctx) {
+        this.start();
+        ctx.fireChannelActive();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void userEventTriggered(final ChannelHandlerContext ctx, final Object evt) {
+        if (evt instanceof SslHandshakeCompletionEvent) {
+            if (((SslHandshakeCompletionEvent) evt).isSuccess()) {
+                this.handshakes.update(System.nanoTime() - this.startTime, TimeUnit.NANOSECONDS);
+                // Sessions that existed before the handshake started have been resumed
+                if (TimeUnit.MILLISECONDS.toSeconds(this.sslHandler.engine().getSession().getCreationTime())
+                        < TimeUnit.MILLISECONDS.toSeconds(this.startTimeMillis)) {
+                    this.resumptions.mark();
+                }
+            } else {
+                this.failures.mark();
+                LOGGER.warn("SSL handshake failed with {}", ctx.channel().remoteAddress(),
+                        ((SslHandshakeCompletionEvent) evt).cause());
+            }
+            ctx.pipeline().remove(this);
+        }
+        ctx.fireUserEventTriggered(evt);
+    }
+
+    /**
+     * Start measuring handshake.
+     */
+    private void start() {
+        if (this.startTime == 0L) {
+            this.startTime = System.nanoTime();
+            this.startTimeMillis = System.currentTimeMillis();
+        }
+    }
+
+}
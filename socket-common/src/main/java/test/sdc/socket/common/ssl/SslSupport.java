@@ -0,0 +1,300 @@
+package test.sdc.socket.common.ssl;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * SSL context shared by all the channels of a process, so that sessions can be resumed when clients reconnect, along
+ * with the metrics of the handshakes.
+ * Servers use OpenSSL (netty-tcnative) when it is available, and the JDK provider otherwise; their sessions are cached.
+ * Clients use the JDK provider by default, as OpenSSL client contexts of this Netty version do not cache sessions, so
+ * that they could never resume them. Sessions are only resumed from these caches: session tickets are not enabled.
+ */
+public final class SslSupport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SslSupport.class);
+
+    private static final String KEY_ALIAS = "server";
+
+    private final SslContext context;
+    private final Timer handshakes;
+    private final Meter failures;
+    private final Meter resumptions;
+
+    /**
+     * Constructor.
+     *
+     * @param context SSL context
+     * @param metrics metric registry
+     */
+    private SslSupport(final SslContext context, final MetricRegistry metrics) {
+        this.context = context;
+        this.handshakes = metrics.timer(name(SslSupport.class, "handshakes"));
+        this.failures = metrics.meter(name(SslSupport.class, "handshakes", "failures"));
+        this.resumptions = metrics.meter(name(SslSupport.class, "handshakes", "resumptions"));
+    }
+
+    /**
+     * Create server-side SSL support. Key and certificate chain are read from a key store, which is created with a
+     * self-signed certificate if it does not exist yet.
+     *
+     * @param providerKey      name of requested SSL provider (null for automatic selection)
+     * @param keyStorePath     path of the key store (null for a self-signed certificate that is not persisted)
+     * @param keyStorePassword password of the key store and of its key (null if none)
+     * @param sessionCacheSize maximum number of cached sessions (null for provider default)
+     * @param sessionTimeout   duration after which cached sessions cannot be resumed (null for provider default)
+     * @param metrics          metric registry
+     * @return SSL support
+     * @throws GeneralSecurityException key store cannot be read, or SSL context cannot be created
+     * @throws IOException              key store cannot be read or written
+     */
+    public static SslSupport forServer(final String providerKey, final String keyStorePath,
+                                       final String keyStorePassword, final Long sessionCacheSize,
+                                       final Duration sessionTimeout, final MetricRegistry metrics)
+            throws GeneralSecurityException, IOException {
+        requireNonNull(metrics, "Metric registry must not be null");
+        final SslProvider provider = selectProvider(providerKey, SslProvider.OPENSSL);
+        final char[] password = keyStorePassword == null ? new char[0] : keyStorePassword.toCharArray();
+        final KeyStore keyStore = keyStorePath == null
+                ? newSelfSignedKeyStore(password)
+                : loadOrCreateKeyStore(Paths.get(keyStorePath), password);
+        final String alias = keyStore.isKeyEntry(KEY_ALIAS)
+                ? KEY_ALIAS
+                : Collections.list(keyStore.aliases()).stream()
+                .filter(candidate -> isKeyEntry(keyStore, candidate))
+                .findFirst()
+                .orElseThrow(() -> new GeneralSecurityException("No private key in key store " + keyStorePath));
+        final Key key = keyStore.getKey(alias, password);
+        final Certificate[] chain = keyStore.getCertificateChain(alias);
+        final SslContext context = configure(SslContextBuilder.forServer((PrivateKey) key,
+                Arrays.copyOf(chain, chain.length, X509Certificate[].class)), provider, sessionCacheSize,
+                sessionTimeout).build();
+        if (context.sessionContext() instanceof OpenSslSessionContext) {
+            ((OpenSslSessionContext) context.sessionContext()).setSessionCacheEnabled(true);
+        }
+        LOGGER.info("Server SSL context: {} provider, key {} from {}", provider, alias,
+                keyStorePath == null ? "self-signed certificate" : keyStorePath);
+        return new SslSupport(context, metrics);
+    }
+
+    /**
+     * Create client-side SSL support. Unlike the key store of servers, the trust store must exist.
+     *
+     * @param providerKey        name of requested SSL provider (null for JDK, which resumes sessions)
+     * @param trustStorePath     path of the key store of trusted certificates (null to trust any server)
+     * @param trustStorePassword password of the trust store (null if none)
+     * @param sessionCacheSize   maximum number of cached sessions (null for provider default)
+     * @param sessionTimeout     duration after which cached sessions cannot be resumed (null for provider default)
+     * @param metrics            metric registry
+     * @return SSL support
+     * @throws GeneralSecurityException trust store cannot be read, or SSL context cannot be created
+     * @throws NoSuchFileException      trust store does not exist
+     * @throws IOException              trust store cannot be read
+     */
+    public static SslSupport forClient(final String providerKey, final String trustStorePath,
+                                       final String trustStorePassword, final Long sessionCacheSize,
+                                       final Duration sessionTimeout, final MetricRegistry metrics)
+            throws GeneralSecurityException, IOException {
+        requireNonNull(metrics, "Metric registry must not be null");
+        final SslProvider provider = selectProvider(providerKey, SslProvider.JDK);
+        if (provider != SslProvider.JDK) {
+            LOGGER.warn("Client sessions are not cached by SSL provider {} - they cannot be resumed", provider);
+        }
+        final TrustManagerFactory trustManagerFactory;
+        if (trustStorePath == null) {
+            LOGGER.warn("No trust store - server certificates are not checked");
+            trustManagerFactory = InsecureTrustManagerFactory.INSTANCE;
+        } else {
+            final Path path = Paths.get(trustStorePath);
+            if (Files.notExists(path)) {
+                throw new NoSuchFileException(path.toAbsolutePath().toString(), null, "Trust store does not exist");
+            }
+            trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init(loadKeyStore(path,
+                    trustStorePassword == null ? new char[0] : trustStorePassword.toCharArray()));
+        }
+        final SslContext context = configure(SslContextBuilder.forClient().trustManager(trustManagerFactory),
+                provider, sessionCacheSize, sessionTimeout).build();
+        LOGGER.info("Client SSL context: {} provider", provider);
+        return new SslSupport(context, metrics);
+    }
+
+    /**
+     * Select SSL provider: requested one if it is available, default one if it is available, JDK otherwise.
+     *
+     * @param key             name of requested provider (null for default one)
+     * @param defaultProvider default provider
+     * @return provider
+     */
+    private static SslProvider selectProvider(final String key, final SslProvider defaultProvider) {
+        if (key != null) {
+            final SslProvider requested = Arrays.stream(SslProvider.values())
+                    .filter(provider -> provider.name().equalsIgnoreCase(key))
+                    .findFirst()
+                    .orElse(null);
+            if (requested == SslProvider.JDK || requested != null && OpenSsl.isAvailable()) {
+                return requested;
+            }
+            LOGGER.warn("SSL provider {} is not available - falling back to {}", key, defaultProvider);
+        }
+        if (defaultProvider == SslProvider.JDK || OpenSsl.isAvailable()) {
+            return defaultProvider;
+        }
+        LOGGER.debug("OpenSSL is not available", OpenSsl.unavailabilityCause());
+        return SslProvider.JDK;
+    }
+
+    /**
+     * Apply settings that are common to clients and servers. They only apply to the context being built: JVM-wide
+     * settings, such as the session ticket system properties of the JDK provider, are left as they are.
+     *
+     * @param builder          SSL context builder
+     * @param provider         SSL provider
+     * @param sessionCacheSize maximum number of cached sessions (null for provider default)
+     * @param sessionTimeout   duration after which cached sessions cannot be resumed (null for provider default)
+     * @return builder
+     */
+    private static SslContextBuilder configure(final SslContextBuilder builder, final SslProvider provider,
+                                               final Long sessionCacheSize, final Duration sessionTimeout) {
+        builder.sslProvider(provider);
+        if (sessionCacheSize != null) {
+            builder.sessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeout != null) {
+            builder.sessionTimeout(sessionTimeout.getSeconds());
+        }
+        return builder;
+    }
+
+    /**
+     * Load key store of a server, or create it with a self-signed certificate if it does not exist.
+     *
+     * @param path     path of the key store
+     * @param password password of the key store and of its key
+     * @return key store
+     * @throws GeneralSecurityException key store cannot be read or created
+     * @throws IOException              key store cannot be read or written
+     */
+    private static KeyStore loadOrCreateKeyStore(final Path path, final char[] password)
+            throws GeneralSecurityException, IOException {
+        if (Files.notExists(path)) {
+            LOGGER.warn("Key store {} does not exist - creating it with a self-signed certificate", path);
+            final KeyStore keyStore = newSelfSignedKeyStore(password);
+            try (OutputStream output = Files.newOutputStream(path)) {
+                keyStore.store(output, password);
+            }
+            return keyStore;
+        }
+        return loadKeyStore(path, password);
+    }
+
+    /**
+     * Load key store. Key stores are PKCS#12 files, unless their extension is ".jks".
+     *
+     * @param path     path of the key store
+     * @param password password of the key store and of its keys
+     * @return key store
+     * @throws GeneralSecurityException key store cannot be read
+     * @throws IOException              key store cannot be read
+     */
+    private static KeyStore loadKeyStore(final Path path, final char[] password)
+            throws GeneralSecurityException, IOException {
+        final String type = path.toString().toLowerCase(Locale.ROOT).endsWith(".jks") ? "JKS" : "PKCS12";
+        final KeyStore keyStore = KeyStore.getInstance(type);
+        try (InputStream input = Files.newInputStream(path)) {
+            keyStore.load(input, password);
+        }
+        return keyStore;
+    }
+
+    /**
+     * Create in-memory key store with a self-signed certificate.
+     *
+     * @param password password of the key
+     * @return key store
+     * @throws GeneralSecurityException certificate cannot be generated
+     * @throws IOException              key store cannot be initialized
+     */
+    private static KeyStore newSelfSignedKeyStore(final char[] password)
+            throws GeneralSecurityException, IOException {
+        final SelfSignedCertificate certificate = new SelfSignedCertificate();
+        try {
+            final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            keyStore.load(null, password);
+            keyStore.setKeyEntry(KEY_ALIAS, certificate.key(), password,
+                    new Certificate[]{certificate.cert()});
+            return keyStore;
+        } finally {
+            certificate.delete();
+        }
+    }
+
+    /**
+     * Check if key store entry holds a private key.
+     *
+     * @param keyStore key store
+     * @param alias    alias of the entry
+     * @return entry holds a private key
+     */
+    private static boolean isKeyEntry(final KeyStore keyStore, final String alias) {
+        try {
+            return keyStore.isKeyEntry(alias);
+        } catch (final GeneralSecurityException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Add SSL handler to channel pipeline, along with the monitor of its handshake.
+     *
+     * @param channel       channel
+     * @param remoteAddress address of the server, on client side (null on server side)
+     */
+    public void addHandlers(final Channel channel, final InetSocketAddress remoteAddress) {
+        requireNonNull(channel, "Channel must not be null");
+        final SslHandler sslHandler = remoteAddress == null
+                ? this.context.newHandler(channel.alloc())
+                : this.context.newHandler(channel.alloc(), remoteAddress.getHostString(), remoteAddress.getPort());
+        final ChannelPipeline pipeline = channel.pipeline();
+        pipeline.addLast("ssl", sslHandler);
+        pipeline.addLast("sslHandshakeMonitor",
+                new SslHandshakeMonitor(sslHandler, this.handshakes, this.failures, this.resumptions));
+    }
+
+}
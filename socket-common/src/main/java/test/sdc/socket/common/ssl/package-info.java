@@ -0,0 +1,4 @@
+/**
+ * Encryption of client-server communication.
+ */
+package test.sdc.socket.common.ssl;
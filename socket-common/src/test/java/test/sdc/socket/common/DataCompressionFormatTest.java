@@ -0,0 +1,127 @@
+package test.sdc.socket.common;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.TooLongFrameException;
+import junitparams.JUnitParamsRunner;
+import junitparams.Parameters;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test of {@link DataCompressionFormat}, message by message.
+ */
+@RunWith(JUnitParamsRunner.class)
+public class DataCompressionFormatTest {
+
+    private static final int[] SIZES = {0, 1, 32 * 1024, 33 * 1024, 64 * 1024, 70_000, 1024 * 1024};
+
+    /**
+     * Formats, each with sizes of uncompressed data.
+     *
+     * @return parameters
+     */
+    @SuppressWarnings("unused")
+    private static Object[] formatsAndSizes() {
+        final List<Object[]> parameters = new ArrayList<>();
+        for (final DataCompressionFormat format : DataCompressionFormat.values()) {
+            for (final int size : SIZES) {
+                parameters.add(new Object[]{format, size});
+            }
+        }
+        return parameters.toArray();
+    }
+
+    /**
+     * Formats.
+     *
+     * @return parameters
+     */
+    @SuppressWarnings("unused")
+    private static Object[] formats() {
+        return DataCompressionFormat.values();
+    }
+
+    @Test
+    @Parameters(method = "formatsAndSizes")
+    public void testRoundTrip(final DataCompressionFormat format, final int size) {
+        final ByteBuf data = newData(size);
+        final ByteBuf compressed = Unpooled.buffer();
+        final ByteBuf decompressed = Unpooled.buffer(0, size);
+        try {
+            format.compress(data.duplicate(), compressed);
+            format.decompress(compressed, decompressed);
+
+            assertThat(compressed.isReadable()).isFalse();
+            assertThat(decompressed).isEqualTo(data);
+        } finally {
+            data.release();
+            compressed.release();
+            decompressed.release();
+        }
+    }
+
+    @Test
+    @Parameters(method = "formats")
+    public void testDecompressTooLong(final DataCompressionFormat format) {
+        final ByteBuf data = newData(64 * 1024);
+        final ByteBuf compressed = Unpooled.buffer();
+        final ByteBuf decompressed = Unpooled.buffer(0, 64 * 1024 - 1);
+        try {
+            format.compress(data, compressed);
+
+            assertThatThrownBy(() -> format.decompress(compressed, decompressed))
+                    .isInstanceOf(TooLongFrameException.class);
+        } finally {
+            data.release();
+            compressed.release();
+            decompressed.release();
+        }
+    }
+
+    @Test
+    @Parameters(method = "formats")
+    public void testDecompressTruncated(final DataCompressionFormat format) {
+        final ByteBuf data = newData(64 * 1024);
+        final ByteBuf compressed = Unpooled.buffer();
+        final ByteBuf decompressed = Unpooled.buffer(0, 64 * 1024);
+        try {
+            format.compress(data, compressed);
+            compressed.writerIndex(compressed.writerIndex() - 16);
+
+            assertThatThrownBy(() -> format.decompress(compressed, decompressed))
+                    .isInstanceOf(DecoderException.class);
+        } finally {
+            data.release();
+            compressed.release();
+            decompressed.release();
+        }
+    }
+
+    /**
+     * Generate data that is compressible, but not trivially: words picked at random, with repetitions far apart.
+     *
+     * @param size size (bytes)
+     * @return data
+     */
+    private static ByteBuf newData(final int size) {
+        final Random random = new Random(size);
+        final byte[] words = new byte[4096];
+        random.nextBytes(words);
+        final ByteBuf data = Unpooled.buffer(size);
+        while (data.writerIndex() < size) {
+            final int length = Math.min(4 + random.nextInt(60), size - data.writerIndex());
+            data.writeBytes(words, random.nextInt(words.length - length), length);
+        }
+        return data;
+    }
+
+}
@@ -0,0 +1,59 @@
+package test.sdc.socket.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry point of the microbenchmarks. It takes the usual JMH options (e.g. a regular expression of the benchmarks to
+ * run, {@code -p} to narrow down parameters), and always adds the GC profiler, so that every benchmark reports its
+ * allocation rate per operation ({@code gc.alloc.rate.norm}) along with its throughput. Results are written as JSON
+ * ({@value #DEFAULT_RESULT} by default), so that runs can be compared.
+ */
+public final class Application {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Application.class);
+
+    private static final String DEFAULT_RESULT = "jmh-results.json";
+    private static final String GC_PROFILER_ALIAS = "gc";
+
+    /**
+     * Main method.
+     *
+     * @param args start-up arguments: JMH options
+     */
+    public static void main(final String[] args) {
+        int status = 0;
+        try {
+            final CommandLineOptions commandLine = new CommandLineOptions(args);
+            final OptionsBuilder builder = new OptionsBuilder();
+            builder.parent(commandLine)
+                    .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+                    .result(commandLine.getResult().orElse(DEFAULT_RESULT));
+            if (commandLine.getProfilers().stream().noneMatch(profiler ->
+                    GC_PROFILER_ALIAS.equals(profiler.getKlass())
+                            || GCProfiler.class.getName().equals(profiler.getKlass()))) {
+                builder.addProfiler(GCProfiler.class);
+            }
+            final Options options = builder.build();
+            final Runner runner = new Runner(options);
+            if (commandLine.shouldHelp()) {
+                commandLine.showHelp();
+            } else if (commandLine.shouldList()) {
+                runner.list();
+            } else {
+                runner.run();
+            }
+        } catch (final Exception ex) {
+            LOGGER.error("Benchmarks failed", ex);
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+}
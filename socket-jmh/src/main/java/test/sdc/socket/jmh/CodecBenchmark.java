@@ -0,0 +1,205 @@
+package test.sdc.socket.jmh;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.interfacing.EncodedMessage;
+import test.sdc.socket.common.interfacing.LeChannelInitializer;
+import test.sdc.socket.common.interfacing.MessageCompression;
+import test.sdc.socket.model.protocol.MessageProtos.Message;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of data update messages by the pipeline of {@link LeChannelInitializer}, on embedded
+ * channels, for each message compression format. Protobuf serialization alone is measured too, so that the cost of
+ * framing and compression can be told apart.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dio.netty.leakDetection.level=disabled"})
+public class CodecBenchmark {
+
+    private static final int COMPRESSION_THRESHOLD = 512;
+    private static final int MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Data update message.
+     */
+    @State(Scope.Thread)
+    public static class Payload {
+
+        /**
+         * Number of data updates of the message.
+         */
+        @Param({"1", "32"})
+        public int batchSize;
+
+        /**
+         * Number of characters of the labels of the data updates.
+         */
+        @Param({"32"})
+        public int labelSize;
+
+        private Message message;
+        private byte[] serializedMessage;
+
+        /**
+         * Build message.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.message = Payloads.newMessage(Payloads.newUpdates(this.batchSize, this.labelSize));
+            this.serializedMessage = this.message.toByteArray();
+        }
+
+    }
+
+    /**
+     * Channels with the pipelines of both ends, which negotiated a message compression format.
+     */
+    @State(Scope.Thread)
+    public static class Pipelines {
+
+        /**
+         * Message compression format negotiated by the channels.
+         */
+        @Param({"NONE", "SNAPPY", "ZLIB"})
+        public String format;
+
+        private EmbeddedChannel sender;
+        private EmbeddedChannel receiver;
+        private MessageSink sink;
+        private ByteBuf frame;
+
+        /**
+         * Build channels, then encode the frame that is decoded by {@link #decode(Pipelines)}.
+         *
+         * @param payload message
+         */
+        @Setup(Level.Trial)
+        public void setUp(final Payload payload) {
+            final DataCompressionFormat compressionFormat = "NONE".equals(this.format)
+                    ? null
+                    : DataCompressionFormat.of(this.format)
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown compression format: " + this.format));
+            final MessageCompression compression = new MessageCompression(
+                    compressionFormat == null ? null : this.format, COMPRESSION_THRESHOLD, MAX_MESSAGE_SIZE,
+                    new MetricRegistry());
+            this.sender = new EmbeddedChannel(LeChannelInitializer.forServer(null, new MessageSink(), null,
+                    compression, null, null));
+            MessageCompression.setFormat(this.sender, compressionFormat);
+            this.sink = new MessageSink();
+            this.receiver = new EmbeddedChannel(LeChannelInitializer.forClient(null, this.sink, null, compression,
+                    null, null, null));
+            MessageCompression.setFormat(this.receiver, compressionFormat);
+            this.frame = this.encode(payload.message);
+        }
+
+        /**
+         * Release frame and close channels.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.frame.release();
+            this.sender.finishAndReleaseAll();
+            this.receiver.finishAndReleaseAll();
+        }
+
+        /**
+         * Write message to the pipeline of the sender, which serializes, compresses and length-prefixes it.
+         *
+         * @param message message
+         * @return frame, which has to be released by the caller
+         */
+        private ByteBuf encode(final Message message) {
+            this.sender.writeOutbound(message);
+            return this.sender.readOutbound();
+        }
+
+    }
+
+    /**
+     * Serialize message with Protobuf only.
+     *
+     * @param payload message
+     * @return serialized message
+     */
+    @Benchmark
+    public byte[] serialize(final Payload payload) {
+        return payload.message.toByteArray();
+    }
+
+    /**
+     * Parse message with Protobuf only.
+     *
+     * @param payload message
+     * @return message
+     * @throws InvalidProtocolBufferException message cannot be parsed
+     */
+    @Benchmark
+    public Message parse(final Payload payload)
+            throws InvalidProtocolBufferException {
+        return Message.parseFrom(payload.serializedMessage);
+    }
+
+    /**
+     * Serialize and length-prefix message into a frame shared by many channels (see {@link EncodedMessage}).
+     *
+     * @param payload message
+     * @return size of the frame
+     */
+    @Benchmark
+    public int encodeShared(final Payload payload) {
+        final ByteBuf sharedFrame = EncodedMessage.encode(ByteBufAllocator.DEFAULT, payload.message);
+        final int size = sharedFrame.readableBytes();
+        sharedFrame.release();
+        return size;
+    }
+
+    /**
+     * Write message through the pipeline.
+     *
+     * @param payload   message
+     * @param pipelines channels
+     * @return size of the frame
+     */
+    @Benchmark
+    public int encode(final Payload payload, final Pipelines pipelines) {
+        final ByteBuf frame = pipelines.encode(payload.message);
+        final int size = frame.readableBytes();
+        frame.release();
+        return size;
+    }
+
+    /**
+     * Read frame through the pipeline, which splits, decompresses and parses it.
+     *
+     * @param pipelines channels
+     * @return message
+     */
+    @Benchmark
+    public Message decode(final Pipelines pipelines) {
+        pipelines.receiver.writeInbound(pipelines.frame.retainedDuplicate());
+        return pipelines.sink.take();
+    }
+
+}
@@ -0,0 +1,36 @@
+package test.sdc.socket.jmh;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import test.sdc.socket.model.protocol.MessageProtos.Message;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Message handler of the benchmarks, which keeps the last message it received so that benchmarks can return it.
+ */
+public final class MessageSink
+        extends SimpleChannelInboundHandler<Message> {
+
+    private Message lastMessage = null;
+
+    /**
+     * Take last received message.
+     *
+     * @return message (null if none since the last call)
+     */
+    public Message take() {
+        final Message message = this.lastMessage;
+        this.lastMessage = null;
+        return message;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void channelRead0(final ChannelHandlerContext ctx, final Message msg) {
+        this.lastMessage = requireNonNull(msg, "Input object must not be null");
+    }
+
+}
@@ -0,0 +1,103 @@
+package test.sdc.socket.jmh;
+
+import test.sdc.socket.model.protocol.MessageProtos.Message;
+import test.sdc.socket.model.protocol.data.DataUpdateBatchProtos.DataUpdateBatch;
+import test.sdc.socket.model.protocol.data.DataUpdateProtos.DataUpdate;
+import test.sdc.socket.server.data.DataElement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Payloads of the benchmarks. Labels are drawn from a seeded generator, so that every run measures the same bytes,
+ * and from a small alphabet, so that they compress about as well as text does.
+ */
+public final class Payloads {
+
+    /**
+     * Name of the stream of generated data.
+     */
+    public static final String STREAM = "jmh/0";
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789 ";
+    private static final int NB_KEYS = 100;
+    private static final long SEED = 42L;
+
+    /**
+     * Private constructor.
+     */
+    private Payloads() {
+    }
+
+    /**
+     * Generate data elements of the stream.
+     *
+     * @param count     number of elements
+     * @param labelSize number of characters of the labels
+     * @return data elements
+     */
+    public static List<DataElement> newElements(final int count, final int labelSize) {
+        final Random random = new Random(SEED);
+        final List<DataElement> elements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            elements.add(new DataElement(STREAM, String.valueOf(i % NB_KEYS), newLabel(random, labelSize)));
+        }
+        return elements;
+    }
+
+    /**
+     * Generate data updates of the stream, numbered from 0.
+     *
+     * @param count     number of updates
+     * @param labelSize number of characters of the labels
+     * @return data updates, by increasing sequence number
+     */
+    public static List<DataUpdate> newUpdates(final int count, final int labelSize) {
+        final List<DataUpdate> updates = new ArrayList<>(count);
+        long sequence = 0L;
+        for (final DataElement element : newElements(count, labelSize)) {
+            updates.add(DataUpdate.newBuilder()
+                    .setLabel(element.getLabel())
+                    .setSequence(sequence++)
+                    .setStream(element.getStream())
+                    .setKey(element.getKey().orElse(""))
+                    .build());
+        }
+        return updates;
+    }
+
+    /**
+     * Build data update message, the way the server does: a single update if there is only one, a batch otherwise.
+     *
+     * @param updates data updates
+     * @return message
+     */
+    public static Message newMessage(final List<DataUpdate> updates) {
+        final Message.Builder msg = Message.newBuilder();
+        if (updates.size() == 1) {
+            msg.setDataUpdate(updates.get(0));
+        } else {
+            msg.setDataUpdateBatch(DataUpdateBatch.newBuilder()
+                    .addAllUpdates(updates)
+                    .build());
+        }
+        return msg.build();
+    }
+
+    /**
+     * Generate label.
+     *
+     * @param random    generator
+     * @param labelSize number of characters
+     * @return label
+     */
+    private static String newLabel(final Random random, final int labelSize) {
+        final StringBuilder label = new StringBuilder(labelSize);
+        for (int i = 0; i < labelSize; i++) {
+            label.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return label.toString();
+    }
+
+}
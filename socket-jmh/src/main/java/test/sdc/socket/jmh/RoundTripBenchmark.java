@@ -0,0 +1,165 @@
+package test.sdc.socket.jmh;
+
+import com.codahale.metrics.MetricRegistry;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.interfacing.ChannelInstrumentation;
+import test.sdc.socket.common.interfacing.FrameRecorder;
+import test.sdc.socket.common.interfacing.LeChannelInitializer;
+import test.sdc.socket.common.interfacing.MessageCompression;
+import test.sdc.socket.common.ssl.SslSupport;
+import test.sdc.socket.model.protocol.MessageProtos.Message;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data update message sent from the server pipeline to the client pipeline of {@link LeChannelInitializer}, on
+ * embedded channels whose bytes are handed over from one to the other, with and without SSL, for each stream
+ * compression format. Both ends are measured at once, as SSL records and compressed streams cannot be replayed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dio.netty.leakDetection.level=disabled"})
+public class RoundTripBenchmark {
+
+    private static final int MAX_HANDSHAKE_ROUNDS = 100;
+    private static final int FRAME_RECORDER_SIZE = 1024;
+    private static final int FRAME_RECORDER_MAX_FRAME_SIZE = 4096;
+    private static final int MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Channels are secured with SSL.
+     */
+    @Param({"false", "true"})
+    public boolean ssl;
+
+    /**
+     * Stream compression format of the channels.
+     */
+    @Param({"NONE", "SNAPPY", "ZLIB"})
+    public String compression;
+
+    /**
+     * Number of data updates of the message.
+     */
+    @Param({"32"})
+    public int batchSize;
+
+    /**
+     * Number of characters of the labels of the data updates.
+     */
+    @Param({"32"})
+    public int labelSize;
+
+    /**
+     * Channels are instrumented (see {@link ChannelInstrumentation}), so that its cost can be measured.
+     */
+    @Param({"false"})
+    public boolean instrumented;
+
+    /**
+     * Frames are recorded (see {@link FrameRecorder}), so that its cost can be measured.
+     */
+    @Param({"false"})
+    public boolean recorded;
+
+    private Message message;
+    private EmbeddedChannel server;
+    private EmbeddedChannel client;
+    private MessageSink sink;
+
+    /**
+     * Build message and channels, then complete SSL handshake.
+     *
+     * @throws GeneralSecurityException SSL context cannot be created
+     * @throws IOException              SSL context cannot be created
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+            throws GeneralSecurityException, IOException {
+        final DataCompressionFormat compressionFormat = "NONE".equals(this.compression)
+                ? null
+                : DataCompressionFormat.of(this.compression)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown compression format: " + this.compression));
+        final MetricRegistry metrics = new MetricRegistry();
+        // Messages themselves are not compressed (see CodecBenchmark)
+        final MessageCompression messageCompression = new MessageCompression(null, 0, MAX_MESSAGE_SIZE, metrics);
+        final ChannelInstrumentation instrumentation = new ChannelInstrumentation(this.instrumented, metrics);
+        final FrameRecorder frameRecorder = this.recorded
+                ? new FrameRecorder(FRAME_RECORDER_SIZE, FRAME_RECORDER_MAX_FRAME_SIZE)
+                : null;
+        this.message = Payloads.newMessage(Payloads.newUpdates(this.batchSize, this.labelSize));
+        this.server = new EmbeddedChannel(LeChannelInitializer.forServer(
+                this.ssl ? SslSupport.forServer(null, null, null, null, null, metrics) : null,
+                new MessageSink(), compressionFormat, messageCompression, instrumentation, frameRecorder));
+        this.sink = new MessageSink();
+        this.client = new EmbeddedChannel(LeChannelInitializer.forClient(
+                this.ssl ? SslSupport.forClient(null, null, null, null, null, metrics) : null,
+                this.sink, compressionFormat, messageCompression, instrumentation, frameRecorder,
+                InetSocketAddress.createUnresolved("localhost", 0)));
+        for (int i = 0; i < MAX_HANDSHAKE_ROUNDS; i++) {
+            if (!transfer(this.client, this.server) & !transfer(this.server, this.client)) {
+                return;
+            }
+        }
+        throw new IllegalStateException("SSL handshake did not complete");
+    }
+
+    /**
+     * Close channels.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.server.finishAndReleaseAll();
+        this.client.finishAndReleaseAll();
+    }
+
+    /**
+     * Send message from server to client.
+     *
+     * @return message received by the client
+     */
+    @Benchmark
+    public Message roundTrip() {
+        this.server.writeOutbound(this.message);
+        transfer(this.server, this.client);
+        return this.sink.take();
+    }
+
+    /**
+     * Hand bytes written by a channel over to another one.
+     *
+     * @param from channel that writes
+     * @param to   channel that reads
+     * @return bytes have been handed over
+     */
+    private static boolean transfer(final EmbeddedChannel from, final EmbeddedChannel to) {
+        boolean transferred = false;
+        Object msg;
+        while ((msg = from.readOutbound()) != null) {
+            to.writeInbound(msg);
+            transferred = true;
+        }
+        return transferred;
+    }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Microbenchmarks (JMH) of the channel pipeline, on embedded channels, along with their entry point.
+ * Benchmarks that need package-private access live in the packages of the classes they measure.
+ */
+package test.sdc.socket.jmh;
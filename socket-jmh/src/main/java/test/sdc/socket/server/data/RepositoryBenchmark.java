@@ -0,0 +1,151 @@
+package test.sdc.socket.server.data;
+
+import com.codahale.metrics.MetricRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import test.sdc.socket.jmh.Payloads;
+import test.sdc.socket.server.dispatch.DataUpdateDispatcher;
+import test.sdc.socket.server.dispatch.WaitStrategy;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Additions to a data repository ({@link GenericDataRepository#add(Object)}), which publish updates to the
+ * dispatcher, and reads of its elements ({@link GenericDataRepository#findAll()}).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dio.netty.leakDetection.level=disabled"})
+public class RepositoryBenchmark {
+
+    private static final int DISPATCHER_RING_SIZE = 1024;
+    private static final int LABEL_SIZE = 32;
+
+    /**
+     * Repository that elements are added to.
+     */
+    @State(Scope.Thread)
+    public static class Appending {
+
+        /**
+         * Number of listeners of the dispatcher, which the repository waits for when the ring is full.
+         */
+        @Param({"0", "1"})
+        public int listeners;
+
+        private DataUpdateDispatcher<DataElement> dispatcher;
+        private DataRepository repository;
+        private DataElement element;
+
+        /**
+         * Build repository and start listeners.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            final MetricRegistry metrics = new MetricRegistry();
+            this.dispatcher = new DataUpdateDispatcher<>(DISPATCHER_RING_SIZE, WaitStrategy.BLOCKING, metrics);
+            for (int i = 0; i < this.listeners; i++) {
+                this.dispatcher.subscribe("jmh-" + i, (sequence, element, originTime) -> {
+                    // Updates are only consumed
+                });
+            }
+            this.repository = new DataRepository(Payloads.STREAM, this.dispatcher, metrics);
+            this.element = Payloads.newElements(1, LABEL_SIZE).get(0);
+        }
+
+        /**
+         * Start a new log, so that the repository does not keep growing for the whole run.
+         */
+        @Setup(Level.Iteration)
+        public void clear() {
+            this.repository.setElements(Collections.emptyList());
+        }
+
+        /**
+         * Stop listeners.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            this.dispatcher.stop();
+        }
+
+    }
+
+    /**
+     * Repository that holds a given number of elements.
+     */
+    @State(Scope.Thread)
+    public static class Populated {
+
+        /**
+         * Number of elements of the repository.
+         */
+        @Param({"1000", "100000"})
+        public int size;
+
+        private DataRepository repository;
+
+        /**
+         * Build repository.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            final MetricRegistry metrics = new MetricRegistry();
+            this.repository = new DataRepository(Payloads.STREAM,
+                    new DataUpdateDispatcher<>(DISPATCHER_RING_SIZE, WaitStrategy.BLOCKING, metrics), metrics);
+            this.repository.setElements(Payloads.newElements(this.size, LABEL_SIZE));
+        }
+
+    }
+
+    /**
+     * Add element to repository.
+     *
+     * @param state repository
+     * @return sequence number of the element
+     */
+    @Benchmark
+    public long add(final Appending state) {
+        return state.repository.add(state.element);
+    }
+
+    /**
+     * Get elements of repository.
+     *
+     * @param state repository
+     * @return elements
+     */
+    @Benchmark
+    public LogSnapshot<DataElement> findAll(final Populated state) {
+        return state.repository.findAll();
+    }
+
+    /**
+     * Get elements of repository, and go through all of them.
+     *
+     * @param state     repository
+     * @param blackhole consumer of the elements
+     */
+    @Benchmark
+    public void findAllAndIterate(final Populated state, final Blackhole blackhole) {
+        for (final DataElement element : state.repository.findAll()) {
+            blackhole.consume(element);
+        }
+    }
+
+}
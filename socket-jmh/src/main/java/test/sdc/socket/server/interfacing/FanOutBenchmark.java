@@ -0,0 +1,177 @@
+package test.sdc.socket.server.interfacing;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Charsets;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.interfacing.LeChannelInitializer;
+import test.sdc.socket.common.interfacing.MessageCompression;
+import test.sdc.socket.jmh.MessageSink;
+import test.sdc.socket.jmh.Payloads;
+import test.sdc.socket.model.protocol.MessageProtos.Message;
+import test.sdc.socket.model.protocol.data.DataUpdateProtos.DataUpdate;
+import test.sdc.socket.server.data.DataElement;
+import test.sdc.socket.server.data.DataStreams;
+import test.sdc.socket.server.dispatch.DataUpdateDispatcher;
+import test.sdc.socket.server.dispatch.WaitStrategy;
+import test.sdc.socket.server.session.ClientSession;
+import test.sdc.socket.server.session.SlowConsumerPolicy;
+import test.sdc.socket.server.session.SubscriptionIndex;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out of a batch of data updates by {@link DataUpdateManager} to many sessions, whose channels are embedded
+ * channels with the server pipeline of {@link LeChannelInitializer}. The batch is compressed once for all sessions,
+ * and compared with the same message written to each channel on its own, which compresses it once per session.
+ * Embedded channels run their tasks on the calling thread, so that the whole fan-out is measured: an operation is a
+ * batch sent to all sessions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dio.netty.leakDetection.level=disabled"})
+public class FanOutBenchmark {
+
+    private static final int DISPATCHER_RING_SIZE = 1024;
+    private static final int SNAPSHOT_CHUNK_SIZE = 100;
+    private static final int COMPRESSION_THRESHOLD = 512;
+    private static final int MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+    private static final Duration BATCH_MAX_DELAY = Duration.ofMillis(1L);
+    private static final Duration DISCONNECT_DELAY = Duration.ofSeconds(5L);
+
+    /**
+     * Number of sessions that subscribed to the stream.
+     */
+    @Param({"1000", "10000"})
+    public int clients;
+
+    /**
+     * Message compression format negotiated by the sessions.
+     */
+    @Param({"NONE", "SNAPPY", "ZLIB"})
+    public String format;
+
+    /**
+     * Number of data updates of the batch.
+     */
+    @Param({"32"})
+    public int batchSize;
+
+    /**
+     * Number of characters of the labels of the data updates.
+     */
+    @Param({"32"})
+    public int labelSize;
+
+    private final List<EmbeddedChannel> channels = new ArrayList<>();
+    private DataUpdateDispatcher<DataElement> dispatcher;
+    private DataUpdateManager dataUpdateManager;
+    private List<DataUpdate> updates;
+    private Message message;
+
+    /**
+     * Build sessions, which are already streamed live updates, and batch of data updates.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        final DataCompressionFormat compressionFormat = "NONE".equals(this.format)
+                ? null
+                : DataCompressionFormat.of(this.format)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown compression format: " + this.format));
+        final MetricRegistry metrics = new MetricRegistry();
+        this.dispatcher = new DataUpdateDispatcher<>(DISPATCHER_RING_SIZE, WaitStrategy.BLOCKING, metrics);
+        final SnapshotStreamer snapshotStreamer = new SnapshotStreamer(new DataStreams(this.dispatcher, metrics),
+                SNAPSHOT_CHUNK_SIZE, Charsets.UTF_8, metrics);
+        final SubscriptionIndex subscriptionIndex = new SubscriptionIndex(metrics);
+        final MessageCompression messageCompression = new MessageCompression("SNAPPY,ZLIB", COMPRESSION_THRESHOLD,
+                MAX_MESSAGE_SIZE, metrics);
+        this.dataUpdateManager = new DataUpdateManager(subscriptionIndex,
+                new SessionWriter(snapshotStreamer, Long.MAX_VALUE, DISCONNECT_DELAY, metrics), this.dispatcher,
+                this.batchSize, BATCH_MAX_DELAY, false, ByteBufAllocator.DEFAULT, Charsets.UTF_8,
+                messageCompression, metrics);
+        for (int i = 0; i < this.clients; i++) {
+            final EmbeddedChannel channel = new EmbeddedChannel(LeChannelInitializer.forServer(null,
+                    new MessageSink(), null, messageCompression, null, null));
+            MessageCompression.setFormat(channel, compressionFormat);
+            final ClientSession session = new ClientSession("jmh-" + i, channel, SlowConsumerPolicy.DISCONNECT, 0);
+            session.addSubscription(Payloads.STREAM);
+            session.startLiveUpdates(Payloads.STREAM, 0L);
+            subscriptionIndex.add(Payloads.STREAM, session);
+            this.channels.add(channel);
+        }
+        this.updates = new ArrayList<>(this.batchSize);
+        for (final DataElement element : Payloads.newElements(this.batchSize, this.labelSize)) {
+            this.updates.add(DataUpdateManager.toDataUpdate(this.updates.size(), element, Charsets.UTF_8));
+        }
+        this.message = DataUpdateManager.toMessage(this.updates);
+    }
+
+    /**
+     * Close channels and stop dispatcher.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.channels.forEach(EmbeddedChannel::finishAndReleaseAll);
+        this.dispatcher.stop();
+    }
+
+    /**
+     * Send batch to all sessions, with frames shared by the sessions that negotiated the same format.
+     *
+     * @return number of sessions
+     */
+    @Benchmark
+    public int sendData() {
+        this.dataUpdateManager.sendData(this.updates);
+        return this.releaseFrames();
+    }
+
+    /**
+     * Write message to the channel of every session, which serializes and compresses it on its own.
+     *
+     * @return number of sessions
+     */
+    @Benchmark
+    public int sendDataPerChannel() {
+        for (final EmbeddedChannel channel : this.channels) {
+            channel.writeAndFlush(this.message);
+        }
+        return this.releaseFrames();
+    }
+
+    /**
+     * Release frames written by channels, as a socket would once they have been sent.
+     *
+     * @return number of channels that wrote frames
+     */
+    private int releaseFrames() {
+        int count = 0;
+        for (final EmbeddedChannel channel : this.channels) {
+            if (channel.releaseOutbound()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,248 @@
+package test.sdc.socket.server.session;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.eventbus.EventBus;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registration of sessions ({@link ClientRegistry#register(String, Channel, int)}) and lookups, in a registry that
+ * already holds many sessions. Channels are local channels, spread over a few event loops, so that they are all
+ * distinct and can be closed, which unregisters their sessions.
+ * Sessions cannot be registered twice, hence registrations are measured as batches of new sessions, which are closed
+ * after each iteration: an operation of {@link #register(Registering, Populated)} is a whole batch.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-Dio.netty.leakDetection.level=disabled"})
+public class ClientRegistryBenchmark {
+
+    private static final int EVENT_LOOPS = 4;
+    private static final int BATCH_SIZE = 10000;
+    private static final String LOGIN_PREFIX = "jmh-";
+
+    /**
+     * Registry that holds a given number of sessions.
+     */
+    @State(Scope.Benchmark)
+    public static class Populated {
+
+        /**
+         * Number of sessions of the registry.
+         */
+        @Param({"100000"})
+        public int sessions;
+
+        EventLoopGroup group;
+        ClientRegistry registry;
+        List<Channel> channels;
+        Channel spareChannel;
+
+        /**
+         * Register sessions on channels of their own, and open a channel that is not logged in.
+         */
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.group = new DefaultEventLoopGroup(EVENT_LOOPS);
+            this.registry = new ClientRegistry(new EventBus(), new MetricRegistry(), SlowConsumerPolicy.DISCONNECT, 0);
+            this.channels = newChannels(this.group, this.sessions);
+            for (int i = 0; i < this.sessions; i++) {
+                this.registry.register(LOGIN_PREFIX + i, this.channels.get(i), 0);
+            }
+            this.spareChannel = newChannels(this.group, 1).get(0);
+        }
+
+        /**
+         * Close channels, which unregisters their sessions, then stop event loops.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            closeChannels(this.channels);
+            this.spareChannel.close().syncUninterruptibly();
+            this.group.shutdownGracefully(0L, 0L, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+
+    }
+
+    /**
+     * Channels of the sessions registered during an iteration, which are closed at the end of it.
+     */
+    @State(Scope.Thread)
+    public static class Registering {
+
+        private List<Channel> channels;
+        private int iteration = 0;
+        private int next;
+
+        /**
+         * Open channels of the next batch.
+         *
+         * @param populated registry
+         */
+        @Setup(Level.Iteration)
+        public void setUp(final Populated populated) {
+            this.channels = newChannels(populated.group, BATCH_SIZE);
+            this.iteration++;
+            this.next = 0;
+        }
+
+        /**
+         * Close channels of the batch, which unregisters their sessions.
+         */
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            closeChannels(this.channels);
+        }
+
+    }
+
+    /**
+     * Random picks of registered sessions.
+     */
+    @State(Scope.Thread)
+    public static class Picking {
+
+        private final SplittableRandom random = new SplittableRandom(1L);
+
+        /**
+         * Pick index of a registered session.
+         *
+         * @param populated registry
+         * @return index
+         */
+        int next(final Populated populated) {
+            return this.random.nextInt(populated.sessions);
+        }
+
+    }
+
+    /**
+     * Register a batch of new sessions.
+     *
+     * @param state     channels of the batch
+     * @param populated registry
+     * @return registered session
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = BATCH_SIZE)
+    @Measurement(iterations = 10, batchSize = BATCH_SIZE)
+    public Optional<ClientSession> register(final Registering state, final Populated populated) {
+        final int index = state.next++;
+        return populated.registry.register("jmh-new-" + state.iteration + "-" + index, state.channels.get(index), 0);
+    }
+
+    /**
+     * Attempt to log in from a new channel with the login of a registered session, which is rejected.
+     *
+     * @param populated registry
+     * @param picking   picks of registered sessions
+     * @return no session
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 10, time = 1)
+    public Optional<ClientSession> registerDuplicateLogin(final Populated populated, final Picking picking) {
+        return populated.registry.register(LOGIN_PREFIX + picking.next(populated), populated.spareChannel, 0);
+    }
+
+    /**
+     * Attempt to log in again, with another login, from the channel of a registered session, which is rejected.
+     *
+     * @param populated registry
+     * @param picking   picks of registered sessions
+     * @return no session
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 10, time = 1)
+    public Optional<ClientSession> registerDuplicateChannel(final Populated populated, final Picking picking) {
+        return populated.registry.register("jmh-other", populated.channels.get(picking.next(populated)), 0);
+    }
+
+    /**
+     * Get session by login.
+     *
+     * @param populated registry
+     * @param picking   picks of registered sessions
+     * @return session
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 10, time = 1)
+    public Optional<ClientSession> findByLogin(final Populated populated, final Picking picking) {
+        return populated.registry.find(LOGIN_PREFIX + picking.next(populated));
+    }
+
+    /**
+     * Get session by channel.
+     *
+     * @param populated registry
+     * @param picking   picks of registered sessions
+     * @return session
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 10, time = 1)
+    public Optional<ClientSession> findByChannel(final Populated populated, final Picking picking) {
+        return populated.registry.find(populated.channels.get(picking.next(populated)));
+    }
+
+    /**
+     * Open local channels, registered with event loops, but neither bound nor connected.
+     *
+     * @param group event loops
+     * @param count number of channels
+     * @return channels
+     */
+    private static List<Channel> newChannels(final EventLoopGroup group, final int count) {
+        final List<ChannelFuture> registrations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            registrations.add(group.register(new LocalChannel()));
+        }
+        final List<Channel> channels = new ArrayList<>(count);
+        for (final ChannelFuture registration : registrations) {
+            channels.add(registration.syncUninterruptibly().channel());
+        }
+        return channels;
+    }
+
+    /**
+     * Close channels, and wait for them to be closed.
+     *
+     * @param channels channels
+     */
+    private static void closeChannels(final List<Channel> channels) {
+        final List<ChannelFuture> closures = new ArrayList<>(channels.size());
+        for (final Channel channel : channels) {
+            closures.add(channel.close());
+        }
+        closures.forEach(ChannelFuture::syncUninterruptibly);
+    }
+
+}
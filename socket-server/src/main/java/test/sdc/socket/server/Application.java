@@ -1,6 +1,7 @@
 package test.sdc.socket.server;
 
 import dagger.ObjectGraph;
+import test.sdc.socket.common.buffer.LeakDetection;
 
 import java.util.concurrent.Executors;
 
@@ -15,6 +16,7 @@ public final class Application {
      * @param args start-up arguments
      */
     public static void main(final String[] args) {
+        LeakDetection.install();
         final ObjectGraph objectGraph = ObjectGraph.create(new ServerModule());
         final Server server = objectGraph.get(Server.class);
         Executors.newSingleThreadExecutor().submit(server);
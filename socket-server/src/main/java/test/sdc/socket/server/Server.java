@@ -5,14 +5,17 @@ import com.codahale.metrics.MetricRegistry;
 import io.netty.channel.SimpleChannelInboundHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import test.sdc.socket.common.interfacing.ChannelInstrumentation;
+import test.sdc.socket.common.interfacing.FrameRecorder;
 import test.sdc.socket.model.protocol.MessageProtos.Message;
-import test.sdc.socket.server.data.Simulation;
 import test.sdc.socket.server.interfacing.DataUpdateManager;
 import test.sdc.socket.server.interfacing.ServerConnection;
+import test.sdc.socket.server.workload.WorkloadGenerator;
 
 import javax.inject.Inject;
-import javax.net.ssl.SSLException;
-import java.security.cert.CertificateException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 
 /**
  * Server.
@@ -24,28 +27,35 @@ public final class Server
 
     private final ServerConnection connection;
     private final SimpleChannelInboundHandler<Message> handler;
-    private final Simulation simulation;
+    private final WorkloadGenerator workloadGenerator;
     private DataUpdateManager dataUpdateManager;
+    private final ChannelInstrumentation instrumentation;
+    private final FrameRecorder frameRecorder;
     private final MetricRegistry metrics;
 
     /**
      * Constructor.
      *
-     * @param connection connection
-     * @param handler    message handler
-     * @param simulation simulation
+     * @param connection        connection
+     * @param handler           message handler
+     * @param workloadGenerator workload generator
      * @param dataUpdateManager data update sender
-     * @param metrics metric registry
+     * @param instrumentation   channel instrumentation
+     * @param frameRecorder     frame recorder (null if frames are not recorded)
+     * @param metrics           metric registry
      */
     @Inject
     public Server(final ServerConnection connection,
                   final SimpleChannelInboundHandler<Message> handler,
-                  final Simulation simulation, final DataUpdateManager dataUpdateManager,
+                  final WorkloadGenerator workloadGenerator, final DataUpdateManager dataUpdateManager,
+                  final ChannelInstrumentation instrumentation, final FrameRecorder frameRecorder,
                   final MetricRegistry metrics) {
         this.connection = connection;
         this.handler = handler;
-        this.simulation = simulation;
+        this.workloadGenerator = workloadGenerator;
         this.dataUpdateManager = dataUpdateManager;
+        this.instrumentation = instrumentation;
+        this.frameRecorder = frameRecorder;
         this.metrics = metrics;
     }
 
@@ -56,7 +66,7 @@ public final class Server
     public void run() {
         try {
             this.startMonitoring();
-            this.simulation.start();
+            this.workloadGenerator.start();
             this.startServer();
         } catch (final Exception ex) {
             LOGGER.error("Application start-up failed", ex);
@@ -67,11 +77,9 @@ public final class Server
      * Start server (blocking).
      *
      * @throws InterruptedException connection thread was interrupted
-     * @throws SSLException         indicates some kind of error detected by an SSL subsystem
-     * @throws CertificateException indicates one of a variety of certificate problems
      */
     private void startServer()
-            throws InterruptedException, SSLException, CertificateException {
+            throws InterruptedException {
         this.dataUpdateManager.startListening();
         Runtime.getRuntime().addShutdownHook(new Thread(this.connection::dispose));
         this.connection.start(this.handler);
@@ -79,11 +87,20 @@ public final class Server
 
     /**
      * Activate JMX monitoring.
+     *
+     * @throws JMException management beans cannot be registered
      */
-    private void startMonitoring() {
+    private void startMonitoring()
+            throws JMException {
         final JmxReporter reporter = JmxReporter.forRegistry(this.metrics).build();
         Runtime.getRuntime().addShutdownHook(new Thread(reporter::stop));
         reporter.start();
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this.instrumentation,
+                new ObjectName("test.sdc.socket.server", "type", ChannelInstrumentation.class.getSimpleName()));
+        if (this.frameRecorder != null) {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this.frameRecorder,
+                    new ObjectName("test.sdc.socket.server", "type", FrameRecorder.class.getSimpleName()));
+        }
     }
 
 }
\ No newline at end of file
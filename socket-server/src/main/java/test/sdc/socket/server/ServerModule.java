@@ -6,24 +6,52 @@ import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
 import dagger.Module;
 import dagger.Provides;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.WriteBufferWaterMark;
 import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.Transport;
+import test.sdc.socket.common.buffer.Allocators;
+import test.sdc.socket.common.buffer.LeakDetection;
+import test.sdc.socket.common.interfacing.ChannelInstrumentation;
+import test.sdc.socket.common.interfacing.FrameRecorder;
+import test.sdc.socket.common.interfacing.MessageCompression;
+import test.sdc.socket.common.ssl.SslSupport;
 import test.sdc.socket.model.protocol.MessageProtos.Message;
-import test.sdc.socket.server.data.DataRepository;
+import test.sdc.socket.server.data.DataElement;
+import test.sdc.socket.server.data.DataStreams;
+import test.sdc.socket.server.dispatch.DataUpdateDispatcher;
+import test.sdc.socket.server.dispatch.WaitStrategy;
 import test.sdc.socket.server.interfacing.DataUpdateManager;
 import test.sdc.socket.server.interfacing.ServerMessageHandler;
+import test.sdc.socket.server.interfacing.SessionWriter;
+import test.sdc.socket.server.interfacing.SnapshotStreamer;
+import test.sdc.socket.server.interfacing.SubscriptionManager;
 import test.sdc.socket.server.session.ClientRegistry;
+import test.sdc.socket.server.session.SlowConsumerPolicy;
+import test.sdc.socket.server.session.SubscriptionIndex;
+import test.sdc.socket.server.workload.WorkloadSettings;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
 import java.util.concurrent.Executors;
 
 /**
  * Module in charge of building the dependency graph of the application.
+ * Modules that override some of its bindings can reuse it, for instance to run the server along with its clients.
  */
 @Module(injects = {Server.class})
-final class ServerModule {
+public final class ServerModule {
+
+    @Named("host")
+    @Provides
+    String provideServerHost() {
+        return null; // All interfaces
+    }
 
     @Named("port")
     @Provides
@@ -37,6 +65,56 @@ final class ServerModule {
         return false;
     }
 
+    @Named("sslProvider")
+    @Provides
+    String provideSslProviderKey() {
+        return null; // Automatic selection
+    }
+
+    @Named("sslKeyStore")
+    @Provides
+    String provideSslKeyStorePath() {
+        return null; // Self-signed certificate, generated at start-up
+    }
+
+    @Named("sslKeyStorePassword")
+    @Provides
+    String provideSslKeyStorePassword() {
+        return null;
+    }
+
+    @Named("sslSessionCacheSize")
+    @Provides
+    Long provideSslSessionCacheSize() {
+        return null; // Provider default
+    }
+
+    @Named("sslSessionTimeout")
+    @Provides
+    Duration provideSslSessionTimeout() {
+        return null; // Provider default
+    }
+
+    @Provides
+    @Singleton
+    SslSupport provideSslSupport(@Named("sslEnabled") final Boolean sslEnabled,
+                                 @Named("sslProvider") final String providerKey,
+                                 @Named("sslKeyStore") final String keyStorePath,
+                                 @Named("sslKeyStorePassword") final String keyStorePassword,
+                                 @Named("sslSessionCacheSize") final Long sessionCacheSize,
+                                 @Named("sslSessionTimeout") final Duration sessionTimeout,
+                                 final MetricRegistry metrics) {
+        if (!sslEnabled) {
+            return null;
+        }
+        try {
+            return SslSupport.forServer(providerKey, keyStorePath, keyStorePassword, sessionCacheSize,
+                    sessionTimeout, metrics);
+        } catch (final GeneralSecurityException | IOException ex) {
+            throw new IllegalStateException("SSL context cannot be initialized", ex);
+        }
+    }
+
     @Provides
     Charset provideEncodingCharset() {
         return Charsets.UTF_8;
@@ -47,6 +125,189 @@ final class ServerModule {
         return null;
     }
 
+    @Named("messageCompressionFormats")
+    @Provides
+    String provideMessageCompressionFormats() {
+        return "SNAPPY,ZLIB";
+    }
+
+    @Named("messageCompressionThreshold")
+    @Provides
+    Integer provideMessageCompressionThreshold() {
+        return 512;
+    }
+
+    @Named("maxMessageSize")
+    @Provides
+    Integer provideMaxMessageSize() {
+        return 16 * 1024 * 1024; // Once decompressed
+    }
+
+    @Provides
+    @Singleton
+    MessageCompression provideMessageCompression(@Named("messageCompressionFormats") final String formatKeys,
+                                                 @Named("messageCompressionThreshold") final Integer threshold,
+                                                 @Named("maxMessageSize") final Integer maxMessageSize,
+                                                 final MetricRegistry metrics) {
+        return new MessageCompression(formatKeys, threshold, maxMessageSize, metrics);
+    }
+
+    @Named("channelInstrumentation")
+    @Provides
+    Boolean provideChannelInstrumentationActivation() {
+        return false; // Can be switched on through JMX
+    }
+
+    @Provides
+    @Singleton
+    ChannelInstrumentation provideChannelInstrumentation(@Named("channelInstrumentation") final Boolean enabled,
+                                                         final MetricRegistry metrics) {
+        return new ChannelInstrumentation(enabled, metrics);
+    }
+
+    @Named("frameRecorderSize")
+    @Provides
+    Integer provideFrameRecorderSize() {
+        return 1024; // No frame is recorded if 0
+    }
+
+    @Named("frameRecorderMaxFrameSize")
+    @Provides
+    Integer provideFrameRecorderMaxFrameSize() {
+        return 4096;
+    }
+
+    @Provides
+    @Singleton
+    FrameRecorder provideFrameRecorder(@Named("frameRecorderSize") final Integer size,
+                                       @Named("frameRecorderMaxFrameSize") final Integer maxFrameSize) {
+        return size == 0 ? null : new FrameRecorder(size, maxFrameSize);
+    }
+
+    @Named("transport")
+    @Provides
+    String provideTransportKey() {
+        return null; // Automatic selection
+    }
+
+    @Provides
+    @Singleton
+    Transport provideTransport(@Named("transport") final String transportKey) {
+        return Transport.select(transportKey);
+    }
+
+    @Named("allocatorPooled")
+    @Provides
+    Boolean provideAllocatorPooling() {
+        return true;
+    }
+
+    @Named("allocatorPreferDirect")
+    @Provides
+    Boolean provideAllocatorDirectPreference() {
+        return true;
+    }
+
+    @Named("allocatorArenas")
+    @Provides
+    Integer provideAllocatorArenas() {
+        return null; // Netty default
+    }
+
+    @Named("allocatorChunkSize")
+    @Provides
+    Integer provideAllocatorChunkSize() {
+        return null; // Netty default
+    }
+
+    @Named("leakDetectionLevel")
+    @Provides
+    String provideLeakDetectionLevel() {
+        return null; // Netty default, unless set by system property
+    }
+
+    @Provides
+    @Singleton
+    ByteBufAllocator provideAllocator(@Named("allocatorPooled") final Boolean pooled,
+                                      @Named("allocatorPreferDirect") final Boolean preferDirect,
+                                      @Named("allocatorArenas") final Integer nbArenas,
+                                      @Named("allocatorChunkSize") final Integer chunkSize,
+                                      @Named("leakDetectionLevel") final String leakDetectionLevel,
+                                      final MetricRegistry metrics) {
+        LeakDetection.configure(leakDetectionLevel, metrics);
+        final ByteBufAllocator allocator = Allocators.newAllocator(pooled, preferDirect, nbArenas, chunkSize);
+        Allocators.registerMetrics(allocator, metrics);
+        return allocator;
+    }
+
+    @Provides
+    WriteBufferWaterMark provideWriteBufferWaterMark() {
+        return new WriteBufferWaterMark(32 * 1024, 64 * 1024);
+    }
+
+    @Provides
+    SlowConsumerPolicy provideSlowConsumerPolicy() {
+        return SlowConsumerPolicy.DISCONNECT;
+    }
+
+    @Named("maxUpdateRate")
+    @Provides
+    Integer provideMaxUpdateRate() {
+        return 0; // Unlimited, unless client asks otherwise
+    }
+
+    @Named("slowConsumerDisconnectDelay")
+    @Provides
+    Duration provideSlowConsumerDisconnectDelay() {
+        return Duration.ofSeconds(30L);
+    }
+
+    @Named("outboundMemoryBudget")
+    @Provides
+    Long provideOutboundMemoryBudget() {
+        return 256L * 1024L * 1024L;
+    }
+
+    @Named("snapshotChunkSize")
+    @Provides
+    Integer provideSnapshotChunkSize() {
+        return 256;
+    }
+
+    @Provides
+    WorkloadSettings provideWorkloadSettings() {
+        return WorkloadSettings.fromProperties(System.getProperties());
+    }
+
+    @Named("dispatcherRingSize")
+    @Provides
+    Integer provideDispatcherRingSize() {
+        return 4096;
+    }
+
+    @Provides
+    WaitStrategy provideDispatcherWaitStrategy() {
+        return WaitStrategy.BLOCKING;
+    }
+
+    @Named("batchMaxSize")
+    @Provides
+    Integer provideBatchMaxSize() {
+        return 64;
+    }
+
+    @Named("batchMaxDelay")
+    @Provides
+    Duration provideBatchMaxDelay() {
+        return Duration.ofNanos(500_000L);
+    }
+
+    @Named("latencyTimestamps")
+    @Provides
+    Boolean provideLatencyTimestamps() {
+        return false; // Updates only carry their times when latency is measured
+    }
+
     @Provides
     SimpleChannelInboundHandler<Message> provideMessageHandler(final ServerMessageHandler handler) {
         return handler;
@@ -66,20 +327,72 @@ final class ServerModule {
 
     @Provides
     @Singleton
-    ClientRegistry provideClientRegistry(final EventBus eventBus, final MetricRegistry metrics) {
-        return new ClientRegistry(eventBus, metrics);
+    ClientRegistry provideClientRegistry(final EventBus eventBus, final MetricRegistry metrics,
+                                         final SlowConsumerPolicy slowConsumerPolicy,
+                                         @Named("maxUpdateRate") final Integer maxUpdateRate) {
+        return new ClientRegistry(eventBus, metrics, slowConsumerPolicy, maxUpdateRate);
+    }
+
+    @Provides
+    @Singleton
+    DataUpdateDispatcher<DataElement> provideDataUpdateDispatcher(@Named("dispatcherRingSize") final Integer ringSize,
+                                                                  final WaitStrategy waitStrategy,
+                                                                  final MetricRegistry metrics) {
+        return new DataUpdateDispatcher<>(ringSize, waitStrategy, metrics);
+    }
+
+    @Provides
+    @Singleton
+    DataStreams provideDataStreams(final DataUpdateDispatcher<DataElement> dispatcher,
+                                   final MetricRegistry metrics) {
+        return new DataStreams(dispatcher, metrics);
+    }
+
+    @Provides
+    @Singleton
+    SubscriptionIndex provideSubscriptionIndex(final MetricRegistry metrics) {
+        return new SubscriptionIndex(metrics);
+    }
+
+    @Provides
+    @Singleton
+    SubscriptionManager provideSubscriptionManager(final SubscriptionIndex subscriptionIndex,
+                                                   final DataStreams streams,
+                                                   final SnapshotStreamer snapshotStreamer,
+                                                   final EventBus eventBus) {
+        return new SubscriptionManager(subscriptionIndex, streams, snapshotStreamer, eventBus);
+    }
+
+    @Provides
+    @Singleton
+    SessionWriter provideSessionWriter(final SnapshotStreamer snapshotStreamer,
+                                       @Named("outboundMemoryBudget") final Long outboundMemoryBudget,
+                                       @Named("slowConsumerDisconnectDelay") final Duration disconnectDelay,
+                                       final MetricRegistry metrics) {
+        return new SessionWriter(snapshotStreamer, outboundMemoryBudget, disconnectDelay, metrics);
     }
 
     @Provides
     @Singleton
-    DataRepository provideDataRepository(final EventBus eventBus, final MetricRegistry metrics) {
-        return new DataRepository(eventBus, metrics);
+    SnapshotStreamer provideSnapshotStreamer(final DataStreams streams,
+                                             @Named("snapshotChunkSize") final Integer chunkSize,
+                                             final Charset encodingCharset, final MetricRegistry metrics) {
+        return new SnapshotStreamer(streams, chunkSize, encodingCharset, metrics);
     }
 
     @Provides
     @Singleton
-    DataUpdateManager provideDataUpdateManager(final ClientRegistry registry, final EventBus eventBus) {
-        return new DataUpdateManager(registry, eventBus);
+    DataUpdateManager provideDataUpdateManager(final SubscriptionIndex subscriptionIndex,
+                                               final SessionWriter sessionWriter,
+                                               final DataUpdateDispatcher<DataElement> dispatcher,
+                                               @Named("batchMaxSize") final Integer batchMaxSize,
+                                               @Named("batchMaxDelay") final Duration batchMaxDelay,
+                                               @Named("latencyTimestamps") final Boolean latencyTimestamps,
+                                               final ByteBufAllocator allocator, final Charset encodingCharset,
+                                               final MessageCompression messageCompression,
+                                               final MetricRegistry metrics) {
+        return new DataUpdateManager(subscriptionIndex, sessionWriter, dispatcher, batchMaxSize, batchMaxDelay,
+                latencyTimestamps, allocator, encodingCharset, messageCompression, metrics);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,109 @@
+package test.sdc.socket.server.data;
+
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Append-only log of elements, each of them identified by a monotonically increasing sequence number.
+ * Elements are stored in fixed-size segments, so that the log grows without copying them.
+ * Appends are serialized, while reads are lock-free: an element is visible to readers once the size of the log
+ * has been published, and it never changes afterwards.
+ *
+ * @param <T> element type
+ */
+public final class AppendOnlyLog<T> {
+
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final long firstSequence;
+    private volatile Object[][] segments = new Object[1][];
+    private volatile long size = 0L;
+
+    /**
+     * Constructor.
+     *
+     * @param firstSequence sequence number of the first element of the log
+     */
+    public AppendOnlyLog(final long firstSequence) {
+        this.firstSequence = firstSequence;
+    }
+
+    /**
+     * Append element.
+     *
+     * @param element element
+     * @return sequence number of the element
+     */
+    public synchronized long append(final T element) {
+        requireNonNull(element, "Element must not be null");
+        final long index = this.size;
+        final int segmentIndex = (int) (index >>> SEGMENT_SHIFT);
+        Object[][] directory = this.segments;
+        if (segmentIndex == directory.length) {
+            directory = Arrays.copyOf(directory, directory.length * 2);
+            this.segments = directory;
+        }
+        if (directory[segmentIndex] == null) {
+            directory[segmentIndex] = new Object[SEGMENT_SIZE];
+        }
+        directory[segmentIndex][(int) index & SEGMENT_MASK] = element;
+        // Publish element
+        this.size = index + 1;
+        return this.firstSequence + index;
+    }
+
+    /**
+     * Get view of the log pinned at its current version, in constant time.
+     *
+     * @return snapshot
+     */
+    public LogSnapshot<T> snapshot() {
+        return new LogSnapshot<>(this, this.size);
+    }
+
+    /**
+     * Get sequence number of the first element of the log.
+     *
+     * @return first sequence number
+     */
+    public long getFirstSequence() {
+        return this.firstSequence;
+    }
+
+    /**
+     * Get sequence number that the next element will be assigned.
+     *
+     * @return next sequence number
+     */
+    public long getNextSequence() {
+        return this.firstSequence + this.size;
+    }
+
+    /**
+     * Get number of elements.
+     *
+     * @return number of elements
+     */
+    public long size() {
+        return this.size;
+    }
+
+    /**
+     * Get published element.
+     *
+     * @param index index of the element in the log (sequence number minus first sequence number)
+     * @return element
+     */
+    @SuppressWarnings("unchecked")
+    T get(final long index) {
+        // Reading the size first makes the element visible
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException(String.format("No element at index %d", index));
+        }
+        return (T) this.segments[(int) (index >>> SEGMENT_SHIFT)][(int) index & SEGMENT_MASK];
+    }
+
+}
@@ -0,0 +1,67 @@
+package test.sdc.socket.server.data;
+
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Element of a data stream: a label, possibly associated to a key. An element supersedes the previous elements of the
+ * stream with the same key.
+ */
+public final class DataElement {
+
+    private final String stream;
+    private final String key;
+    private final String label;
+
+    /**
+     * Constructor.
+     *
+     * @param stream name of the stream
+     * @param key    key (null if element cannot be superseded)
+     * @param label  label
+     */
+    public DataElement(final String stream, final String key, final String label) {
+        this.stream = requireNonNull(stream, "Stream must not be null");
+        this.key = key;
+        this.label = requireNonNull(label, "Label must not be null");
+    }
+
+    /**
+     * Get name of the stream.
+     *
+     * @return name of the stream
+     */
+    public String getStream() {
+        return this.stream;
+    }
+
+    /**
+     * Get key.
+     *
+     * @return key (empty if element cannot be superseded)
+     */
+    public Optional<String> getKey() {
+        return Optional.ofNullable(this.key);
+    }
+
+    /**
+     * Get label.
+     *
+     * @return label
+     */
+    public String getLabel() {
+        return this.label;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return this.key == null
+                ? String.format("%s: %s", this.stream, this.label)
+                : String.format("%s: %s=%s", this.stream, this.key, this.label);
+    }
+
+}
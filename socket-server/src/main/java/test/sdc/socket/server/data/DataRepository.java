@@ -2,27 +2,40 @@ package test.sdc.socket.server.data;
 
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.eventbus.EventBus;
+import test.sdc.socket.server.dispatch.DataUpdateDispatcher;
 
-import javax.inject.Inject;
+import static java.util.Objects.requireNonNull;
 
 /**
- * Data repository.
+ * Data repository of a stream, whose elements are numbered independently from the ones of the other streams.
  */
 public final class DataRepository
-        extends GenericDataRepository<String> {
+        extends GenericDataRepository<DataElement> {
+
+    private final String name;
 
     /**
      * Constructor.
      *
-     * @param eventBus event bus
-     * @param metrics metric registry
+     * @param name       name of the stream
+     * @param dispatcher dispatcher of data updates
+     * @param metrics    metric registry
+     */
+    public DataRepository(final String name, final DataUpdateDispatcher<DataElement> dispatcher,
+                          final MetricRegistry metrics) {
+        super(dispatcher);
+        this.name = requireNonNull(name, "Name must not be null");
+        metrics.register(MetricRegistry.name(this.getClass(), name, "size"),
+                (Gauge<Long>) DataRepository.this::size);
+    }
+
+    /**
+     * Get name of the stream.
+     *
+     * @return name of the stream
      */
-    @Inject
-    public DataRepository(final EventBus eventBus, final MetricRegistry metrics) {
-        super(eventBus);
-        metrics.register(MetricRegistry.name(this.getClass(), "size"),
-                (Gauge<Integer>) DataRepository.this.elements::size);
+    public String getName() {
+        return this.name;
     }
 
-}
\ No newline at end of file
+}
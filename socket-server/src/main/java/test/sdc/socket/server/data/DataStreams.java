@@ -0,0 +1,139 @@
+package test.sdc.socket.server.data;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import test.sdc.socket.server.dispatch.DataUpdateDispatcher;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Named data streams, each of them with its own repository. Streams are created when their first elements are added.
+ * Updates of all streams go through the same dispatcher, in the order elements are added.
+ */
+public final class DataStreams {
+
+    private final ConcurrentNavigableMap<String, DataRepository> repositories = new ConcurrentSkipListMap<>();
+    private final DataUpdateDispatcher<DataElement> dispatcher;
+    private final MetricRegistry metrics;
+
+    /**
+     * Constructor.
+     *
+     * @param dispatcher dispatcher of data updates
+     * @param metrics    metric registry
+     */
+    @Inject
+    public DataStreams(final DataUpdateDispatcher<DataElement> dispatcher, final MetricRegistry metrics) {
+        this.dispatcher = dispatcher;
+        this.metrics = metrics;
+        metrics.register(MetricRegistry.name(this.getClass(), "number"),
+                (Gauge<Integer>) DataStreams.this.repositories::size);
+    }
+
+    /**
+     * Replace list of elements of a stream.
+     *
+     * @param stream   name of the stream
+     * @param elements list of elements, which all belong to the stream
+     */
+    public void setElements(final String stream, final List<DataElement> elements) {
+        requireNonNull(stream, "Stream must not be null");
+        elements.forEach(element -> checkStream(stream, element));
+        this.getOrCreate(stream).setElements(elements);
+    }
+
+    /**
+     * Add element to its stream. Updates are dispatched in the order elements are added, one at a time.
+     *
+     * @param element element
+     * @return sequence number of the element in its stream
+     */
+    public long add(final DataElement element) {
+        requireNonNull(element, "Element must not be null");
+        return this.getOrCreate(element.getStream()).add(element);
+    }
+
+    /**
+     * Add element to its stream, on behalf of a producer that intended to add it at a given time (see
+     * {@link GenericDataRepository#add(Object, long)}).
+     *
+     * @param element    element
+     * @param originTime time the element was intended to be added ({@link test.sdc.socket.common.metrics.EpochClock})
+     * @return sequence number of the element in its stream
+     */
+    public long add(final DataElement element, final long originTime) {
+        requireNonNull(element, "Element must not be null");
+        return this.getOrCreate(element.getStream()).add(element, originTime);
+    }
+
+    /**
+     * Get repository of a stream.
+     *
+     * @param stream name of the stream
+     * @return repository (empty if stream does not exist)
+     */
+    public Optional<DataRepository> find(final String stream) {
+        return Optional.ofNullable(this.repositories.get(stream));
+    }
+
+    /**
+     * Get repositories of the streams whose name starts with input prefix.
+     *
+     * @param prefix prefix of stream names (empty for all streams)
+     * @return repositories, by stream name
+     */
+    public List<DataRepository> findAll(final String prefix) {
+        requireNonNull(prefix, "Prefix must not be null");
+        final List<DataRepository> matches = new ArrayList<>();
+        for (final Map.Entry<String, DataRepository> entry : this.repositories.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            matches.add(entry.getValue());
+        }
+        return matches;
+    }
+
+    /**
+     * Get repository of a stream, which is created if it does not exist yet.
+     *
+     * @param stream name of the stream
+     * @return repository
+     */
+    private DataRepository getOrCreate(final String stream) {
+        DataRepository repository = this.repositories.get(stream);
+        if (repository == null) {
+            // Skip list may apply the mapping function more than once, which would register its metrics twice
+            synchronized (this.repositories) {
+                repository = this.repositories.get(stream);
+                if (repository == null) {
+                    repository = new DataRepository(stream, this.dispatcher, this.metrics);
+                    this.repositories.put(stream, repository);
+                }
+            }
+        }
+        return repository;
+    }
+
+    /**
+     * Check that element belongs to a stream.
+     *
+     * @param stream  name of the stream
+     * @param element element
+     */
+    private static void checkStream(final String stream, final DataElement element) {
+        if (!stream.equals(element.getStream())) {
+            throw new IllegalArgumentException(String.format("Element %s does not belong to stream %s",
+                    element, stream));
+        }
+    }
+
+}
@@ -1,17 +1,18 @@
 package test.sdc.socket.server.data;
 
-import com.google.common.collect.ImmutableCollection;
-import com.google.common.collect.ImmutableList;
-import com.google.common.eventbus.EventBus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import test.sdc.socket.server.event.DataUpdateEvent;
+import test.sdc.socket.common.metrics.EpochClock;
+import test.sdc.socket.server.dispatch.DataUpdateDispatcher;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Data repository.
+ * Elements are kept in an append-only log, so that readers never block writers. Replacing the list of elements
+ * starts a new log, whose sequence numbers follow the ones of the previous log.
+ * Repositories that share a dispatcher add their elements one at a time, as the dispatcher only accepts one publisher
+ * at a time.
  *
  * @param <T> data type
  */
@@ -19,16 +20,16 @@ abstract class GenericDataRepository<T> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GenericDataRepository.class);
 
-    protected final List<T> elements = new ArrayList<>();
-    protected final EventBus eventBus;
+    private volatile AppendOnlyLog<T> log = new AppendOnlyLog<>(0L);
+    private final DataUpdateDispatcher<T> dispatcher;
 
     /**
      * Constructor.
      *
-     * @param eventBus event bus
+     * @param dispatcher dispatcher of data updates
      */
-    public GenericDataRepository(final EventBus eventBus) {
-        this.eventBus = eventBus;
+    public GenericDataRepository(final DataUpdateDispatcher<T> dispatcher) {
+        this.dispatcher = dispatcher;
     }
 
     /**
@@ -37,27 +38,56 @@ abstract class GenericDataRepository<T> {
      * @param elements list of elements
      */
     public void setElements(final List<T> elements) {
-        this.elements.clear();
-        this.elements.addAll(elements);
+        synchronized (this.dispatcher) {
+            final AppendOnlyLog<T> newLog = new AppendOnlyLog<>(this.log.getNextSequence());
+            elements.forEach(newLog::append);
+            this.log = newLog;
+        }
     }
 
     /**
-     * Add element.
+     * Add element. Updates are dispatched in the order elements are added, one at a time, along with the time they
+     * were added.
      *
      * @param element element
+     * @return sequence number of the element
      */
-    public void add(final T element) {
-        this.elements.add(element);
-        this.eventBus.post(new DataUpdateEvent<>(element));
+    public long add(final T element) {
+        return this.add(element, EpochClock.now());
     }
 
     /**
-     * Get list of available elements.
+     * Add element on behalf of a producer that intended to add it at a given time, which is dispatched along with it
+     * instead of the time it is actually added, so that the delays of the producer are part of the latency.
+     *
+     * @param element    element
+     * @param originTime time the element was intended to be added ({@link EpochClock})
+     * @return sequence number of the element
+     */
+    public long add(final T element, final long originTime) {
+        synchronized (this.dispatcher) {
+            final long sequence = this.log.append(element);
+            this.dispatcher.publish(sequence, element, originTime);
+            return sequence;
+        }
+    }
+
+    /**
+     * Get list of available elements, as a view pinned at current version.
      *
      * @return list of elements
      */
-    public ImmutableCollection<T> findAll() {
-        return ImmutableList.copyOf(this.elements);
+    public LogSnapshot<T> findAll() {
+        return this.log.snapshot();
+    }
+
+    /**
+     * Get number of available elements.
+     *
+     * @return number of elements
+     */
+    public long size() {
+        return this.log.size();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package test.sdc.socket.server.data;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Unmodifiable view of an append-only log, pinned at a given version.
+ *
+ * @param <T> element type
+ */
+public final class LogSnapshot<T>
+        extends AbstractCollection<T> {
+
+    private final AppendOnlyLog<T> log;
+    private final long size;
+
+    /**
+     * Constructor.
+     *
+     * @param log  log
+     * @param size number of elements of the log that are part of the snapshot
+     */
+    LogSnapshot(final AppendOnlyLog<T> log, final long size) {
+        super();
+        this.log = log;
+        this.size = size;
+    }
+
+    /**
+     * Get sequence number of the first element of the snapshot.
+     *
+     * @return first sequence number
+     */
+    public long getFirstSequence() {
+        return this.log.getFirstSequence();
+    }
+
+    /**
+     * Get version of the snapshot, which is the sequence number of the first element that is not part of it.
+     *
+     * @return version
+     */
+    public long getVersion() {
+        return this.log.getFirstSequence() + this.size;
+    }
+
+    /**
+     * Get element from its sequence number.
+     *
+     * @param sequence sequence number
+     * @return element
+     */
+    public T get(final long sequence) {
+        final long index = sequence - this.log.getFirstSequence();
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException(String.format("No element with sequence number %d", sequence));
+        }
+        return this.log.get(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return this.iterator(this.getFirstSequence());
+    }
+
+    /**
+     * Iterate over elements, starting from input sequence number.
+     *
+     * @param fromSequence sequence number of the first element (inclusive)
+     * @return iterator
+     */
+    public Iterator<T> iterator(final long fromSequence) {
+        final long fromIndex = Math.max(0L, fromSequence - this.log.getFirstSequence());
+        return new Iterator<T>() {
+            private long index = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return this.index < LogSnapshot.this.size;
+            }
+
+            @Override
+            public T next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return LogSnapshot.this.log.get(this.index++);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, this.size);
+    }
+
+}
@@ -0,0 +1,62 @@
+package test.sdc.socket.server.dispatch;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Waiter that puts listeners to sleep until an update is published.
+ * The publisher only takes the lock when a listener is actually waiting.
+ */
+final class BlockingWaiter
+        implements Waiter {
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition published = this.lock.newCondition();
+    private final AtomicBoolean signalNeeded = new AtomicBoolean(false);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long waitFor(final long sequence, final AtomicLong cursor, final BooleanSupplier running)
+            throws InterruptedException {
+        long available = cursor.get();
+        if (available >= sequence) {
+            return available;
+        }
+        this.lock.lock();
+        try {
+            while ((available = cursor.get()) < sequence && running.getAsBoolean()) {
+                this.signalNeeded.set(true);
+                // Publisher (or stop) may have come before the flag was raised
+                if ((available = cursor.get()) >= sequence || !running.getAsBoolean()) {
+                    break;
+                }
+                this.published.await();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        return available;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void signalAll() {
+        if (this.signalNeeded.getAndSet(false)) {
+            this.lock.lock();
+            try {
+                this.published.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,237 @@
+package test.sdc.socket.server.dispatch;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Ring buffer that dispatches data updates from the repository to listeners, by increasing sequence number.
+ * Slots are allocated once, so that publishing an update only fills the next slot. Updates must be published by one
+ * thread at a time, holding the dispatcher lock. Each listener has its own thread and gets every update, while the
+ * publisher waits for the slowest listener when the ring is full.
+ *
+ * @param <T> data type
+ */
+public final class DataUpdateDispatcher<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataUpdateDispatcher.class);
+
+    private static final long NONE = -1L;
+
+    private final Slot<T>[] slots;
+    private final int mask;
+    private final Waiter waiter;
+    private final AtomicLong cursor = new AtomicLong(NONE);
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final BooleanSupplier isRunning = this::isRunning;
+    private final Meter publisherWaits;
+    private volatile boolean running = true;
+    private long nextSlotSequence = 0L;
+    private long cachedGatingSequence = NONE;
+
+    /**
+     * Constructor.
+     *
+     * @param ringSize     number of slots (power of 2)
+     * @param waitStrategy strategy applied by listeners that wait for updates
+     * @param metrics      metric registry
+     */
+    public DataUpdateDispatcher(final int ringSize, final WaitStrategy waitStrategy, final MetricRegistry metrics) {
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of 2");
+        }
+        requireNonNull(waitStrategy, "Wait strategy must not be null");
+        this.slots = newSlots(ringSize);
+        this.mask = ringSize - 1;
+        this.waiter = waitStrategy.newWaiter();
+        this.publisherWaits = metrics.meter(name(DataUpdateDispatcher.class, "publisherWaits"));
+        metrics.register(name(DataUpdateDispatcher.class, "backlog"),
+                (Gauge<Long>) () -> this.cursor.get() - this.getGatingSequence(this.cursor.get()));
+    }
+
+    /**
+     * Start dispatching updates to listener, from the next published one.
+     * Subscription is registered under the publisher lock, so that no update is published between reading the cursor
+     * and gating publishers on the new subscription.
+     *
+     * @param name     name of the listener, which names its thread
+     * @param listener listener
+     */
+    public void subscribe(final String name, final DataUpdateListener<? super T> listener) {
+        requireNonNull(name, "Name must not be null");
+        requireNonNull(listener, "Listener must not be null");
+        final Subscription subscription;
+        synchronized (this) {
+            subscription = new Subscription(listener, this.cursor.get());
+            this.subscriptions.add(subscription);
+        }
+        final Thread thread = new Thread(subscription, "data-update-dispatcher-" + name);
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.debug("Listener {} subscribed to data updates", name);
+    }
+
+    /**
+     * Publish update, once its slot has been processed by all listeners (dispatcher lock only).
+     *
+     * @param sequence   sequence number of updated data element
+     * @param element    updated data element
+     * @param originTime time the element was added to the repository
+     */
+    public void publish(final long sequence, final T element, final long originTime) {
+        final long slotSequence = this.nextSlotSequence;
+        final long wrapPoint = slotSequence - this.slots.length;
+        if (wrapPoint > this.cachedGatingSequence) {
+            long gatingSequence = this.getGatingSequence(slotSequence - 1);
+            if (wrapPoint > gatingSequence) {
+                this.publisherWaits.mark();
+                do {
+                    LockSupport.parkNanos(1L);
+                    gatingSequence = this.getGatingSequence(slotSequence - 1);
+                } while (wrapPoint > gatingSequence);
+            }
+            this.cachedGatingSequence = gatingSequence;
+        }
+        final Slot<T> slot = this.slots[(int) slotSequence & this.mask];
+        slot.sequence = sequence;
+        slot.element = element;
+        slot.originTime = originTime;
+        this.nextSlotSequence = slotSequence + 1;
+        this.cursor.set(slotSequence);
+        this.waiter.signalAll();
+    }
+
+    /**
+     * Stop dispatching updates. Listeners finish processing the updates they have already started with.
+     */
+    public void stop() {
+        this.running = false;
+        this.waiter.signalAll();
+    }
+
+    /**
+     * Check if updates are being dispatched.
+     *
+     * @return dispatcher is running
+     */
+    private boolean isRunning() {
+        return this.running;
+    }
+
+    /**
+     * Get slot sequence of the last update processed by the slowest listener.
+     *
+     * @param defaultSequence value returned if there is no listener
+     * @return slot sequence
+     */
+    private long getGatingSequence(final long defaultSequence) {
+        long min = defaultSequence;
+        for (final Subscription subscription : this.subscriptions) {
+            min = Math.min(min, subscription.sequence.get());
+        }
+        return min;
+    }
+
+    /**
+     * Allocate slots of the ring.
+     *
+     * @param ringSize number of slots
+     * @param <T>      data type
+     * @return slots
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Slot<T>[] newSlots(final int ringSize) {
+        final Slot<T>[] slots = new Slot[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            slots[i] = new Slot<>();
+        }
+        return slots;
+    }
+
+    /**
+     * Slot of the ring.
+     *
+     * @param <T> data type
+     */
+    private static final class Slot<T> {
+
+        private long sequence;
+        private T element;
+        private long originTime;
+
+    }
+
+    /**
+     * Processing of the updates by a listener, which runs on its own thread.
+     */
+    private final class Subscription
+            implements Runnable {
+
+        private final DataUpdateListener<? super T> listener;
+        private final AtomicLong sequence;
+
+        /**
+         * Constructor.
+         *
+         * @param listener        listener
+         * @param initialSequence slot sequence of the last update that the listener must not get
+         */
+        private Subscription(final DataUpdateListener<? super T> listener, final long initialSequence) {
+            this.listener = listener;
+            this.sequence = new AtomicLong(initialSequence);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            long nextSequence = this.sequence.get() + 1;
+            try {
+                while (DataUpdateDispatcher.this.running) {
+                    final long available = DataUpdateDispatcher.this.waiter.waitFor(nextSequence,
+                            DataUpdateDispatcher.this.cursor, DataUpdateDispatcher.this.isRunning);
+                    for (; nextSequence <= available; nextSequence++) {
+                        final Slot<T> slot = DataUpdateDispatcher.this.slots[(int) nextSequence
+                                & DataUpdateDispatcher.this.mask];
+                        this.process(slot.sequence, slot.element, slot.originTime);
+                    }
+                    // Slots can be reused from now on
+                    this.sequence.lazySet(nextSequence - 1);
+                }
+            } catch (final InterruptedException ex) {
+                LOGGER.warn("Dispatching of data updates interrupted");
+                Thread.currentThread().interrupt();
+            } finally {
+                DataUpdateDispatcher.this.subscriptions.remove(this);
+            }
+        }
+
+        /**
+         * Hand update over to listener.
+         *
+         * @param updateSequence sequence number of updated data element
+         * @param element        updated data element
+         * @param originTime     time the element was added to the repository
+         */
+        private void process(final long updateSequence, final T element, final long originTime) {
+            try {
+                this.listener.onDataUpdate(updateSequence, element, originTime);
+            } catch (final Exception ex) {
+                LOGGER.error("Failed to process data update #{}", updateSequence, ex);
+            }
+        }
+    }
+
+}
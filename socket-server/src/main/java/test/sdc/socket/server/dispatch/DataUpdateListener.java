@@ -0,0 +1,23 @@
+package test.sdc.socket.server.dispatch;
+
+import test.sdc.socket.common.metrics.EpochClock;
+
+/**
+ * Listener of the data updates that are dispatched from the repository.
+ *
+ * @param <T> data type
+ */
+@FunctionalInterface
+public interface DataUpdateListener<T> {
+
+    /**
+     * Process data update. Updates are processed one at a time, by increasing sequence number.
+     *
+     * @param sequence   sequence number of updated data element
+     * @param element    updated data element
+     * @param originTime time the element was added to the repository, or intended to be added by its producer
+     *                   ({@link EpochClock})
+     */
+    void onDataUpdate(long sequence, T element, long originTime);
+
+}
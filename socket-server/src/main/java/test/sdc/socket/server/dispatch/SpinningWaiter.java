@@ -0,0 +1,46 @@
+package test.sdc.socket.server.dispatch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Waiter that keeps checking for published updates, possibly yielding the CPU after a number of attempts.
+ */
+final class SpinningWaiter
+        implements Waiter {
+
+    private final int spinTries;
+
+    /**
+     * Constructor.
+     *
+     * @param spinTries number of attempts before yielding the CPU between attempts (negative to never yield)
+     */
+    SpinningWaiter(final int spinTries) {
+        this.spinTries = spinTries;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long waitFor(final long sequence, final AtomicLong cursor, final BooleanSupplier running) {
+        int tries = 0;
+        long available;
+        while ((available = cursor.get()) < sequence && running.getAsBoolean()) {
+            if (this.spinTries >= 0 && ++tries > this.spinTries) {
+                Thread.yield();
+            }
+        }
+        return available;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void signalAll() {
+        // Nothing to do: listeners do not sleep
+    }
+
+}
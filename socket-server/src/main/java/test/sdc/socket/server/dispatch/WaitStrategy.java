@@ -0,0 +1,90 @@
+package test.sdc.socket.server.dispatch;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Strategies applied by listeners that wait for data updates to be dispatched, which trade CPU usage for latency.
+ */
+public enum WaitStrategy {
+
+    /**
+     * Sleep until an update is published: lowest CPU usage, highest latency.
+     */
+    BLOCKING("BLOCKING") {
+        @Override
+        Waiter newWaiter() {
+            return new BlockingWaiter();
+        }
+    },
+    /**
+     * Keep checking for updates, yielding the CPU to other threads after a few attempts.
+     */
+    YIELDING("YIELDING") {
+        @Override
+        Waiter newWaiter() {
+            return new SpinningWaiter(100);
+        }
+    },
+    /**
+     * Keep checking for updates without ever yielding the CPU: lowest latency, but each listener uses a core.
+     */
+    BUSY_SPIN("BUSY_SPIN") {
+        @Override
+        Waiter newWaiter() {
+            return new SpinningWaiter(-1);
+        }
+    };
+
+    private static final Map<String, WaitStrategy> KEY_INDEX = new HashMap<>();
+
+    static {
+        for (final WaitStrategy instance : WaitStrategy.values()) {
+            final String keyUC = instance.key == null ? null : instance.key.toUpperCase(Locale.ROOT);
+            KEY_INDEX.put(keyUC, instance);
+        }
+    }
+
+    private final String key;
+
+    /**
+     * Constructor.
+     *
+     * @param key configuration key
+     */
+    WaitStrategy(final String key) {
+        this.key = key;
+    }
+
+    /**
+     * Get instance from corresponding key (not case sensitive).
+     *
+     * @param key key
+     * @return instance
+     */
+    public static Optional<WaitStrategy> of(final String key) {
+        final String keyUC = key == null ? null : key.toUpperCase(Locale.ROOT);
+        return KEY_INDEX.containsKey(keyUC)
+                ? Optional.of(KEY_INDEX.get(keyUC))
+                : Optional.empty();
+    }
+
+    /**
+     * Get key used to identify strategy.
+     *
+     * @return key used to identify strategy
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Create waiter shared by the listeners of a dispatcher.
+     *
+     * @return waiter
+     */
+    abstract Waiter newWaiter();
+
+}
@@ -0,0 +1,29 @@
+package test.sdc.socket.server.dispatch;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Way a listener waits for data updates to be published.
+ */
+interface Waiter {
+
+    /**
+     * Wait for an update to be published.
+     *
+     * @param sequence slot sequence of the update
+     * @param cursor   slot sequence of the last published update
+     * @param running  check if the dispatcher is still running
+     * @return slot sequence of the last published update, which is at least the expected one unless the dispatcher
+     * has been stopped
+     * @throws InterruptedException listener thread was interrupted
+     */
+    long waitFor(long sequence, AtomicLong cursor, BooleanSupplier running)
+            throws InterruptedException;
+
+    /**
+     * Wake listeners up, once an update has been published (or the dispatcher has been stopped).
+     */
+    void signalAll();
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Dispatch of data updates from the repository to their listeners.
+ */
+package test.sdc.socket.server.dispatch;
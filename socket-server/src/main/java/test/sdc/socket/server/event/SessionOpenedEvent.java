@@ -0,0 +1,38 @@
+package test.sdc.socket.server.event;
+
+import test.sdc.socket.server.session.ClientSession;
+
+/**
+ * Event triggered when the session of a client that just logged in has been registered.
+ */
+public final class SessionOpenedEvent {
+
+    private final ClientSession session;
+
+    /**
+     * Constructor.
+     *
+     * @param session session
+     */
+    public SessionOpenedEvent(final ClientSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Get session.
+     *
+     * @return session
+     */
+    public ClientSession getSession() {
+        return this.session;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.format("Session of client %s opened", this.session);
+    }
+
+}
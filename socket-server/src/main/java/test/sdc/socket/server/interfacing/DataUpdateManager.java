@@ -1,79 +1,198 @@
 package test.sdc.socket.server.interfacing;
 
-import com.google.common.eventbus.AllowConcurrentEvents;
-import com.google.common.eventbus.EventBus;
-import com.google.common.eventbus.Subscribe;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBufAllocator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import test.sdc.socket.common.interfacing.MessageCompression;
+import test.sdc.socket.common.metrics.EpochClock;
 import test.sdc.socket.model.protocol.MessageProtos.Message;
+import test.sdc.socket.model.protocol.data.DataUpdateBatchProtos.DataUpdateBatch;
 import test.sdc.socket.model.protocol.data.DataUpdateProtos.DataUpdate;
-import test.sdc.socket.server.event.DataUpdateEvent;
-import test.sdc.socket.server.session.ClientRegistry;
+import test.sdc.socket.server.data.DataElement;
+import test.sdc.socket.server.dispatch.DataUpdateDispatcher;
+import test.sdc.socket.server.session.EventLoopSessions;
+import test.sdc.socket.server.session.SubscriptionIndex;
 
 import javax.inject.Inject;
-import java.util.UUID;
+import javax.inject.Named;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
 
 /**
- * In charge of deciding when to send data updates.
+ * In charge of deciding when to send data updates, and to which sessions.
+ * Updates are batched, so that a single message is sent for all the updates of a stream in a short time window.
+ * Each batch only goes to the sessions that subscribed to its stream.
+ * Updates may carry the times they went through the server, so that clients can break their latency down.
  */
 public final class DataUpdateManager {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DataUpdateManager.class);
 
-    private final ClientRegistry clientRegistry;
-    private final EventBus eventBus;
+    private final SubscriptionIndex subscriptionIndex;
+    private final SessionWriter sessionWriter;
+    private final DataUpdateDispatcher<DataElement> dispatcher;
+    private final UpdateBatcher batcher;
+    private final ByteBufAllocator allocator;
+    private final Charset encodingCharset;
+    private final MessageCompression messageCompression;
+    private final boolean latencyTimestamps;
 
     /**
      * Constructor.
      *
-     * @param clientRegistry client registry
-     * @param eventBus       event bus
+     * @param subscriptionIndex  subscription index
+     * @param sessionWriter      session writer
+     * @param dispatcher         dispatcher of data updates
+     * @param batchMaxSize       maximum number of updates sent in a single message
+     * @param batchMaxDelay      maximum delay before an update is sent
+     * @param latencyTimestamps  updates carry the times they went through the server
+     * @param allocator          buffer allocator
+     * @param encodingCharset    encoding character set of text fields
+     * @param messageCompression message compression
+     * @param metrics            metric registry
      */
     @Inject
-    public DataUpdateManager(final ClientRegistry clientRegistry, final EventBus eventBus) {
-        this.clientRegistry = clientRegistry;
-        this.eventBus = eventBus;
+    public DataUpdateManager(final SubscriptionIndex subscriptionIndex, final SessionWriter sessionWriter,
+                             final DataUpdateDispatcher<DataElement> dispatcher,
+                             @Named("batchMaxSize") final Integer batchMaxSize,
+                             @Named("batchMaxDelay") final Duration batchMaxDelay,
+                             @Named("latencyTimestamps") final Boolean latencyTimestamps,
+                             final ByteBufAllocator allocator, final Charset encodingCharset,
+                             final MessageCompression messageCompression, final MetricRegistry metrics) {
+        this.subscriptionIndex = subscriptionIndex;
+        this.sessionWriter = sessionWriter;
+        this.dispatcher = dispatcher;
+        this.batcher = new UpdateBatcher(batchMaxSize, batchMaxDelay,
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("update-batcher-%d")
+                        .setDaemon(true)
+                        .build()),
+                this::sendData, metrics);
+        this.allocator = allocator;
+        this.encodingCharset = encodingCharset;
+        this.messageCompression = messageCompression;
+        this.latencyTimestamps = latencyTimestamps;
+    }
+
+    /**
+     * Build data update.
+     *
+     * @param sequence        sequence number of data
+     * @param data            data
+     * @param encodingCharset encoding character set of text fields
+     * @return data update
+     */
+    static DataUpdate toDataUpdate(final long sequence, final DataElement data, final Charset encodingCharset) {
+        return newDataUpdate(sequence, data, encodingCharset).build();
+    }
+
+    /**
+     * Start building data update.
+     *
+     * @param sequence        sequence number of data
+     * @param data            data
+     * @param encodingCharset encoding character set of text fields
+     * @return data update builder
+     */
+    private static DataUpdate.Builder newDataUpdate(final long sequence, final DataElement data,
+                                                    final Charset encodingCharset) {
+        final DataUpdate.Builder update = DataUpdate.newBuilder()
+                .setLabelBytes(ByteString.copyFrom(data.getLabel(), encodingCharset))
+                .setSequence(sequence)
+                .setStreamBytes(ByteString.copyFrom(data.getStream(), encodingCharset));
+        data.getKey().ifPresent(key -> update.setKeyBytes(ByteString.copyFrom(key, encodingCharset)));
+        return update;
+    }
+
+    /**
+     * Build data update message: a single update if there is only one, a batch otherwise.
+     * Updates are not part of an exchange, so the message has no reference. Message gets its send time if updates
+     * carry their times, as it is built right before it is encoded.
+     *
+     * @param updates data updates
+     * @return message
+     */
+    static Message toMessage(final List<DataUpdate> updates) {
+        final Message.Builder msg = Message.newBuilder();
+        if (updates.get(0).hasOriginTime()) {
+            msg.setSendTime(EpochClock.now());
+        }
+        if (updates.size() == 1) {
+            msg.setDataUpdate(updates.get(0));
+        } else {
+            msg.setDataUpdateBatch(DataUpdateBatch.newBuilder()
+                    .addAllUpdates(updates)
+                    .build());
+        }
+        return msg.build();
     }
 
     /**
      * Start listening to data updates.
      */
     public void startListening() {
-        this.eventBus.register(this);
+        this.dispatcher.subscribe("data-update-manager", this::onDataUpdate);
     }
 
     /**
-     * Listen to failed login events.
+     * Listen to data updates, which are dispatched in order.
      *
-     * @param event failed login event
+     * @param sequence   sequence number of updated data element
+     * @param element    updated data element
+     * @param originTime time the element was added to the repository
      */
-    @Subscribe
-    @AllowConcurrentEvents
-    public void onDataUpdate(final DataUpdateEvent<String> event) {
-        try {
-            LOGGER.trace("Data update event: {}", event);
-            final String data = event.getUpdatedElement();
-            this.sendData(data);
-        } catch (final Exception ex) {
-            LOGGER.error("Failed to process data update event", ex);
+    private void onDataUpdate(final long sequence, final DataElement element, final long originTime) {
+        LOGGER.trace("Data update #{}: {}", sequence, element);
+        final DataUpdate.Builder update = newDataUpdate(sequence, element, this.encodingCharset);
+        if (this.latencyTimestamps) {
+            update.setOriginTime(originTime)
+                    .setDispatchTime(EpochClock.now());
         }
+        this.batcher.add(update.build());
     }
 
     /**
-     * Send data to clients.
+     * Send data to clients, stream by stream. Message of a stream is only built for the sessions that subscribed to
+     * it; it is serialized, framed and compressed only once per compression format, then shared by their channels.
      *
-     * @param data data
+     * @param updates data updates, by increasing sequence number within each stream
      */
-    private void sendData(final String data) {
-        LOGGER.debug("Sending data to clients: {}", data);
-        final Message msg = Message.newBuilder()
-                .setMsgRefId(UUID.randomUUID().toString())
-                .setDataUpdate(DataUpdate.newBuilder()
-                        .setLabel(data)
-                        .build())
-                .build();
-        this.clientRegistry.findAll()
-                .forEach(channel -> channel.writeAndFlush(msg));
+    void sendData(final List<DataUpdate> updates) {
+        LOGGER.debug("Sending {} data updates to clients", updates.size());
+        // Streams are told apart as encoded, and names are only decoded once per batch
+        final Map<ByteString, List<DataUpdate>> streamUpdates = new LinkedHashMap<>();
+        for (final DataUpdate update : updates) {
+            streamUpdates.computeIfAbsent(update.getStreamBytes(), stream -> new ArrayList<>()).add(update);
+        }
+        streamUpdates.forEach((stream, batchUpdates) -> this.sendData(stream.toString(this.encodingCharset),
+                batchUpdates));
+    }
+
+    /**
+     * Send data updates of a stream to the sessions that subscribed to it.
+     *
+     * @param stream  name of the stream
+     * @param updates data updates of the stream, by increasing sequence number
+     */
+    private void sendData(final String stream, final List<DataUpdate> updates) {
+        final EventLoopSessions sessions = this.subscriptionIndex.match(stream);
+        if (sessions.isEmpty()) {
+            return;
+        }
+        final UpdateBatch batch = new UpdateBatch(stream, updates, this.allocator, this.messageCompression);
+        try {
+            this.sessionWriter.send(sessions, batch);
+        } finally {
+            batch.release();
+        }
     }
 
 }
\ No newline at end of file
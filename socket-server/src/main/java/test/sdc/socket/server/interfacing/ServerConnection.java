@@ -2,25 +2,23 @@ package test.sdc.socket.server.interfacing;
 
 import com.google.common.eventbus.EventBus;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
-import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.util.SelfSignedCertificate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.Transport;
+import test.sdc.socket.common.interfacing.ChannelInstrumentation;
+import test.sdc.socket.common.interfacing.FrameRecorder;
 import test.sdc.socket.common.interfacing.LeChannelInitializer;
+import test.sdc.socket.common.interfacing.MessageCompression;
+import test.sdc.socket.common.ssl.SslSupport;
 import test.sdc.socket.model.protocol.MessageProtos.Message;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.net.ssl.SSLException;
-import java.nio.charset.Charset;
-import java.security.cert.CertificateException;
 
 /**
  * Server connection.
@@ -29,48 +27,58 @@ public class ServerConnection {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerConnection.class);
 
-    private final Boolean sslEnabled;
+    private final SslSupport sslSupport;
+    private final String host;
     private final Integer port;
-    private final Charset encodingCharset;
     private final DataCompressionFormat compression;
+    private final MessageCompression messageCompression;
+    private final ChannelInstrumentation instrumentation;
+    private final FrameRecorder frameRecorder;
+    private final WriteBufferWaterMark writeBufferWaterMark;
+    private final Transport transport;
+    private final ByteBufAllocator allocator;
     private final EventBus eventBus;
 
-    private final EventLoopGroup bossGroup = new NioEventLoopGroup(1);
-    private final EventLoopGroup workerGroup = new NioEventLoopGroup();
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup workerGroup;
     private volatile Channel channel = null;
 
     /**
      * Constructor.
      *
-     * @param sslEnabled      enable SSL
-     * @param port            port used to expose service
-     * @param encodingCharset encoding character set
-     * @param compression     data compression format (optional)
-     * @param eventBus        event bus
+     * @param sslSupport           SSL support (null if SSL is disabled)
+     * @param host                 host name or address the service is bound to (null for all interfaces)
+     * @param port                 port used to expose service
+     * @param compression          stream compression format (optional)
+     * @param messageCompression   message compression
+     * @param instrumentation      channel instrumentation
+     * @param frameRecorder        frame recorder (null if frames are not recorded)
+     * @param writeBufferWaterMark write buffer limits, which define when client channels are writable
+     * @param transport            network transport
+     * @param allocator            buffer allocator
+     * @param eventBus             event bus
      */
     @Inject
-    public ServerConnection(@Named("sslEnabled") final Boolean sslEnabled,
-                            @Named("port") final Integer port, final Charset encodingCharset,
+    public ServerConnection(final SslSupport sslSupport,
+                            @Named("host") final String host, @Named("port") final Integer port,
                             final DataCompressionFormat compression,
-                            final EventBus eventBus) {
-        this.sslEnabled = sslEnabled;
+                            final MessageCompression messageCompression,
+                            final ChannelInstrumentation instrumentation, final FrameRecorder frameRecorder,
+                            final WriteBufferWaterMark writeBufferWaterMark,
+                            final Transport transport, final ByteBufAllocator allocator, final EventBus eventBus) {
+        this.sslSupport = sslSupport;
+        this.host = host;
         this.port = port;
-        this.encodingCharset = encodingCharset;
         this.compression = compression;
+        this.messageCompression = messageCompression;
+        this.instrumentation = instrumentation;
+        this.frameRecorder = frameRecorder;
+        this.writeBufferWaterMark = writeBufferWaterMark;
+        this.transport = transport;
+        this.allocator = allocator;
         this.eventBus = eventBus;
-    }
-
-    /**
-     * Initialize SSL context.
-     *
-     * @return SSL context
-     * @throws SSLException         indicates some kind of error detected by an SSL subsystem
-     * @throws CertificateException indicates one of a variety of certificate problems
-     */
-    private static SslContext initSslContext()
-            throws CertificateException, SSLException {
-        final SelfSignedCertificate ssc = new SelfSignedCertificate();
-        return SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey()).build();
+        this.bossGroup = transport.newEventLoopGroup(1);
+        this.workerGroup = transport.newEventLoopGroup(0);
     }
 
     /**
@@ -78,26 +86,29 @@ public class ServerConnection {
      *
      * @param handler IVEF message handler, which handles received data
      * @throws InterruptedException connection thread was interrupted
-     * @throws SSLException         indicates some kind of error detected by an SSL subsystem
-     * @throws CertificateException indicates one of a variety of certificate problems
      */
     public void start(final SimpleChannelInboundHandler<Message> handler)
-            throws InterruptedException, CertificateException, SSLException {
-        LOGGER.info("Starting server");
-
-        // Configure SSL.
-        final SslContext sslContext = this.sslEnabled ? initSslContext() : null;
+            throws InterruptedException {
+        LOGGER.info("Starting server ({} transport)", this.transport);
 
         // Configure the server.
         final ServerBootstrap bootstrap = new ServerBootstrap()
                 .group(this.bossGroup, this.workerGroup)
-                .channel(NioServerSocketChannel.class)
+                .channel(this.transport.getServerChannelClass())
                 .option(ChannelOption.SO_BACKLOG, 100)
-                .handler(new LoggingHandler(LogLevel.TRACE))
-                .childHandler(LeChannelInitializer.forServer(sslContext, handler, this.encodingCharset, this.compression));
+                .option(ChannelOption.ALLOCATOR, this.allocator)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, this.writeBufferWaterMark)
+                .childOption(ChannelOption.ALLOCATOR, this.allocator)
+                .childHandler(LeChannelInitializer.forServer(this.sslSupport, handler, this.compression,
+                        this.messageCompression, this.instrumentation, this.frameRecorder));
+        if (LoggerFactory.getLogger(LoggingHandler.class).isTraceEnabled()) {
+            bootstrap.handler(new LoggingHandler(LogLevel.TRACE));
+        }
 
         // Start the server.
-        final ChannelFuture f = bootstrap.bind(this.port).sync();
+        final ChannelFuture f = (this.host == null
+                ? bootstrap.bind(this.port)
+                : bootstrap.bind(this.host, this.port)).sync();
 
         LOGGER.info("Server startup completed");
 
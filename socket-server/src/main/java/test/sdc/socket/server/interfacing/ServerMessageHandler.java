@@ -1,18 +1,26 @@
 package test.sdc.socket.server.interfacing;
 
-import com.google.common.eventbus.EventBus;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.interfacing.MessageCompression;
 import test.sdc.socket.model.protocol.MessageProtos.Message;
 import test.sdc.socket.model.protocol.login.LoginResponseProtos;
 import test.sdc.socket.model.protocol.login.LoginResponseProtos.LoginResponse.LoginResult;
-import test.sdc.socket.server.event.LoginEvent;
+import test.sdc.socket.model.protocol.subscription.SubscribeRequestProtos.SubscribeRequest;
+import test.sdc.socket.model.protocol.subscription.SubscriptionResponseProtos.SubscriptionResponse;
+import test.sdc.socket.model.protocol.subscription.SubscriptionResponseProtos.SubscriptionResponse.SubscriptionResult;
 import test.sdc.socket.server.session.ClientRegistry;
+import test.sdc.socket.server.session.ClientSession;
 
 import javax.inject.Inject;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 
 import static java.util.Objects.requireNonNull;
 
@@ -26,18 +34,41 @@ public class ServerMessageHandler
     private static final Logger LOGGER = LoggerFactory.getLogger(ServerMessageHandler.class);
 
     private final ClientRegistry clientRegistry;
-    private final EventBus eventBus;
+    private final SessionWriter sessionWriter;
+    private final SubscriptionManager subscriptionManager;
+    private final Charset encodingCharset;
+    private final MessageCompression messageCompression;
 
     /**
      * Constructor.
      *
-     * @param clientRegistry client registry
-     * @param eventBus       event bus
+     * @param clientRegistry      client registry
+     * @param sessionWriter       session writer
+     * @param subscriptionManager subscription manager
+     * @param encodingCharset     encoding character set of text fields
+     * @param messageCompression  message compression
      */
     @Inject
-    public ServerMessageHandler(final ClientRegistry clientRegistry, final EventBus eventBus) {
+    public ServerMessageHandler(final ClientRegistry clientRegistry, final SessionWriter sessionWriter,
+                                final SubscriptionManager subscriptionManager, final Charset encodingCharset,
+                                final MessageCompression messageCompression) {
         this.clientRegistry = clientRegistry;
-        this.eventBus = eventBus;
+        this.sessionWriter = sessionWriter;
+        this.subscriptionManager = subscriptionManager;
+        this.encodingCharset = encodingCharset;
+        this.messageCompression = messageCompression;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void channelWritabilityChanged(final ChannelHandlerContext ctx)
+            throws Exception {
+        requireNonNull(ctx, "Channel handler context must not be null");
+        this.clientRegistry.find(ctx.channel())
+                .ifPresent(this.sessionWriter::onWritabilityChanged);
+        super.channelWritabilityChanged(ctx);
     }
 
     /**
@@ -48,10 +79,19 @@ public class ServerMessageHandler
             throws Exception {
         requireNonNull(ctx, "Channel handler context must not be null");
         requireNonNull(msg, "Input object must not be null");
-        LOGGER.info("Processing message: {}", msg);
+        LOGGER.trace("Processing message: {}", msg);
+        final Message response;
         if (msg.hasLoginRequest()) {
-            final Message response = this.onLoginRequest(ctx, msg);
-            LOGGER.info("Sending response to message {}: {}", msg, response);
+            response = this.onLoginRequest(ctx, msg);
+        } else if (msg.hasSubscribeRequest()) {
+            response = this.onSubscribeRequest(ctx, msg);
+        } else if (msg.hasUnsubscribeRequest()) {
+            response = this.onUnsubscribeRequest(ctx, msg);
+        } else {
+            response = null;
+        }
+        if (response != null) {
+            LOGGER.trace("Sending response to message {}: {}", msg, response);
             ctx.writeAndFlush(response);
         }
         LOGGER.trace("Done processing message {}", msg);
@@ -65,21 +105,97 @@ public class ServerMessageHandler
      * @return login response message
      */
     private Message onLoginRequest(final ChannelHandlerContext ctx, final Message msg) {
-        final LoginResult result;
-        if (this.clientRegistry.contains(msg.getLoginRequest().getLogin())) {
-            result = LoginResult.ALREADY_LOGGED;
+        final String login = msg.getLoginRequest().getLoginBytes().toString(this.encodingCharset);
+        // Unsigned on the wire
+        final int maxUpdateRate = (int) Math.min(
+                Integer.toUnsignedLong(msg.getLoginRequest().getMaxUpdateRate()), Integer.MAX_VALUE);
+        // FIXME: do not allow just any credentials
+        final LoginResult result = this.clientRegistry.register(login, ctx.channel(), maxUpdateRate).isPresent()
+                ? LoginResult.SUCCESS
+                : LoginResult.ALREADY_LOGGED;
+        final LoginResponseProtos.LoginResponse.Builder loginResponse = LoginResponseProtos.LoginResponse.newBuilder()
+                .setValue(result);
+        if (result == LoginResult.SUCCESS) {
+            final DataCompressionFormat compression = this.messageCompression
+                    .negotiate(msg.getLoginRequest().getCompressionFormatsList())
+                    .orElse(null);
+            if (compression != null) {
+                loginResponse.setCompressionFormat(compression.getKey());
+            }
+            MessageCompression.setFormat(ctx.channel(), compression);
+        }
+        return newResponse(msg)
+                .setLoginResponse(loginResponse.build())
+                .build();
+    }
+
+    /**
+     * Process subscribe request message.
+     *
+     * @param ctx context
+     * @param msg subscribe request message
+     * @return subscription response message
+     */
+    private Message onSubscribeRequest(final ChannelHandlerContext ctx, final Message msg) {
+        final Optional<ClientSession> session = this.clientRegistry.find(ctx.channel());
+        final SubscriptionResult result;
+        if (session.isPresent()) {
+            final SubscribeRequest request = msg.getSubscribeRequest();
+            final Map<String, Long> lastSequences = new HashMap<>();
+            for (final SubscribeRequest.StreamPosition position : request.getPositionsList()) {
+                lastSequences.put(position.getStreamBytes().toString(this.encodingCharset),
+                        position.getLastSequence());
+            }
+            this.subscriptionManager.subscribe(session.get(), request.getPrefixBytes().toString(this.encodingCharset),
+                    lastSequences);
+            result = SubscriptionResult.SUCCESS;
         } else {
-            result = LoginResult.SUCCESS; // FIXME: do not allow just any credentials
+            result = SubscriptionResult.NOT_LOGGED;
         }
-        if (result == LoginResult.SUCCESS) {
-            this.eventBus.post(new LoginEvent(msg.getLoginRequest().getLogin(), ctx.channel()));
+        return newResponse(msg)
+                .setSubscriptionResponse(SubscriptionResponse.newBuilder()
+                        .setValue(result)
+                        .build())
+                .build();
+    }
+
+    /**
+     * Process unsubscribe request message.
+     *
+     * @param ctx context
+     * @param msg unsubscribe request message
+     * @return subscription response message
+     */
+    private Message onUnsubscribeRequest(final ChannelHandlerContext ctx, final Message msg) {
+        final Optional<ClientSession> session = this.clientRegistry.find(ctx.channel());
+        final SubscriptionResult result;
+        if (!session.isPresent()) {
+            result = SubscriptionResult.NOT_LOGGED;
+        } else if (this.subscriptionManager.unsubscribe(session.get(),
+                msg.getUnsubscribeRequest().getPrefixBytes().toString(this.encodingCharset))) {
+            result = SubscriptionResult.SUCCESS;
+        } else {
+            result = SubscriptionResult.NOT_SUBSCRIBED;
         }
-        return Message.newBuilder()
-                .setMsgRefId(msg.getMsgRefId())
-                .setLoginResponse(LoginResponseProtos.LoginResponse.newBuilder()
+        return newResponse(msg)
+                .setSubscriptionResponse(SubscriptionResponse.newBuilder()
                         .setValue(result)
                         .build())
                 .build();
     }
 
+    /**
+     * Start building response to a request: the response carries the reference of the request, if any.
+     *
+     * @param msg request message
+     * @return response message builder
+     */
+    private static Message.Builder newResponse(final Message msg) {
+        final Message.Builder response = Message.newBuilder();
+        if (msg.hasMsgRefId()) {
+            response.setMsgRefId(msg.getMsgRefId());
+        }
+        return response;
+    }
+
 }
\ No newline at end of file
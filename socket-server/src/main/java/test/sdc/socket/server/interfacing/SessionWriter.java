@@ -0,0 +1,401 @@
+package test.sdc.socket.server.interfacing;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.interfacing.EncodedMessage;
+import test.sdc.socket.common.interfacing.MessageCompression;
+import test.sdc.socket.model.protocol.data.DataUpdateProtos.DataUpdate;
+import test.sdc.socket.server.session.ClientSession;
+import test.sdc.socket.server.session.EventLoopSessions;
+import test.sdc.socket.server.session.SlowConsumerPolicy;
+import test.sdc.socket.server.session.UpdateRateLimiter;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In charge of writing frames to client sessions, while enforcing their slow consumer policy, their maximum rate of
+ * updates and a global budget of outbound memory.
+ */
+public final class SessionWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionWriter.class);
+
+    private static final long DRAIN_RETRY_DELAY = TimeUnit.MILLISECONDS.toNanos(10L);
+
+    private final SnapshotStreamer snapshotStreamer;
+    private final long outboundMemoryBudget;
+    private final long disconnectDelay;
+    private final AtomicLong outboundMemory = new AtomicLong();
+    private final Meter droppedUpdates;
+    private final Meter conflatedUpdates;
+    private final Meter rateLimitedConflatedUpdates;
+    private final Meter rateLimitedDroppedUpdates;
+    private final Meter disconnections;
+    private final Meter compressionFailures;
+
+    /**
+     * Constructor.
+     *
+     * @param snapshotStreamer     snapshot streamer, which sends streams that sessions get for the first time
+     * @param outboundMemoryBudget maximum number of bytes waiting to be written, for all sessions
+     * @param disconnectDelay      delay after which an unwritable channel is closed, if policy says so
+     * @param metrics              metric registry
+     */
+    @Inject
+    public SessionWriter(final SnapshotStreamer snapshotStreamer,
+                         @Named("outboundMemoryBudget") final Long outboundMemoryBudget,
+                         @Named("slowConsumerDisconnectDelay") final Duration disconnectDelay,
+                         final MetricRegistry metrics) {
+        this.snapshotStreamer = snapshotStreamer;
+        this.outboundMemoryBudget = outboundMemoryBudget;
+        this.disconnectDelay = disconnectDelay.toNanos();
+        this.droppedUpdates = metrics.meter(name(SessionWriter.class, "slowConsumers", "dropped"));
+        this.conflatedUpdates = metrics.meter(name(SessionWriter.class, "slowConsumers", "conflated"));
+        this.rateLimitedConflatedUpdates = metrics.meter(name(SessionWriter.class, "rateLimited", "conflated"));
+        this.rateLimitedDroppedUpdates = metrics.meter(name(SessionWriter.class, "rateLimited", "dropped"));
+        this.disconnections = metrics.meter(name(SessionWriter.class, "slowConsumers", "disconnected"));
+        this.compressionFailures = metrics.meter(name(SessionWriter.class, "compressionFailures"));
+        metrics.register(name(SessionWriter.class, "outboundMemory"),
+                (Gauge<Long>) SessionWriter.this.outboundMemory::get);
+    }
+
+    /**
+     * Send batch of live updates to sessions, with a single task per event loop.
+     * The frame shared by the sessions that negotiated the same message compression format is picked right away, so
+     * that it is compressed on the calling thread, once for all these sessions.
+     *
+     * @param sessions sessions, grouped by event loop
+     * @param batch    batch of live updates
+     */
+    void send(final EventLoopSessions sessions, final UpdateBatch batch) {
+        requireNonNull(sessions, "Sessions must not be null");
+        requireNonNull(batch, "Batch must not be null");
+        sessions.forEach((eventLoop, group) -> this.send(eventLoop, group, batch));
+    }
+
+    /**
+     * Send batch of live updates to sessions whose channels share the same event loop, from this event loop.
+     *
+     * @param eventLoop event loop
+     * @param group     sessions
+     * @param batch     batch of live updates
+     */
+    private void send(final EventLoop eventLoop, final Collection<ClientSession> group, final UpdateBatch batch) {
+        // Group may change in the meantime, so that sessions and frames are taken right away
+        final List<ClientSession> sessions = new ArrayList<>(group.size());
+        final List<ByteBuf> frames = new ArrayList<>(group.size());
+        try {
+            for (final ClientSession session : group) {
+                final DataCompressionFormat format = MessageCompression.getFormat(session.getChannel());
+                frames.add(this.getFrame(batch, format).retainedDuplicate());
+                sessions.add(session);
+            }
+        } catch (final RuntimeException ex) {
+            LOGGER.error("Failed to send batch of live updates to sessions of event loop {}", eventLoop, ex);
+            frames.forEach(ByteBuf::release);
+            return;
+        }
+        final Runnable task = () -> {
+            for (int i = 0; i < sessions.size(); i++) {
+                try {
+                    this.doSend(sessions.get(i), batch, frames.get(i));
+                } catch (final Exception ex) {
+                    LOGGER.error("Failed to send batch of live updates to session {}", sessions.get(i), ex);
+                }
+            }
+        };
+        if (eventLoop.inEventLoop()) {
+            task.run();
+        } else {
+            try {
+                eventLoop.execute(task);
+            } catch (final RejectedExecutionException ex) {
+                LOGGER.debug("Event loop {} is shutting down - frames discarded", eventLoop);
+                frames.forEach(ByteBuf::release);
+            }
+        }
+    }
+
+    /**
+     * Get shared frame of the batch for a message compression format, or the uncompressed one if compression fails.
+     *
+     * @param batch  batch of live updates
+     * @param format message compression format (null if messages are not compressed)
+     * @return frame, which is released along with the batch
+     */
+    private ByteBuf getFrame(final UpdateBatch batch, final DataCompressionFormat format) {
+        try {
+            return batch.getFrame(format);
+        } catch (final RuntimeException ex) {
+            LOGGER.error("Failed to compress batch of live updates with {} - sending it uncompressed", format, ex);
+            this.compressionFailures.mark();
+            return batch.getFrame(null);
+        }
+    }
+
+    /**
+     * Resume sending to session once its channel is writable again, or schedule its disconnection if it stays
+     * unwritable and its policy says so, even if no more updates are sent to it (event loop only).
+     *
+     * @param session session
+     */
+    public void onWritabilityChanged(final ClientSession session) {
+        requireNonNull(session, "Session must not be null");
+        if (!session.getChannel().isWritable()) {
+            final long unwritableDuration = session.markUnwritable(System.nanoTime());
+            if (session.getSlowConsumerPolicy() == SlowConsumerPolicy.DISCONNECT) {
+                this.scheduleDisconnectCheck(session, this.disconnectDelay - unwritableDuration);
+            }
+            return;
+        }
+        session.markWritable();
+        this.drain(session);
+    }
+
+    /**
+     * Send batch of live updates to session (event loop only).
+     * Updates are streamed with the content of their stream until the session switches to its live updates, so that
+     * the ones that have already been streamed are left out. Streams that the session gets for the first time, as
+     * they have been created since it subscribed, start with their content too. Updates that exceed the maximum rate
+     * of the session are conflated, as well as the ones that come while older updates are still conflated.
+     *
+     * @param session     session
+     * @param batch       batch of live updates
+     * @param sharedFrame length-prefixed message that carries the whole batch
+     */
+    private void doSend(final ClientSession session, final UpdateBatch batch, final ByteBuf sharedFrame) {
+        final Channel channel = session.getChannel();
+        if (channel.isActive() && !session.isStreamed(batch.getStream()) && session.isSubscribed(batch.getStream())) {
+            // Content of the stream includes the batch
+            this.snapshotStreamer.stream(session, batch.getStream());
+        }
+        final long liveFromSequence = session.getLiveFromSequence(batch.getStream());
+        if (!channel.isActive() || batch.getLastSequence() < liveFromSequence) {
+            sharedFrame.release();
+            return;
+        }
+        final List<DataUpdate> updates = batch.getUpdates(liveFromSequence);
+        final ByteBuf frame;
+        if (batch.getFirstSequence() < liveFromSequence) {
+            sharedFrame.release();
+            frame = batch.encodeFrom(liveFromSequence, channel.alloc());
+        } else {
+            frame = sharedFrame;
+        }
+        final UpdateRateLimiter rateLimiter = session.getRateLimiter();
+        if (channel.isWritable()) {
+            session.markWritable();
+            if (!session.hasConflatedUpdates() && rateLimiter.available(System.nanoTime()) >= updates.size()
+                    && this.tryWrite(session, frame)) {
+                rateLimiter.consume(updates.size());
+                return;
+            }
+        }
+        if (rateLimiter.isLimited() || session.hasConflatedUpdates()) {
+            // Conflated updates are older, so they have to be sent first
+            frame.release();
+            this.conflate(session, updates, this.rateLimitedConflatedUpdates, this.rateLimitedDroppedUpdates);
+            this.drain(session);
+        } else {
+            this.onSlowConsumer(session, frame, updates);
+        }
+    }
+
+    /**
+     * Apply slow consumer policy of the session to a frame that cannot be written right away.
+     *
+     * @param session session
+     * @param frame   length-prefixed message
+     * @param updates data updates carried by the frame
+     */
+    private void onSlowConsumer(final ClientSession session, final ByteBuf frame, final List<DataUpdate> updates) {
+        final long unwritableDuration = session.markUnwritable(System.nanoTime());
+        switch (session.getSlowConsumerPolicy()) {
+            case CONFLATE:
+                frame.release();
+                this.conflate(session, updates, this.conflatedUpdates, this.droppedUpdates);
+                this.drain(session);
+                break;
+            case DISCONNECT:
+                if (unwritableDuration > this.disconnectDelay) {
+                    frame.release();
+                    this.disconnect(session, unwritableDuration);
+                } else {
+                    // Policy may have been set after the channel became unwritable
+                    this.scheduleDisconnectCheck(session, this.disconnectDelay - unwritableDuration);
+                    if (!this.tryWrite(session, frame)) {
+                        frame.release();
+                        this.droppedUpdates.mark(updates.size());
+                    }
+                }
+                break;
+            case DROP_NEWEST:
+            default:
+                frame.release();
+                this.droppedUpdates.mark(updates.size());
+                break;
+        }
+    }
+
+    /**
+     * Schedule a check that closes the channel of the session if it is still unwritable by then and the policy still
+     * says so, unless a check is already scheduled.
+     *
+     * @param session session
+     * @param delay   delay (nanoseconds)
+     */
+    private void scheduleDisconnectCheck(final ClientSession session, final long delay) {
+        if (session.markDisconnectCheckScheduled()) {
+            session.getChannel().eventLoop().schedule(() -> {
+                session.markDisconnectCheckStarted();
+                this.checkDisconnect(session);
+            }, Math.max(delay, 0L) + 1L, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Close the channel of the session if it has not been writable for longer than the delay, and the policy says so.
+     * Otherwise, check again when the delay expires if the channel is still unwritable (event loop only).
+     *
+     * @param session session
+     */
+    private void checkDisconnect(final ClientSession session) {
+        final Channel channel = session.getChannel();
+        if (!channel.isActive() || channel.isWritable()
+                || session.getSlowConsumerPolicy() != SlowConsumerPolicy.DISCONNECT) {
+            return;
+        }
+        final long unwritableDuration = session.markUnwritable(System.nanoTime());
+        if (unwritableDuration > this.disconnectDelay) {
+            this.disconnect(session, unwritableDuration);
+        } else {
+            // Channel became writable, then unwritable again, since the check was scheduled
+            this.scheduleDisconnectCheck(session, this.disconnectDelay - unwritableDuration);
+        }
+    }
+
+    /**
+     * Close the channel of a slow consumer.
+     *
+     * @param session            session
+     * @param unwritableDuration duration since the channel became unwritable (nanoseconds)
+     */
+    private void disconnect(final ClientSession session, final long unwritableDuration) {
+        LOGGER.warn("Session {} has not been writable for {} ms - closing it",
+                session, Duration.ofNanos(unwritableDuration).toMillis());
+        session.getChannel().close();
+        this.disconnections.mark();
+    }
+
+    /**
+     * Keep updates until they can be sent, in place of older updates with the same key.
+     * Updates without key cannot be conflated, so they are dropped.
+     *
+     * @param session          session
+     * @param updates          data updates
+     * @param conflatedUpdates meter of conflated updates
+     * @param droppedUpdates   meter of dropped updates
+     */
+    private void conflate(final ClientSession session, final List<DataUpdate> updates,
+                          final Meter conflatedUpdates, final Meter droppedUpdates) {
+        int conflated = 0;
+        for (final DataUpdate update : updates) {
+            if (session.conflate(update)) {
+                conflated++;
+            }
+        }
+        conflatedUpdates.mark(conflated);
+        droppedUpdates.mark(updates.size() - conflated);
+    }
+
+    /**
+     * Send as many conflated updates as the channel and the maximum rate of the session allow (event loop only).
+     * Sending resumes when the channel becomes writable again, or when the session is allowed to send more updates.
+     *
+     * @param session session
+     */
+    private void drain(final ClientSession session) {
+        final Channel channel = session.getChannel();
+        if (!channel.isActive()) {
+            session.discardConflatedUpdates();
+            return;
+        }
+        if (!session.hasConflatedUpdates() || !channel.isWritable()) {
+            return;
+        }
+        final UpdateRateLimiter rateLimiter = session.getRateLimiter();
+        final int available = rateLimiter.available(System.nanoTime());
+        if (available == 0) {
+            this.scheduleDrain(session, rateLimiter.delayUntilAvailable(System.nanoTime()));
+            return;
+        }
+        final List<DataUpdate> updates = session.peekConflatedUpdates(available);
+        final ByteBuf frame = EncodedMessage.encode(channel.alloc(), DataUpdateManager.toMessage(updates));
+        if (!this.tryWrite(session, frame)) {
+            frame.release();
+            this.scheduleDrain(session, DRAIN_RETRY_DELAY);
+            return;
+        }
+        session.removeConflatedUpdates(updates.size());
+        rateLimiter.consume(updates.size());
+        if (session.hasConflatedUpdates()) {
+            this.scheduleDrain(session, rateLimiter.delayUntilAvailable(System.nanoTime()));
+        }
+    }
+
+    /**
+     * Schedule sending of conflated updates, unless it is already scheduled.
+     *
+     * @param session session
+     * @param delay   delay (nanoseconds)
+     */
+    private void scheduleDrain(final ClientSession session, final long delay) {
+        if (session.markDrainScheduled()) {
+            session.getChannel().eventLoop().schedule(() -> {
+                session.markDrainStarted();
+                this.drain(session);
+            }, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Write frame to the channel of the session, if the outbound memory budget allows it.
+     *
+     * @param session session
+     * @param frame   length-prefixed message
+     * @return frame has been written (otherwise, it is still owned by the caller)
+     */
+    private boolean tryWrite(final ClientSession session, final ByteBuf frame) {
+        final int size = frame.readableBytes();
+        if (this.outboundMemory.addAndGet(size) > this.outboundMemoryBudget) {
+            this.outboundMemory.addAndGet(-size);
+            return false;
+        }
+        session.addPendingBytes(size);
+        session.getChannel().writeAndFlush(new EncodedMessage(frame))
+                .addListener(future -> {
+                    session.addPendingBytes(-size);
+                    this.outboundMemory.addAndGet(-size);
+                });
+        return true;
+    }
+
+}
@@ -0,0 +1,178 @@
+package test.sdc.socket.server.interfacing;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.model.protocol.data.DataUpdateProtos.DataUpdate;
+import test.sdc.socket.server.data.DataElement;
+import test.sdc.socket.server.data.DataRepository;
+import test.sdc.socket.server.data.DataStreams;
+import test.sdc.socket.server.data.LogSnapshot;
+import test.sdc.socket.server.session.ClientSession;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In charge of sending the content of a stream to clients that just subscribed to it.
+ * Snapshot is sent in batches from the event loop of the channel, and the next chunk waits for the channel to be
+ * writable. Clients that reconnect only get the updates they missed, provided that these are still in the
+ * repository of the stream. Once the client has caught up with the stream, the session switches to its live updates,
+ * starting right after the last element that has been streamed.
+ */
+public final class SnapshotStreamer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotStreamer.class);
+
+    private final DataStreams streams;
+    private final int chunkSize;
+    private final Charset encodingCharset;
+    private final Histogram snapshotSizes;
+    private final Timer transferTimer;
+
+    /**
+     * Constructor.
+     *
+     * @param streams         data streams
+     * @param chunkSize       maximum number of elements sent in a single batch
+     * @param encodingCharset encoding character set of text fields
+     * @param metrics         metric registry
+     */
+    @Inject
+    public SnapshotStreamer(final DataStreams streams, @Named("snapshotChunkSize") final Integer chunkSize,
+                            final Charset encodingCharset, final MetricRegistry metrics) {
+        this.streams = streams;
+        this.chunkSize = chunkSize;
+        this.encodingCharset = encodingCharset;
+        this.snapshotSizes = metrics.histogram(name(SnapshotStreamer.class, "snapshots", "size"));
+        this.transferTimer = metrics.timer(name(SnapshotStreamer.class, "snapshots", "transferTime"));
+    }
+
+    /**
+     * Stream content of a stream to session, then switch it to the live updates of the stream (event loop only).
+     * Live updates of the stream are held back from now on, until the session has caught up with it.
+     *
+     * @param session session
+     * @param stream  name of the stream (nothing is sent if it does not exist yet)
+     */
+    public void stream(final ClientSession session, final String stream) {
+        requireNonNull(session, "Session must not be null");
+        requireNonNull(stream, "Stream must not be null");
+        final Optional<DataRepository> repository = this.streams.find(stream);
+        if (!repository.isPresent()) {
+            return;
+        }
+        LOGGER.debug("Streaming snapshot of {} to {}", stream, session);
+        session.startSnapshot(stream);
+        session.getChannel().eventLoop().execute(new Transfer(session, repository.get()));
+    }
+
+    /**
+     * Transfer of a snapshot to a session, which runs on the event loop of its channel.
+     */
+    private final class Transfer
+            implements Runnable {
+
+        private final ClientSession session;
+        private final DataRepository repository;
+        private final Timer.Context timerContext;
+        private Iterator<DataElement> iterator;
+        private long nextSequence;
+        private long size = 0L;
+
+        /**
+         * Constructor.
+         *
+         * @param session    session
+         * @param repository repository of the stream
+         */
+        private Transfer(final ClientSession session, final DataRepository repository) {
+            this.session = session;
+            this.repository = repository;
+            this.timerContext = SnapshotStreamer.this.transferTimer.time();
+            final LogSnapshot<DataElement> snapshot = repository.findAll();
+            this.nextSequence = snapshot.getFirstSequence();
+            final OptionalLong lastSequence = session.removeLastSequence(repository.getName());
+            if (lastSequence.isPresent()) {
+                final long resumeSequence = lastSequence.getAsLong() + 1;
+                if (resumeSequence >= snapshot.getFirstSequence() && resumeSequence <= snapshot.getVersion()) {
+                    LOGGER.debug("Resuming transfer of {} to {} from sequence number {}", repository.getName(),
+                            session, resumeSequence);
+                    this.nextSequence = resumeSequence;
+                }
+            }
+            this.iterator = snapshot.iterator(this.nextSequence);
+        }
+
+        /**
+         * Send next batch.
+         */
+        @Override
+        public void run() {
+            final Channel channel = this.session.getChannel();
+            if (!channel.isActive()) {
+                LOGGER.debug("Snapshot transfer to {} interrupted", this.session);
+                return;
+            }
+            if (!this.session.isSubscribed(this.repository.getName())) {
+                LOGGER.debug("Session {} unsubscribed from {} - snapshot transfer interrupted", this.session,
+                        this.repository.getName());
+                this.session.stopSnapshot(this.repository.getName());
+                return;
+            }
+            final List<DataUpdate> chunk = new ArrayList<>(SnapshotStreamer.this.chunkSize);
+            while (chunk.size() < SnapshotStreamer.this.chunkSize && this.hasNext()) {
+                chunk.add(DataUpdateManager.toDataUpdate(this.nextSequence, this.iterator.next(),
+                        SnapshotStreamer.this.encodingCharset));
+                this.nextSequence++;
+            }
+            if (chunk.isEmpty()) {
+                this.session.startLiveUpdates(this.repository.getName(), this.nextSequence);
+                this.timerContext.stop();
+                SnapshotStreamer.this.snapshotSizes.update(this.size);
+                LOGGER.debug("Snapshot of {} elements of {} sent to {}", this.size, this.repository.getName(),
+                        this.session);
+                return;
+            }
+            final ChannelFuture write = channel.writeAndFlush(DataUpdateManager.toMessage(chunk));
+            this.size += chunk.size();
+            if (channel.isWritable()) {
+                channel.eventLoop().execute(this);
+            } else {
+                write.addListener(future -> this.run());
+            }
+        }
+
+        /**
+         * Check if there are elements left to send, including the ones added since transfer started.
+         *
+         * @return there are elements left to send
+         */
+        private boolean hasNext() {
+            if (this.iterator.hasNext()) {
+                return true;
+            }
+            final LogSnapshot<DataElement> latest = this.repository.findAll();
+            if (latest.getVersion() <= this.nextSequence) {
+                return false;
+            }
+            this.nextSequence = Math.max(this.nextSequence, latest.getFirstSequence());
+            this.iterator = latest.iterator(this.nextSequence);
+            return this.iterator.hasNext();
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package test.sdc.socket.server.interfacing;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.server.data.DataRepository;
+import test.sdc.socket.server.data.DataStreams;
+import test.sdc.socket.server.event.SessionOpenedEvent;
+import test.sdc.socket.server.session.ClientSession;
+import test.sdc.socket.server.session.SubscriptionIndex;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In charge of the subscriptions of sessions, which are added and removed from the event loop of their channel.
+ * Subscriptions are registered in the index that routes live updates, and the content of the matching streams is
+ * sent right away. Subscriptions of a session are removed from the index once its channel is closed.
+ */
+public final class SubscriptionManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SubscriptionManager.class);
+
+    private final SubscriptionIndex subscriptionIndex;
+    private final DataStreams streams;
+    private final SnapshotStreamer snapshotStreamer;
+
+    /**
+     * Constructor.
+     *
+     * @param subscriptionIndex subscription index
+     * @param streams           data streams
+     * @param snapshotStreamer  snapshot streamer
+     * @param eventBus          event bus
+     */
+    @Inject
+    public SubscriptionManager(final SubscriptionIndex subscriptionIndex, final DataStreams streams,
+                               final SnapshotStreamer snapshotStreamer, final EventBus eventBus) {
+        this.subscriptionIndex = subscriptionIndex;
+        this.streams = streams;
+        this.snapshotStreamer = snapshotStreamer;
+        eventBus.register(this);
+    }
+
+    /**
+     * Subscribe session to the streams whose name starts with input prefix (event loop only).
+     *
+     * @param session       session
+     * @param prefix        prefix of stream names (empty for all streams)
+     * @param lastSequences sequence numbers of the last data updates received by the client before reconnecting,
+     *                      by stream name
+     */
+    public void subscribe(final ClientSession session, final String prefix, final Map<String, Long> lastSequences) {
+        requireNonNull(session, "Session must not be null");
+        requireNonNull(prefix, "Prefix must not be null");
+        if (!session.addSubscription(prefix)) {
+            LOGGER.debug("Session {} already subscribed to '{}'", session, prefix);
+            return;
+        }
+        lastSequences.forEach((stream, lastSequence) -> {
+            if (stream.startsWith(prefix)) {
+                session.setLastSequence(stream, lastSequence);
+            }
+        });
+        this.subscriptionIndex.add(prefix, session);
+        LOGGER.debug("Session {} subscribed to '{}'", session, prefix);
+        // Streams created from now on are sent when their first updates come
+        for (final DataRepository repository : this.streams.findAll(prefix)) {
+            if (!session.isStreamed(repository.getName())) {
+                this.snapshotStreamer.stream(session, repository.getName());
+            }
+        }
+    }
+
+    /**
+     * Unsubscribe session from the streams whose name starts with input prefix (event loop only).
+     *
+     * @param session session
+     * @param prefix  prefix of stream names, as subscribed
+     * @return subscription has been removed (false if it did not exist)
+     */
+    public boolean unsubscribe(final ClientSession session, final String prefix) {
+        requireNonNull(session, "Session must not be null");
+        requireNonNull(prefix, "Prefix must not be null");
+        if (!session.removeSubscription(prefix)) {
+            return false;
+        }
+        this.subscriptionIndex.remove(prefix, session);
+        LOGGER.debug("Session {} unsubscribed from '{}'", session, prefix);
+        return true;
+    }
+
+    /**
+     * Listen to session opened events.
+     *
+     * @param event session opened event
+     */
+    @Subscribe
+    @AllowConcurrentEvents
+    public void onSessionOpened(final SessionOpenedEvent event) {
+        try {
+            LOGGER.trace("Session opened event: {}", event);
+            final ClientSession session = event.getSession();
+            session.getChannel().closeFuture().addListener(future -> {
+                for (final String prefix : new ArrayList<>(session.getSubscriptions())) {
+                    this.unsubscribe(session, prefix);
+                }
+            });
+        } catch (final Exception ex) {
+            LOGGER.error("Failed to process session opened event", ex);
+        }
+    }
+
+}
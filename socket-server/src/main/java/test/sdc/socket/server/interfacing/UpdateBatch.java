@@ -0,0 +1,136 @@
+package test.sdc.socket.server.interfacing;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import test.sdc.socket.common.DataCompressionFormat;
+import test.sdc.socket.common.interfacing.EncodedMessage;
+import test.sdc.socket.common.interfacing.MessageCompression;
+import test.sdc.socket.model.protocol.data.DataUpdateProtos.DataUpdate;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Batch of consecutive data updates of a stream, along with the frames that carry them, which are shared by all the
+ * sessions that subscribed to the stream.
+ * There is one frame per message compression format, so that the batch is compressed once for all the sessions that
+ * negotiated the same format. Compressed frames are created by the thread that sends the batch, when the first
+ * session needs them.
+ */
+final class UpdateBatch {
+
+    private final String stream;
+    private final List<DataUpdate> updates;
+    private final ByteBuf frame;
+    private final ByteBufAllocator allocator;
+    private final MessageCompression compression;
+    private final Map<DataCompressionFormat, ByteBuf> compressedFrames = new EnumMap<>(DataCompressionFormat.class);
+
+    /**
+     * Constructor.
+     *
+     * @param stream      name of the stream
+     * @param updates     data updates of the stream, by increasing sequence number
+     * @param allocator   buffer allocator
+     * @param compression message compression
+     */
+    UpdateBatch(final String stream, final List<DataUpdate> updates, final ByteBufAllocator allocator,
+                final MessageCompression compression) {
+        this.stream = stream;
+        this.updates = updates;
+        this.frame = EncodedMessage.encode(allocator, DataUpdateManager.toMessage(updates));
+        this.allocator = allocator;
+        this.compression = compression;
+    }
+
+    /**
+     * Get name of the stream.
+     *
+     * @return name of the stream
+     */
+    String getStream() {
+        return this.stream;
+    }
+
+    /**
+     * Get sequence number of the first update.
+     *
+     * @return sequence number
+     */
+    long getFirstSequence() {
+        return this.updates.get(0).getSequence();
+    }
+
+    /**
+     * Get sequence number of the last update.
+     *
+     * @return sequence number
+     */
+    long getLastSequence() {
+        return this.updates.get(this.updates.size() - 1).getSequence();
+    }
+
+    /**
+     * Get shared frame for a message compression format. Frames that are not worth compressing are sent as is.
+     * If compression fails, the frame is sent as is to all the sessions that negotiated the format, so that it is
+     * attempted only once.
+     *
+     * @param format message compression format (null if messages are not compressed)
+     * @return frame, which is released along with the batch
+     * @throws RuntimeException compression failed, for the first session that needs the compressed frame
+     */
+    ByteBuf getFrame(final DataCompressionFormat format) {
+        if (format == null) {
+            return this.frame;
+        }
+        ByteBuf compressedFrame = this.compressedFrames.get(format);
+        if (compressedFrame == null) {
+            this.compressedFrames.put(format, this.frame);
+            compressedFrame = this.compression.compressFrame(this.allocator, this.frame, format);
+            if (compressedFrame == null) {
+                compressedFrame = this.frame;
+            }
+            this.compressedFrames.put(format, compressedFrame);
+        }
+        return compressedFrame;
+    }
+
+    /**
+     * Get updates from input sequence number.
+     *
+     * @param fromSequence sequence number of the first update (inclusive)
+     * @return data updates, by increasing sequence number
+     */
+    List<DataUpdate> getUpdates(final long fromSequence) {
+        if (fromSequence <= this.getFirstSequence()) {
+            return this.updates;
+        }
+        return this.updates.stream()
+                .filter(update -> update.getSequence() >= fromSequence)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Encode frame that only carries the updates from input sequence number.
+     *
+     * @param fromSequence sequence number of the first update (inclusive)
+     * @param allocator    buffer allocator
+     * @return frame, which has to be released by the caller
+     */
+    ByteBuf encodeFrom(final long fromSequence, final ByteBufAllocator allocator) {
+        return EncodedMessage.encode(allocator, DataUpdateManager.toMessage(this.getUpdates(fromSequence)));
+    }
+
+    /**
+     * Release shared frames.
+     */
+    void release() {
+        this.compressedFrames.values().stream()
+                .filter(compressedFrame -> compressedFrame != this.frame)
+                .forEach(ByteBuf::release);
+        this.frame.release();
+    }
+
+}
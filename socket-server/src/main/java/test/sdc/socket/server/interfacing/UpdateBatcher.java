@@ -0,0 +1,157 @@
+package test.sdc.socket.server.interfacing;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.model.protocol.data.DataUpdateProtos.DataUpdate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Accumulate data updates, then hand them over as a single batch once enough of them have been accumulated or once
+ * the first one has waited long enough, whichever comes first.
+ * Batches are queued in the order updates were added, then handed over out of the lock that updates are added under,
+ * by one thread at a time: a thread that finds another one handing over batches leaves its own batch to it, so that
+ * adding updates never waits for the consumer to process the batches of other threads.
+ */
+final class UpdateBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpdateBatcher.class);
+
+    private final int maxSize;
+    private final long maxDelay;
+    private final ScheduledExecutorService scheduler;
+    private final Consumer<List<DataUpdate>> consumer;
+    private final Histogram batchSizes;
+    private final Histogram batchDelays;
+    private final Queue<List<DataUpdate>> readyBatches = new ConcurrentLinkedQueue<>();
+    private final Lock handOverLock = new ReentrantLock();
+
+    private List<DataUpdate> pendingUpdates;
+    private long firstUpdateTime;
+    private long batchNumber = 0L;
+    private ScheduledFuture<?> pendingFlush = null;
+
+    /**
+     * Constructor.
+     *
+     * @param maxSize   maximum number of updates in a batch
+     * @param maxDelay  maximum delay between the first update of a batch and the hand-over
+     * @param scheduler scheduler of delayed hand-overs
+     * @param consumer  batch consumer
+     * @param metrics   metric registry
+     */
+    UpdateBatcher(final int maxSize, final Duration maxDelay, final ScheduledExecutorService scheduler,
+                  final Consumer<List<DataUpdate>> consumer, final MetricRegistry metrics) {
+        this.maxSize = maxSize;
+        this.maxDelay = maxDelay.toNanos();
+        this.scheduler = scheduler;
+        this.consumer = consumer;
+        this.pendingUpdates = new ArrayList<>(maxSize);
+        this.batchSizes = metrics.histogram(name(DataUpdateManager.class, "batches", "size"));
+        this.batchDelays = metrics.histogram(name(DataUpdateManager.class, "batches", "delay"));
+    }
+
+    /**
+     * Add update to current batch.
+     *
+     * @param update data update
+     */
+    void add(final DataUpdate update) {
+        synchronized (this) {
+            if (this.pendingUpdates.isEmpty()) {
+                this.firstUpdateTime = System.nanoTime();
+                if (this.maxSize > 1) {
+                    final long batchNumber = this.batchNumber;
+                    this.pendingFlush = this.scheduler.schedule(() -> this.flushOnTimeout(batchNumber),
+                            this.maxDelay, TimeUnit.NANOSECONDS);
+                }
+            }
+            this.pendingUpdates.add(update);
+            if (this.pendingUpdates.size() < this.maxSize) {
+                return;
+            }
+            if (this.pendingFlush != null) {
+                this.pendingFlush.cancel(false);
+                this.pendingFlush = null;
+            }
+            this.takeBatch();
+        }
+        this.handOverReadyBatches();
+    }
+
+    /**
+     * Hand over a batch, once its first update has waited long enough.
+     *
+     * @param batchNumber number of the batch the delayed hand-over was scheduled for
+     */
+    private void flushOnTimeout(final long batchNumber) {
+        synchronized (this) {
+            // Batch may have been handed over because it was full, and another one started, in the meantime
+            if (batchNumber != this.batchNumber || this.pendingUpdates.isEmpty()) {
+                return;
+            }
+            this.pendingFlush = null;
+            this.takeBatch();
+        }
+        this.handOverReadyBatches();
+    }
+
+    /**
+     * Take current batch, queue it for hand-over, and start a new one (batcher lock only).
+     * Batches are queued under the batcher lock, so that they are handed over in order.
+     */
+    private void takeBatch() {
+        final List<DataUpdate> batch = this.pendingUpdates;
+        this.pendingUpdates = new ArrayList<>(this.maxSize);
+        this.batchNumber++;
+        this.batchSizes.update(batch.size());
+        this.batchDelays.update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - this.firstUpdateTime));
+        this.readyBatches.add(batch);
+    }
+
+    /**
+     * Hand over queued batches, out of the batcher lock, unless another thread is already doing it.
+     * Queue is checked again once the hand-over lock is released, so that a batch queued by a thread that found the
+     * lock taken is not left behind.
+     */
+    private void handOverReadyBatches() {
+        while (!this.readyBatches.isEmpty() && this.handOverLock.tryLock()) {
+            try {
+                List<DataUpdate> batch;
+                while ((batch = this.readyBatches.poll()) != null) {
+                    this.handOver(batch);
+                }
+            } finally {
+                this.handOverLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Hand over batch (hand-over lock only).
+     *
+     * @param batch batch
+     */
+    private void handOver(final List<DataUpdate> batch) {
+        try {
+            this.consumer.accept(batch);
+        } catch (final Exception ex) {
+            LOGGER.error("Failed to process batch of {} data updates", batch.size(), ex);
+        }
+    }
+
+}
@@ -2,75 +2,148 @@ package test.sdc.socket.server.session;
 
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.EventBus;
-import com.google.common.eventbus.Subscribe;
 import io.netty.channel.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import test.sdc.socket.server.event.LoginEvent;
+import test.sdc.socket.server.event.SessionOpenedEvent;
 
 import javax.inject.Inject;
-import java.util.Collection;
-import java.util.Map;
+import javax.inject.Named;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Objects.requireNonNull;
 
 /**
  * Register all clients that are currently connected and logged in.
+ * Sessions are indexed by login and by channel. A login and a channel are claimed atomically when the session is
+ * registered, so that neither of them can be logged in twice, and they are released once the channel of the session
+ * is closed.
  */
 public final class ClientRegistry {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientRegistry.class);
 
-    private final Map<Channel, String> channels = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ClientSession> logins = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Channel, ClientSession> channels = new ConcurrentHashMap<>();
+    private final EventLoopSessions sessions = new EventLoopSessions();
+    private final EventBus eventBus;
+    private final MetricRegistry metrics;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final int maxUpdateRate;
 
     /**
      * Constructor.
      *
-     * @param eventBus event bus
-     * @param metrics metric registry
+     * @param eventBus           event bus
+     * @param metrics            metric registry
+     * @param slowConsumerPolicy default policy applied to new sessions
+     * @param maxUpdateRate      maximum number of data updates per second sent to a session (0 if unlimited),
+     *                           which clients can lower when they log in
      */
     @Inject
-    public ClientRegistry(final EventBus eventBus, final MetricRegistry metrics) {
-        eventBus.register(this);
+    public ClientRegistry(final EventBus eventBus, final MetricRegistry metrics,
+                          final SlowConsumerPolicy slowConsumerPolicy,
+                          @Named("maxUpdateRate") final Integer maxUpdateRate) {
+        this.eventBus = eventBus;
+        this.metrics = metrics;
+        this.slowConsumerPolicy = slowConsumerPolicy;
+        this.maxUpdateRate = maxUpdateRate;
         metrics.register(MetricRegistry.name(this.getClass(), "sessions", "number"),
-                (Gauge<Integer>) ClientRegistry.this.channels::size);
+                (Gauge<Integer>) ClientRegistry.this.sessions::size);
     }
 
     /**
-     * Get list of channels.
+     * Get all sessions.
      *
-     * @return list of channels
+     * @return sessions, grouped by event loop
      */
-    public Collection<Channel> findAll() {
-        return this.channels.keySet();
+    public EventLoopSessions findAll() {
+        return this.sessions;
     }
 
     /**
-     * Check if registry contains input login.
+     * Get session associated to input channel.
+     *
+     * @param channel channel
+     * @return session (empty if channel is not logged in)
+     */
+    public Optional<ClientSession> find(final Channel channel) {
+        return Optional.ofNullable(this.channels.get(channel));
+    }
+
+    /**
+     * Get session of input login.
      *
      * @param login login
-     * @return registry contains login
+     * @return session (empty if login is not logged in)
+     */
+    public Optional<ClientSession> find(final String login) {
+        return Optional.ofNullable(this.logins.get(login));
+    }
+
+    /**
+     * Register session of a client that logs in, unless its login or its channel is already claimed by another
+     * session. Session is unregistered once its channel is closed.
+     *
+     * @param login         login
+     * @param channel       channel
+     * @param maxUpdateRate maximum number of data updates per second requested by the client (0 if unlimited)
+     * @return session (empty if login or channel is already logged in)
+     */
+    public Optional<ClientSession> register(final String login, final Channel channel, final int maxUpdateRate) {
+        requireNonNull(login, "Login must not be null");
+        requireNonNull(channel, "Channel must not be null");
+        final ClientSession session = new ClientSession(login, channel, this.slowConsumerPolicy,
+                this.getMaxUpdateRate(maxUpdateRate));
+        if (this.channels.putIfAbsent(channel, session) != null) {
+            LOGGER.debug("Channel {} is already logged in - login {} rejected", channel, login);
+            return Optional.empty();
+        }
+        if (this.logins.putIfAbsent(login, session) != null) {
+            this.channels.remove(channel, session);
+            return Optional.empty();
+        }
+        this.sessions.add(session);
+        final String lagMetric = name(ClientSession.class, login, "lag");
+        this.metrics.register(lagMetric, (Gauge<Long>) session::getLag);
+        channel.closeFuture().addListener(future -> this.unregister(session, lagMetric));
+        LOGGER.info("Client {} logged in ({} sessions)", session, this.sessions.size());
+        this.eventBus.post(new SessionOpenedEvent(session));
+        return Optional.of(session);
+    }
+
+    /**
+     * Unregister session, once its channel has been closed.
+     *
+     * @param session   session
+     * @param lagMetric name of the lag gauge of the session
      */
-    public Boolean contains(final String login) {
-        return this.channels.containsValue(login);
+    private void unregister(final ClientSession session, final String lagMetric) {
+        this.channels.remove(session.getChannel(), session);
+        this.sessions.remove(session);
+        // Login is released last, as the gauge belongs to it until then
+        this.metrics.remove(lagMetric);
+        this.logins.remove(session.getLogin(), session);
+        session.discardConflatedUpdates();
+        LOGGER.info("Client {} logged out ({} sessions)", session, this.sessions.size());
     }
 
     /**
-     * Listen to login events.
+     * Get maximum number of data updates per second of a new session: the lowest of the rate requested by the client
+     * and the one allowed by the server.
      *
-     * @param event login event
+     * @param requestedRate maximum rate requested by the client (0 if unlimited)
+     * @return maximum rate (0 if unlimited)
      */
-    @Subscribe
-    @AllowConcurrentEvents
-    public void onLogin(final LoginEvent event) {
-        try {
-            LOGGER.trace("Login event: {}", event);
-            this.channels.put(event.getChannel(), event.getLogin());
-            LOGGER.info("List of clients has been updated: {}", this.channels.values());
-        } catch (final Exception ex) {
-            LOGGER.error("Failed to process login event", ex);
+    private int getMaxUpdateRate(final int requestedRate) {
+        if (requestedRate == 0 || this.maxUpdateRate == 0) {
+            return Math.max(requestedRate, this.maxUpdateRate);
         }
+        return Math.min(requestedRate, this.maxUpdateRate);
     }
 
-}
\ No newline at end of file
+}
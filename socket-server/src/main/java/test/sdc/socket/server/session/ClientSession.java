@@ -0,0 +1,426 @@
+package test.sdc.socket.server.session;
+
+import com.google.protobuf.ByteString;
+import io.netty.channel.Channel;
+import test.sdc.socket.model.protocol.data.DataUpdateProtos.DataUpdate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Session of a client that is connected and logged in.
+ * Outbound state, which includes subscriptions and the progress of every stream the client gets, is only accessed
+ * from the event loop of the channel.
+ */
+public final class ClientSession {
+
+    private static final long WRITABLE = -1L;
+
+    private final String login;
+    private final Channel channel;
+    private volatile SlowConsumerPolicy slowConsumerPolicy;
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final UpdateRateLimiter rateLimiter;
+    private final Map<ConflationKey, DataUpdate> conflatedUpdates = new LinkedHashMap<>();
+    private volatile long conflatedBytes = 0L;
+    private boolean drainScheduled = false;
+    private boolean disconnectCheckScheduled = false;
+    private long unwritableSince = WRITABLE;
+    private final Set<String> subscriptions = new LinkedHashSet<>();
+    private final Map<String, Long> lastSequences = new HashMap<>();
+    private final Map<String, Long> liveFromSequences = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param login              login
+     * @param channel            channel
+     * @param slowConsumerPolicy policy applied when client does not keep up with data updates
+     * @param maxUpdateRate      maximum number of data updates per second (0 if unlimited)
+     */
+    public ClientSession(final String login, final Channel channel, final SlowConsumerPolicy slowConsumerPolicy,
+                         final int maxUpdateRate) {
+        this.login = requireNonNull(login, "Login must not be null");
+        this.channel = requireNonNull(channel, "Channel must not be null");
+        this.slowConsumerPolicy = requireNonNull(slowConsumerPolicy, "Slow consumer policy must not be null");
+        this.rateLimiter = new UpdateRateLimiter(maxUpdateRate, System.nanoTime());
+    }
+
+    /**
+     * Get login.
+     *
+     * @return login
+     */
+    public String getLogin() {
+        return this.login;
+    }
+
+    /**
+     * Get channel.
+     *
+     * @return channel
+     */
+    public Channel getChannel() {
+        return this.channel;
+    }
+
+    /**
+     * Get policy applied when client does not keep up with data updates.
+     *
+     * @return slow consumer policy
+     */
+    public SlowConsumerPolicy getSlowConsumerPolicy() {
+        return this.slowConsumerPolicy;
+    }
+
+    /**
+     * Set policy applied when client does not keep up with data updates.
+     *
+     * @param slowConsumerPolicy slow consumer policy
+     */
+    public void setSlowConsumerPolicy(final SlowConsumerPolicy slowConsumerPolicy) {
+        this.slowConsumerPolicy = requireNonNull(slowConsumerPolicy, "Slow consumer policy must not be null");
+    }
+
+    /**
+     * Add subscription.
+     *
+     * @param prefix prefix of stream names
+     * @return subscription has been added (false if it already existed)
+     */
+    public boolean addSubscription(final String prefix) {
+        return this.subscriptions.add(requireNonNull(prefix, "Prefix must not be null"));
+    }
+
+    /**
+     * Remove subscription, and forget about the streams the client no longer gets, except the ones whose content is
+     * being sent: transfers stop by themselves.
+     *
+     * @param prefix prefix of stream names
+     * @return subscription has been removed (false if it did not exist)
+     */
+    public boolean removeSubscription(final String prefix) {
+        if (!this.subscriptions.remove(prefix)) {
+            return false;
+        }
+        this.liveFromSequences.entrySet().removeIf(stream -> stream.getValue() != Long.MAX_VALUE
+                && !this.isSubscribed(stream.getKey()));
+        return true;
+    }
+
+    /**
+     * Get subscriptions.
+     *
+     * @return prefixes of stream names, by subscription order
+     */
+    public Collection<String> getSubscriptions() {
+        return Collections.unmodifiableSet(this.subscriptions);
+    }
+
+    /**
+     * Check if the client subscribed to a stream.
+     *
+     * @param stream name of the stream
+     * @return stream matches a subscription
+     */
+    public boolean isSubscribed(final String stream) {
+        for (final String prefix : this.subscriptions) {
+            if (stream.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record sequence number of the last data update of a stream that the client received before reconnecting, so
+     * that the content of the stream is resumed from there.
+     *
+     * @param stream       name of the stream
+     * @param lastSequence sequence number
+     */
+    public void setLastSequence(final String stream, final long lastSequence) {
+        this.lastSequences.put(requireNonNull(stream, "Stream must not be null"), lastSequence);
+    }
+
+    /**
+     * Get, and forget, sequence number of the last data update of a stream that the client received before
+     * reconnecting, if any.
+     *
+     * @param stream name of the stream
+     * @return sequence number
+     */
+    public OptionalLong removeLastSequence(final String stream) {
+        final Long lastSequence = this.lastSequences.remove(stream);
+        return lastSequence == null ? OptionalLong.empty() : OptionalLong.of(lastSequence);
+    }
+
+    /**
+     * Check if the client gets a stream, either as content or as live updates.
+     *
+     * @param stream name of the stream
+     * @return stream is being sent
+     */
+    public boolean isStreamed(final String stream) {
+        return this.liveFromSequences.containsKey(stream);
+    }
+
+    /**
+     * Record that the content of a stream is being sent to the client, so that live updates are held back.
+     *
+     * @param stream name of the stream
+     */
+    public void startSnapshot(final String stream) {
+        this.liveFromSequences.put(requireNonNull(stream, "Stream must not be null"), Long.MAX_VALUE);
+    }
+
+    /**
+     * Record that the content of a stream is no longer sent to the client, before it got all of it.
+     *
+     * @param stream name of the stream
+     */
+    public void stopSnapshot(final String stream) {
+        this.liveFromSequences.remove(stream, Long.MAX_VALUE);
+    }
+
+    /**
+     * Start accepting live updates of a stream, once the client has received its content.
+     *
+     * @param stream       name of the stream
+     * @param fromSequence sequence number of the first live update
+     */
+    public void startLiveUpdates(final String stream, final long fromSequence) {
+        this.liveFromSequences.put(requireNonNull(stream, "Stream must not be null"), fromSequence);
+    }
+
+    /**
+     * Get sequence number of the first live update of a stream that has to be sent to the client, as previous ones
+     * have been sent as part of the content of the stream.
+     *
+     * @param stream name of the stream
+     * @return sequence number ({@link Long#MAX_VALUE} until the session switches to live updates)
+     */
+    public long getLiveFromSequence(final String stream) {
+        return this.liveFromSequences.getOrDefault(stream, Long.MAX_VALUE);
+    }
+
+    /**
+     * Get limiter of the rate of data updates sent to the client.
+     *
+     * @return rate limiter
+     */
+    public UpdateRateLimiter getRateLimiter() {
+        return this.rateLimiter;
+    }
+
+    /**
+     * Get lag of the session, which is the number of bytes that have been sent to it but not written to the socket
+     * yet, plus the size of the conflated updates that are waiting to be sent.
+     *
+     * @return lag (bytes)
+     */
+    public long getLag() {
+        return this.pendingBytes.get() + this.conflatedBytes;
+    }
+
+    /**
+     * Account for bytes that are being written or that have been written.
+     *
+     * @param delta number of bytes that have been queued (positive) or written (negative)
+     */
+    public void addPendingBytes(final long delta) {
+        this.pendingBytes.addAndGet(delta);
+    }
+
+    /**
+     * Keep update until it can be sent, in place of any older update with the same key.
+     *
+     * @param update data update
+     * @return update has been kept (updates without key cannot be conflated)
+     */
+    public boolean conflate(final DataUpdate update) {
+        if (!update.hasKey()) {
+            return false;
+        }
+        // Superseded update is removed first, so that conflated updates stay ordered by sequence number
+        // Keys are compared as encoded, without being decoded
+        final ConflationKey key = new ConflationKey(update.getStreamBytes(), update.getKeyBytes());
+        final DataUpdate previous = this.conflatedUpdates.remove(key);
+        this.conflatedUpdates.put(key, update);
+        this.conflatedBytes += update.getSerializedSize() - (previous == null ? 0 : previous.getSerializedSize());
+        return true;
+    }
+
+    /**
+     * Check if there are conflated updates waiting to be sent.
+     *
+     * @return there are conflated updates
+     */
+    public boolean hasConflatedUpdates() {
+        return !this.conflatedUpdates.isEmpty();
+    }
+
+    /**
+     * Get oldest conflated updates, without removing them.
+     *
+     * @param maxCount maximum number of updates
+     * @return conflated updates, by increasing sequence number
+     */
+    public List<DataUpdate> peekConflatedUpdates(final int maxCount) {
+        final List<DataUpdate> updates = new ArrayList<>(Math.min(maxCount, this.conflatedUpdates.size()));
+        final Iterator<DataUpdate> iterator = this.conflatedUpdates.values().iterator();
+        while (updates.size() < maxCount && iterator.hasNext()) {
+            updates.add(iterator.next());
+        }
+        return updates;
+    }
+
+    /**
+     * Remove oldest conflated updates, once they have been sent.
+     *
+     * @param count number of updates
+     */
+    public void removeConflatedUpdates(final int count) {
+        final Iterator<DataUpdate> iterator = this.conflatedUpdates.values().iterator();
+        for (int i = 0; i < count && iterator.hasNext(); i++) {
+            this.conflatedBytes -= iterator.next().getSerializedSize();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Discard conflated updates, if any.
+     *
+     * @return number of discarded updates
+     */
+    public int discardConflatedUpdates() {
+        final int count = this.conflatedUpdates.size();
+        this.conflatedUpdates.clear();
+        this.conflatedBytes = 0L;
+        return count;
+    }
+
+    /**
+     * Record that sending of conflated updates has been scheduled.
+     *
+     * @return sending was not scheduled yet
+     */
+    public boolean markDrainScheduled() {
+        if (this.drainScheduled) {
+            return false;
+        }
+        this.drainScheduled = true;
+        return true;
+    }
+
+    /**
+     * Record that scheduled sending of conflated updates has started.
+     */
+    public void markDrainStarted() {
+        this.drainScheduled = false;
+    }
+
+    /**
+     * Record that a check of how long the channel has not been writable has been scheduled.
+     *
+     * @return check was not scheduled yet
+     */
+    public boolean markDisconnectCheckScheduled() {
+        if (this.disconnectCheckScheduled) {
+            return false;
+        }
+        this.disconnectCheckScheduled = true;
+        return true;
+    }
+
+    /**
+     * Record that the scheduled check of how long the channel has not been writable has started.
+     */
+    public void markDisconnectCheckStarted() {
+        this.disconnectCheckScheduled = false;
+    }
+
+    /**
+     * Record that the channel is writable.
+     */
+    public void markWritable() {
+        this.unwritableSince = WRITABLE;
+    }
+
+    /**
+     * Record that the channel is not writable, and get for how long it has been the case.
+     *
+     * @param now current time (nanoseconds)
+     * @return duration since the channel became unwritable (nanoseconds)
+     */
+    public long markUnwritable(final long now) {
+        if (this.unwritableSince == WRITABLE) {
+            this.unwritableSince = now;
+        }
+        return now - this.unwritableSince;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.format("%s (%s)", this.login, this.channel.remoteAddress());
+    }
+
+    /**
+     * Key of a conflated update, as the same key may be used by several streams.
+     */
+    private static final class ConflationKey {
+
+        private final ByteString stream;
+        private final ByteString key;
+
+        /**
+         * Constructor.
+         *
+         * @param stream encoded name of the stream
+         * @param key    encoded key
+         */
+        private ConflationKey(final ByteString stream, final ByteString key) {
+            this.stream = stream;
+            this.key = key;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ConflationKey)) {
+                return false;
+            }
+            final ConflationKey other = (ConflationKey) obj;
+            return this.key.equals(other.key) && this.stream.equals(other.stream);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return 31 * this.stream.hashCode() + this.key.hashCode();
+        }
+    }
+
+}
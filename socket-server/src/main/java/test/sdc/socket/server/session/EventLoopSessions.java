@@ -0,0 +1,110 @@
+package test.sdc.socket.server.session;
+
+import io.netty.channel.EventLoop;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Set of sessions, grouped by the event loop of their channel, so that sending to all of them takes a single task per
+ * event loop instead of one per session. Groups are kept once empty, as there are only a few event loops.
+ * Sessions can be added and removed from any thread.
+ */
+public final class EventLoopSessions {
+
+    private final ConcurrentMap<EventLoop, Set<ClientSession>> groups = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Add session.
+     *
+     * @param session session
+     * @return session has been added (false if it was already there)
+     */
+    public boolean add(final ClientSession session) {
+        requireNonNull(session, "Session must not be null");
+        final Set<ClientSession> group = this.groups.computeIfAbsent(session.getChannel().eventLoop(),
+                eventLoop -> ConcurrentHashMap.newKeySet());
+        if (!group.add(session)) {
+            return false;
+        }
+        this.size.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Add all sessions of another set.
+     *
+     * @param sessions set of sessions
+     */
+    public void addAll(final EventLoopSessions sessions) {
+        sessions.groups.values().forEach(group -> group.forEach(this::add));
+    }
+
+    /**
+     * Remove session.
+     *
+     * @param session session
+     * @return session has been removed (false if it was not there)
+     */
+    public boolean remove(final ClientSession session) {
+        requireNonNull(session, "Session must not be null");
+        final Set<ClientSession> group = this.groups.get(session.getChannel().eventLoop());
+        if (group == null || !group.remove(session)) {
+            return false;
+        }
+        this.size.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Check if set contains input session.
+     *
+     * @param session session
+     * @return set contains session
+     */
+    public boolean contains(final ClientSession session) {
+        final Set<ClientSession> group = this.groups.get(session.getChannel().eventLoop());
+        return group != null && group.contains(session);
+    }
+
+    /**
+     * Get number of sessions.
+     *
+     * @return number of sessions
+     */
+    public int size() {
+        return this.size.get();
+    }
+
+    /**
+     * Check if set is empty.
+     *
+     * @return set is empty
+     */
+    public boolean isEmpty() {
+        return this.size.get() == 0;
+    }
+
+    /**
+     * Iterate over the groups of sessions that are not empty. Groups are live views, which may change while they are
+     * iterated over.
+     *
+     * @param action action applied to each event loop, along with its sessions
+     */
+    public void forEach(final BiConsumer<EventLoop, Collection<ClientSession>> action) {
+        this.groups.forEach((eventLoop, group) -> {
+            if (!group.isEmpty()) {
+                action.accept(eventLoop, Collections.unmodifiableSet(group));
+            }
+        });
+    }
+
+}
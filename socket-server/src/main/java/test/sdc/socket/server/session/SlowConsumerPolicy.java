@@ -0,0 +1,69 @@
+package test.sdc.socket.server.session;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Policies applied to sessions that do not consume data updates as fast as they are produced.
+ */
+public enum SlowConsumerPolicy {
+
+    /**
+     * Drop updates as long as the channel is not writable.
+     */
+    DROP_NEWEST("DROP_NEWEST"),
+    /**
+     * Keep only the latest update of each key as long as the channel is not writable, then send them.
+     * Updates without key are dropped.
+     */
+    CONFLATE("CONFLATE"),
+    /**
+     * Keep sending updates, then close the channel if it stays unwritable for too long.
+     */
+    DISCONNECT("DISCONNECT");
+
+    private static final Map<String, SlowConsumerPolicy> KEY_INDEX = new HashMap<>();
+
+    static {
+        for (final SlowConsumerPolicy instance : SlowConsumerPolicy.values()) {
+            final String keyUC = instance.key == null ? null : instance.key.toUpperCase(Locale.ROOT);
+            KEY_INDEX.put(keyUC, instance);
+        }
+    }
+
+    private final String key;
+
+    /**
+     * Constructor.
+     *
+     * @param key configuration key
+     */
+    SlowConsumerPolicy(final String key) {
+        this.key = key;
+    }
+
+    /**
+     * Get instance from corresponding key (not case sensitive).
+     *
+     * @param key key
+     * @return instance
+     */
+    public static Optional<SlowConsumerPolicy> of(final String key) {
+        final String keyUC = key == null ? null : key.toUpperCase(Locale.ROOT);
+        return KEY_INDEX.containsKey(keyUC)
+                ? Optional.of(KEY_INDEX.get(keyUC))
+                : Optional.empty();
+    }
+
+    /**
+     * Get key used to identify policy.
+     *
+     * @return key used to identify policy
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+}
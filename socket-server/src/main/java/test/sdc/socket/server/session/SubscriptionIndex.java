@@ -0,0 +1,156 @@
+package test.sdc.socket.server.session;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Index of the subscriptions of all sessions: prefix trie of stream names, whose nodes hold the sessions that
+ * subscribed to the prefix they stand for. Matching a stream walks down the trie along its name, so that its cost
+ * depends on the length of the name and on the number of interested sessions, not on the total number of sessions.
+ * Matching does not lock, while subscriptions are added and removed one at a time.
+ */
+public final class SubscriptionIndex {
+
+    private final Node root = new Node(null, '\0');
+    private int size = 0;
+    private final Histogram matchTimes;
+    private final Histogram fanOut;
+
+    /**
+     * Constructor.
+     *
+     * @param metrics metric registry
+     */
+    @Inject
+    public SubscriptionIndex(final MetricRegistry metrics) {
+        this.matchTimes = metrics.histogram(name(SubscriptionIndex.class, "matchTime"));
+        this.fanOut = metrics.histogram(name(SubscriptionIndex.class, "fanOut"));
+        metrics.register(name(SubscriptionIndex.class, "subscriptions", "number"),
+                (Gauge<Integer>) SubscriptionIndex.this::size);
+    }
+
+    /**
+     * Add subscription.
+     *
+     * @param prefix  prefix of stream names (empty for all streams)
+     * @param session session
+     * @return subscription has been added (false if it already existed)
+     */
+    public synchronized boolean add(final String prefix, final ClientSession session) {
+        requireNonNull(prefix, "Prefix must not be null");
+        requireNonNull(session, "Session must not be null");
+        Node node = this.root;
+        for (int i = 0; i < prefix.length(); i++) {
+            final char character = prefix.charAt(i);
+            final Node parent = node;
+            node = parent.children.computeIfAbsent(character, key -> new Node(parent, key));
+        }
+        if (!node.sessions.add(session)) {
+            return false;
+        }
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Remove subscription. Nodes that no longer lead to any session are pruned.
+     *
+     * @param prefix  prefix of stream names (empty for all streams)
+     * @param session session
+     * @return subscription has been removed (false if it did not exist)
+     */
+    public synchronized boolean remove(final String prefix, final ClientSession session) {
+        requireNonNull(prefix, "Prefix must not be null");
+        Node node = this.root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node == null || !node.sessions.remove(session)) {
+            return false;
+        }
+        this.size--;
+        while (node.parent != null && node.sessions.isEmpty() && node.children.isEmpty()) {
+            node.parent.children.remove(node.character);
+            node = node.parent;
+        }
+        return true;
+    }
+
+    /**
+     * Get sessions that subscribed to a stream, through any prefix of its name.
+     *
+     * @param stream name of the stream
+     * @return sessions, grouped by event loop, which may be a live view of the index if they all subscribed to the
+     * same prefix (must not be modified)
+     */
+    public EventLoopSessions match(final String stream) {
+        requireNonNull(stream, "Stream must not be null");
+        final long start = System.nanoTime();
+        EventLoopSessions matches = this.root.sessions;
+        EventLoopSessions union = null;
+        Node node = this.root;
+        for (int i = 0; i < stream.length(); i++) {
+            node = node.children.get(stream.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.sessions.isEmpty()) {
+                continue;
+            }
+            if (matches.isEmpty()) {
+                matches = node.sessions;
+            } else {
+                // Sessions may have subscribed to several prefixes of the name
+                if (union == null) {
+                    union = new EventLoopSessions();
+                    union.addAll(matches);
+                    matches = union;
+                }
+                union.addAll(node.sessions);
+            }
+        }
+        this.matchTimes.update(System.nanoTime() - start);
+        this.fanOut.update(matches.size());
+        return matches;
+    }
+
+    /**
+     * Get number of subscriptions.
+     *
+     * @return number of subscriptions
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Node of the trie, which stands for the prefix that leads to it from the root.
+     */
+    private static final class Node {
+
+        private final Node parent;
+        private final char character;
+        private final Map<Character, Node> children = new ConcurrentHashMap<>(2);
+        private final EventLoopSessions sessions = new EventLoopSessions();
+
+        /**
+         * Constructor.
+         *
+         * @param parent    parent node (null for the root)
+         * @param character last character of the prefix
+         */
+        private Node(final Node parent, final char character) {
+            this.parent = parent;
+            this.character = character;
+        }
+    }
+
+}
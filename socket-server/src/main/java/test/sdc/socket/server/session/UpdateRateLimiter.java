@@ -0,0 +1,107 @@
+package test.sdc.socket.server.session;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket that limits the number of data updates sent to a session per second, while allowing bursts of up to
+ * one second worth of updates.
+ * Not thread-safe: only used from the event loop of the channel.
+ */
+public final class UpdateRateLimiter {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+    private final int maxRate;
+    private int tokens;
+    private long lastRefillTime;
+
+    /**
+     * Constructor.
+     *
+     * @param maxRate maximum number of updates per second (0 if unlimited)
+     * @param now     current time (nanoseconds)
+     */
+    public UpdateRateLimiter(final int maxRate, final long now) {
+        if (maxRate < 0) {
+            throw new IllegalArgumentException("Maximum rate must not be negative");
+        }
+        this.maxRate = maxRate;
+        this.tokens = maxRate;
+        this.lastRefillTime = now;
+    }
+
+    /**
+     * Check if rate is limited.
+     *
+     * @return rate is limited
+     */
+    public boolean isLimited() {
+        return this.maxRate > 0;
+    }
+
+    /**
+     * Get maximum number of updates per second.
+     *
+     * @return maximum rate (0 if unlimited)
+     */
+    public int getMaxRate() {
+        return this.maxRate;
+    }
+
+    /**
+     * Get number of updates that can be sent right now.
+     *
+     * @param now current time (nanoseconds)
+     * @return number of updates
+     */
+    public int available(final long now) {
+        if (!this.isLimited()) {
+            return Integer.MAX_VALUE;
+        }
+        this.refill(now);
+        return this.tokens;
+    }
+
+    /**
+     * Account for updates that have been sent.
+     *
+     * @param count number of updates
+     */
+    public void consume(final int count) {
+        if (this.isLimited()) {
+            this.tokens = Math.max(0, this.tokens - count);
+        }
+    }
+
+    /**
+     * Get delay until the next update can be sent.
+     *
+     * @param now current time (nanoseconds)
+     * @return delay (nanoseconds)
+     */
+    public long delayUntilAvailable(final long now) {
+        if (this.available(now) > 0) {
+            return 0L;
+        }
+        final long interval = (ONE_SECOND + this.maxRate - 1) / this.maxRate;
+        return Math.max(1L, this.lastRefillTime + interval - now);
+    }
+
+    /**
+     * Add the tokens earned since last refill, keeping track of the time already paid for by partial tokens.
+     *
+     * @param now current time (nanoseconds)
+     */
+    private void refill(final long now) {
+        final long elapsed = Math.min(now - this.lastRefillTime, ONE_SECOND);
+        final long earned = elapsed * this.maxRate / ONE_SECOND;
+        if (earned <= 0L) {
+            return;
+        }
+        this.tokens = (int) Math.min(this.maxRate, this.tokens + earned);
+        this.lastRefillTime = this.tokens == this.maxRate
+                ? now
+                : this.lastRefillTime + earned * ONE_SECOND / this.maxRate;
+    }
+
+}
@@ -0,0 +1,95 @@
+package test.sdc.socket.server.workload;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Profiles of the bursts of a workload: how the rate varies around its base value, over a period that repeats.
+ */
+public enum BurstProfile {
+
+    /**
+     * Constant rate.
+     */
+    NONE("NONE") {
+        @Override
+        double getFactor(final long elapsed, final long period, final long duration, final double peakFactor) {
+            return 1.0;
+        }
+    },
+    /**
+     * Rate jumps to its peak at the start of each period, and stays there for the duration of the burst.
+     */
+    SQUARE("SQUARE") {
+        @Override
+        double getFactor(final long elapsed, final long period, final long duration, final double peakFactor) {
+            return elapsed % period < duration ? peakFactor : 1.0;
+        }
+    },
+    /**
+     * Rate rises smoothly to its peak in the middle of each period, then goes back down.
+     */
+    SINE("SINE") {
+        @Override
+        double getFactor(final long elapsed, final long period, final long duration, final double peakFactor) {
+            final double phase = 2.0 * Math.PI * (elapsed % period) / period;
+            return 1.0 + (peakFactor - 1.0) * (1.0 - Math.cos(phase)) / 2.0;
+        }
+    };
+
+    private static final Map<String, BurstProfile> KEY_INDEX = new HashMap<>();
+
+    static {
+        for (final BurstProfile instance : BurstProfile.values()) {
+            final String keyUC = instance.key == null ? null : instance.key.toUpperCase(Locale.ROOT);
+            KEY_INDEX.put(keyUC, instance);
+        }
+    }
+
+    private final String key;
+
+    /**
+     * Constructor.
+     *
+     * @param key configuration key
+     */
+    BurstProfile(final String key) {
+        this.key = key;
+    }
+
+    /**
+     * Get instance from corresponding key (not case sensitive).
+     *
+     * @param key key
+     * @return instance
+     */
+    public static Optional<BurstProfile> of(final String key) {
+        final String keyUC = key == null ? null : key.toUpperCase(Locale.ROOT);
+        return KEY_INDEX.containsKey(keyUC)
+                ? Optional.of(KEY_INDEX.get(keyUC))
+                : Optional.empty();
+    }
+
+    /**
+     * Get key used to identify profile.
+     *
+     * @return key used to identify profile
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Get factor applied to the base rate.
+     *
+     * @param elapsed    time elapsed since the start of the workload (nanoseconds)
+     * @param period     period of the bursts (nanoseconds)
+     * @param duration   duration of a burst, for the profiles that have one (nanoseconds)
+     * @param peakFactor factor applied to the base rate at the peak of a burst
+     * @return factor
+     */
+    abstract double getFactor(long elapsed, long period, long duration, double peakFactor);
+
+}
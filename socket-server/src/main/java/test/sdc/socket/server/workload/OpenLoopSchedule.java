@@ -0,0 +1,57 @@
+package test.sdc.socket.server.workload;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Open-loop schedule of the elements of a producer: the time each element is intended to be added at only depends
+ * on the rate, and never on the time previous elements have actually been added. A producer that falls behind adds
+ * late elements as soon as it can, rather than pushing the schedule back, so that the delays of the server are
+ * measured instead of being hidden (coordinated omission).
+ */
+final class OpenLoopSchedule {
+
+    private static final double ONE_SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+    private final double rate;
+    private final BurstProfile burstProfile;
+    private final double burstFactor;
+    private final long burstPeriod;
+    private final long burstDuration;
+    private final long startTime;
+    private double nextOffset = 0.0;
+
+    /**
+     * Constructor.
+     *
+     * @param rate          base number of elements per second
+     * @param burstProfile  profile of the bursts
+     * @param burstFactor   factor applied to the base rate at the peak of a burst
+     * @param burstPeriod   period of the bursts (nanoseconds)
+     * @param burstDuration duration of a burst (nanoseconds)
+     * @param startTime     intended time of the first element ({@link System#nanoTime()})
+     */
+    OpenLoopSchedule(final double rate, final BurstProfile burstProfile, final double burstFactor,
+                     final long burstPeriod, final long burstDuration, final long startTime) {
+        this.rate = rate;
+        this.burstProfile = burstProfile;
+        this.burstFactor = burstFactor;
+        this.burstPeriod = burstPeriod;
+        this.burstDuration = burstDuration;
+        this.startTime = startTime;
+    }
+
+    /**
+     * Get intended time of the next element, and move on to the following one.
+     * Offset from the start is kept with sub-nanosecond precision, so that high rates do not drift.
+     *
+     * @return intended time ({@link System#nanoTime()})
+     */
+    long next() {
+        final long offset = (long) this.nextOffset;
+        final double factor = this.burstProfile.getFactor(offset, this.burstPeriod, this.burstDuration,
+                this.burstFactor);
+        this.nextOffset += ONE_SECOND / (this.rate * factor);
+        return this.startTime + offset;
+    }
+
+}
@@ -0,0 +1,93 @@
+package test.sdc.socket.server.workload;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+/**
+ * Distributions of the sizes of the payloads of a workload, around a mean size.
+ */
+public enum SizeDistribution {
+
+    /**
+     * Every payload has the mean size.
+     */
+    FIXED("FIXED") {
+        @Override
+        int next(final SplittableRandom random, final int meanSize) {
+            return meanSize;
+        }
+    },
+    /**
+     * Sizes are spread evenly between 1 and twice the mean size.
+     */
+    UNIFORM("UNIFORM") {
+        @Override
+        int next(final SplittableRandom random, final int meanSize) {
+            return 1 + random.nextInt(2 * meanSize - 1);
+        }
+    },
+    /**
+     * Most payloads are small, and a few of them are much larger than the mean size.
+     */
+    EXPONENTIAL("EXPONENTIAL") {
+        @Override
+        int next(final SplittableRandom random, final int meanSize) {
+            return 1 + (int) (-(meanSize - 1) * Math.log(1.0 - random.nextDouble()));
+        }
+    };
+
+    private static final Map<String, SizeDistribution> KEY_INDEX = new HashMap<>();
+
+    static {
+        for (final SizeDistribution instance : SizeDistribution.values()) {
+            final String keyUC = instance.key == null ? null : instance.key.toUpperCase(Locale.ROOT);
+            KEY_INDEX.put(keyUC, instance);
+        }
+    }
+
+    private final String key;
+
+    /**
+     * Constructor.
+     *
+     * @param key configuration key
+     */
+    SizeDistribution(final String key) {
+        this.key = key;
+    }
+
+    /**
+     * Get instance from corresponding key (not case sensitive).
+     *
+     * @param key key
+     * @return instance
+     */
+    public static Optional<SizeDistribution> of(final String key) {
+        final String keyUC = key == null ? null : key.toUpperCase(Locale.ROOT);
+        return KEY_INDEX.containsKey(keyUC)
+                ? Optional.of(KEY_INDEX.get(keyUC))
+                : Optional.empty();
+    }
+
+    /**
+     * Get key used to identify distribution.
+     *
+     * @return key used to identify distribution
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * Draw size of a payload.
+     *
+     * @param random   random generator
+     * @param meanSize mean size (positive)
+     * @return size (positive, but not capped)
+     */
+    abstract int next(SplittableRandom random, int meanSize);
+
+}
@@ -0,0 +1,178 @@
+package test.sdc.socket.server.workload;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import test.sdc.socket.common.metrics.EpochClock;
+import test.sdc.socket.server.data.DataElement;
+import test.sdc.socket.server.data.DataStreams;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Workload generator: producer threads add elements to the data streams, at a rate that follows a burst profile.
+ * Keys are drawn from a Zipf distribution, and each key belongs to a single stream, so that each element supersedes
+ * the previous one of its key. Labels are random text, whose sizes follow a distribution.
+ * Producers follow an open-loop schedule (see {@link OpenLoopSchedule}): when they fall behind, late elements are added
+ * right away, and the delay of the oldest one is recorded ({@code scheduleLag} histogram, in nanoseconds). Elements
+ * are dispatched with the time they were intended to be added as their origin time, so that the latency measured from
+ * it includes the delays of the producers, and of the repository, instead of omitting them.
+ */
+public final class WorkloadGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkloadGenerator.class);
+
+    private static final String STREAM_PREFIX = "workload/";
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789 ";
+    private static final int TRUNCATION_CHECK_INTERVAL = 1024;
+    private static final double ONE_SECOND = TimeUnit.SECONDS.toNanos(1L);
+
+    private final DataStreams streams;
+    private final WorkloadSettings settings;
+    private final ZipfDistribution keyDistribution;
+    private final String[] streamNames;
+    private final String text;
+    private final Meter addedElements;
+    private final Histogram scheduleLag;
+    private final ExecutorService executor;
+    private volatile boolean running = false;
+
+    /**
+     * Constructor.
+     *
+     * @param streams  data streams
+     * @param settings workload settings
+     * @param metrics  metric registry
+     */
+    @Inject
+    public WorkloadGenerator(final DataStreams streams, final WorkloadSettings settings,
+                             final MetricRegistry metrics) {
+        this.streams = streams;
+        this.settings = requireNonNull(settings, "Settings must not be null");
+        this.keyDistribution = new ZipfDistribution(settings.getKeys(), settings.getZipfExponent());
+        this.streamNames = new String[settings.getStreams()];
+        for (int i = 0; i < this.streamNames.length; i++) {
+            this.streamNames[i] = STREAM_PREFIX + i;
+        }
+        // Labels are cut out of the same text, which is twice as long as the largest of them
+        final SplittableRandom random = new SplittableRandom(settings.getSeed());
+        final StringBuilder text = new StringBuilder(2 * settings.getPayloadMaxSize());
+        for (int i = 0; i < 2 * settings.getPayloadMaxSize(); i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        this.text = text.toString();
+        this.addedElements = metrics.meter(name(WorkloadGenerator.class, "added"));
+        this.scheduleLag = metrics.histogram(name(WorkloadGenerator.class, "scheduleLag"));
+        this.executor = Executors.newFixedThreadPool(settings.getProducers(), new ThreadFactoryBuilder()
+                .setNameFormat("workload-producer-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * Start producers, once streams have been created.
+     */
+    public void start() {
+        LOGGER.info("Starting workload: {}", this.settings);
+        for (final String stream : this.streamNames) {
+            this.streams.setElements(stream, Collections.emptyList());
+        }
+        this.running = true;
+        final int producers = this.settings.getProducers();
+        final double rate = (double) this.settings.getRate() / producers;
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < producers; i++) {
+            // Producers are shifted from each other, so that they do not add their elements at the same time
+            final long producerStartTime = startTime + (long) (ONE_SECOND / rate * i / producers);
+            final SplittableRandom random = new SplittableRandom(this.settings.getSeed() + i);
+            final OpenLoopSchedule schedule = new OpenLoopSchedule(rate, this.settings.getBurstProfile(),
+                    this.settings.getBurstFactor(), this.settings.getBurstPeriod().toNanos(),
+                    this.settings.getBurstDuration().toNanos(), producerStartTime);
+            this.executor.execute(() -> this.produce(schedule, random));
+        }
+    }
+
+    /**
+     * Stop producers.
+     */
+    public void stop() {
+        this.running = false;
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Add elements as they are due, until the generator is stopped (producer thread).
+     *
+     * @param schedule schedule of the producer
+     * @param random   random generator of the producer
+     */
+    private void produce(final OpenLoopSchedule schedule, final SplittableRandom random) {
+        try {
+            long intendedTime = schedule.next();
+            long addedCount = 0L;
+            while (this.running) {
+                final long now = System.nanoTime();
+                if (now < intendedTime) {
+                    LockSupport.parkNanos(intendedTime - now);
+                    continue;
+                }
+                // All the elements that are due are added right away, so that the schedule is never pushed back
+                this.scheduleLag.update(now - intendedTime);
+                int dueCount = 0;
+                do {
+                    this.streams.add(this.newElement(random), EpochClock.fromNanoTime(intendedTime));
+                    dueCount++;
+                    if (++addedCount % TRUNCATION_CHECK_INTERVAL == 0L) {
+                        this.truncateStreams();
+                    }
+                    intendedTime = schedule.next();
+                } while (intendedTime <= now && this.running);
+                this.addedElements.mark(dueCount);
+            }
+        } catch (final Exception ex) {
+            LOGGER.error("Workload producer stopped", ex);
+        }
+    }
+
+    /**
+     * Generate element.
+     *
+     * @param random random generator of the producer
+     * @return element
+     */
+    private DataElement newElement(final SplittableRandom random) {
+        final int key = this.keyDistribution.next(random);
+        final int size = Math.min(this.settings.getPayloadDistribution().next(random,
+                this.settings.getPayloadMeanSize()), this.settings.getPayloadMaxSize());
+        final int offset = random.nextInt(this.text.length() - size + 1);
+        return new DataElement(this.streamNames[key % this.streamNames.length], String.valueOf(key),
+                this.text.substring(offset, offset + size));
+    }
+
+    /**
+     * Start streams that reached their maximum size over from an empty list.
+     */
+    private void truncateStreams() {
+        for (final String stream : this.streamNames) {
+            this.streams.find(stream)
+                    .filter(repository -> repository.size() >= this.settings.getMaxStreamSize())
+                    .ifPresent(repository -> {
+                        LOGGER.debug("Stream {} reached {} elements - starting over", stream, repository.size());
+                        this.streams.setElements(stream, Collections.emptyList());
+                    });
+        }
+    }
+
+}
@@ -0,0 +1,280 @@
+package test.sdc.socket.server.workload;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Settings of the workload generator, read from system properties:
+ * <ul>
+ * <li>{@code workload.rate}: base number of elements added per second, by all producers (default: 1)</li>
+ * <li>{@code workload.producers}: number of producer threads, which share the rate (default: 1)</li>
+ * <li>{@code workload.streams}: number of streams (default: 2)</li>
+ * <li>{@code workload.keys}: number of distinct keys, spread over the streams (default: 4)</li>
+ * <li>{@code workload.zipf}: exponent of the Zipf distribution of the keys, 0 for a uniform distribution
+ * (default: 0)</li>
+ * <li>{@code workload.payload.distribution}: distribution of the sizes of the labels, among FIXED, UNIFORM and
+ * EXPONENTIAL (default: FIXED)</li>
+ * <li>{@code workload.payload.mean}: mean size of the labels, in characters (default: 8)</li>
+ * <li>{@code workload.payload.max}: maximum size of the labels, in characters (default: 1024)</li>
+ * <li>{@code workload.burst.profile}: profile of the bursts, among NONE, SQUARE and SINE (default: NONE)</li>
+ * <li>{@code workload.burst.factor}: factor applied to the base rate at the peak of a burst (default: 10)</li>
+ * <li>{@code workload.burst.period}: period of the bursts, in milliseconds (default: 60000)</li>
+ * <li>{@code workload.burst.duration}: duration of a SQUARE burst, in milliseconds (default: 5000)</li>
+ * <li>{@code workload.maxStreamSize}: number of elements after which a stream starts over from an empty list, so
+ * that memory stays bounded (default: 5000)</li>
+ * <li>{@code workload.seed}: seed of the random generators, so that workloads can be replayed (default: 1)</li>
+ * </ul>
+ */
+public final class WorkloadSettings {
+
+    private final int rate;
+    private final int producers;
+    private final int streams;
+    private final int keys;
+    private final double zipfExponent;
+    private final SizeDistribution payloadDistribution;
+    private final int payloadMeanSize;
+    private final int payloadMaxSize;
+    private final BurstProfile burstProfile;
+    private final double burstFactor;
+    private final Duration burstPeriod;
+    private final Duration burstDuration;
+    private final long maxStreamSize;
+    private final long seed;
+
+    /**
+     * Constructor.
+     *
+     * @param rate                base number of elements added per second, by all producers
+     * @param producers           number of producer threads
+     * @param streams             number of streams
+     * @param keys                number of distinct keys
+     * @param zipfExponent        exponent of the Zipf distribution of the keys (0 for a uniform distribution)
+     * @param payloadDistribution distribution of the sizes of the labels
+     * @param payloadMeanSize     mean size of the labels
+     * @param payloadMaxSize      maximum size of the labels
+     * @param burstProfile        profile of the bursts
+     * @param burstFactor         factor applied to the base rate at the peak of a burst
+     * @param burstPeriod         period of the bursts
+     * @param burstDuration       duration of a burst, for the profiles that have one
+     * @param maxStreamSize       number of elements after which a stream starts over from an empty list
+     * @param seed                seed of the random generators
+     */
+    public WorkloadSettings(final int rate, final int producers, final int streams, final int keys,
+                            final double zipfExponent, final SizeDistribution payloadDistribution,
+                            final int payloadMeanSize, final int payloadMaxSize, final BurstProfile burstProfile,
+                            final double burstFactor, final Duration burstPeriod, final Duration burstDuration,
+                            final long maxStreamSize, final long seed) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        if (producers <= 0) {
+            throw new IllegalArgumentException("Number of producers must be positive");
+        }
+        if (streams <= 0 || keys <= 0) {
+            throw new IllegalArgumentException("Numbers of streams and keys must be positive");
+        }
+        if (payloadMeanSize <= 0 || payloadMaxSize < payloadMeanSize) {
+            throw new IllegalArgumentException("Payload sizes must be positive, and maximum must not be below mean");
+        }
+        if (burstFactor <= 0.0 || burstPeriod.isZero() || burstPeriod.isNegative()) {
+            throw new IllegalArgumentException("Burst factor and period must be positive");
+        }
+        if (maxStreamSize <= 0L) {
+            throw new IllegalArgumentException("Maximum stream size must be positive");
+        }
+        this.rate = rate;
+        this.producers = producers;
+        this.streams = streams;
+        this.keys = keys;
+        this.zipfExponent = zipfExponent;
+        this.payloadDistribution = payloadDistribution;
+        this.payloadMeanSize = payloadMeanSize;
+        this.payloadMaxSize = payloadMaxSize;
+        this.burstProfile = burstProfile;
+        this.burstFactor = burstFactor;
+        this.burstPeriod = burstPeriod;
+        this.burstDuration = burstDuration;
+        this.maxStreamSize = maxStreamSize;
+        this.seed = seed;
+    }
+
+    /**
+     * Read settings from system properties.
+     *
+     * @param properties system properties
+     * @return settings
+     */
+    public static WorkloadSettings fromProperties(final Properties properties) {
+        final String distributionKey = properties.getProperty("workload.payload.distribution", "FIXED");
+        final String profileKey = properties.getProperty("workload.burst.profile", "NONE");
+        return new WorkloadSettings(
+                Integer.parseInt(properties.getProperty("workload.rate", "1")),
+                Integer.parseInt(properties.getProperty("workload.producers", "1")),
+                Integer.parseInt(properties.getProperty("workload.streams", "2")),
+                Integer.parseInt(properties.getProperty("workload.keys", "4")),
+                Double.parseDouble(properties.getProperty("workload.zipf", "0")),
+                SizeDistribution.of(distributionKey)
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown size distribution: "
+                                + distributionKey)),
+                Integer.parseInt(properties.getProperty("workload.payload.mean", "8")),
+                Integer.parseInt(properties.getProperty("workload.payload.max", "1024")),
+                BurstProfile.of(profileKey)
+                        .orElseThrow(() -> new IllegalArgumentException("Unknown burst profile: " + profileKey)),
+                Double.parseDouble(properties.getProperty("workload.burst.factor", "10")),
+                Duration.ofMillis(Long.parseLong(properties.getProperty("workload.burst.period", "60000"))),
+                Duration.ofMillis(Long.parseLong(properties.getProperty("workload.burst.duration", "5000"))),
+                Long.parseLong(properties.getProperty("workload.maxStreamSize", "5000")),
+                Long.parseLong(properties.getProperty("workload.seed", "1")));
+    }
+
+    /**
+     * Get base number of elements added per second, by all producers.
+     *
+     * @return rate
+     */
+    public int getRate() {
+        return this.rate;
+    }
+
+    /**
+     * Get number of producer threads.
+     *
+     * @return number of producers
+     */
+    public int getProducers() {
+        return this.producers;
+    }
+
+    /**
+     * Get number of streams.
+     *
+     * @return number of streams
+     */
+    public int getStreams() {
+        return this.streams;
+    }
+
+    /**
+     * Get number of distinct keys.
+     *
+     * @return number of keys
+     */
+    public int getKeys() {
+        return this.keys;
+    }
+
+    /**
+     * Get exponent of the Zipf distribution of the keys.
+     *
+     * @return exponent (0 for a uniform distribution)
+     */
+    public double getZipfExponent() {
+        return this.zipfExponent;
+    }
+
+    /**
+     * Get distribution of the sizes of the labels.
+     *
+     * @return distribution
+     */
+    public SizeDistribution getPayloadDistribution() {
+        return this.payloadDistribution;
+    }
+
+    /**
+     * Get mean size of the labels.
+     *
+     * @return number of characters
+     */
+    public int getPayloadMeanSize() {
+        return this.payloadMeanSize;
+    }
+
+    /**
+     * Get maximum size of the labels.
+     *
+     * @return number of characters
+     */
+    public int getPayloadMaxSize() {
+        return this.payloadMaxSize;
+    }
+
+    /**
+     * Get profile of the bursts.
+     *
+     * @return profile
+     */
+    public BurstProfile getBurstProfile() {
+        return this.burstProfile;
+    }
+
+    /**
+     * Get factor applied to the base rate at the peak of a burst.
+     *
+     * @return factor
+     */
+    public double getBurstFactor() {
+        return this.burstFactor;
+    }
+
+    /**
+     * Get period of the bursts.
+     *
+     * @return period
+     */
+    public Duration getBurstPeriod() {
+        return this.burstPeriod;
+    }
+
+    /**
+     * Get duration of a burst, for the profiles that have one.
+     *
+     * @return duration
+     */
+    public Duration getBurstDuration() {
+        return this.burstDuration;
+    }
+
+    /**
+     * Get number of elements after which a stream starts over from an empty list.
+     *
+     * @return number of elements
+     */
+    public long getMaxStreamSize() {
+        return this.maxStreamSize;
+    }
+
+    /**
+     * Get seed of the random generators.
+     *
+     * @return seed
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "WorkloadSettings{"
+                + "rate=" + this.rate
+                + ", producers=" + this.producers
+                + ", streams=" + this.streams
+                + ", keys=" + this.keys
+                + ", zipfExponent=" + this.zipfExponent
+                + ", payloadDistribution=" + this.payloadDistribution
+                + ", payloadMeanSize=" + this.payloadMeanSize
+                + ", payloadMaxSize=" + this.payloadMaxSize
+                + ", burstProfile=" + this.burstProfile
+                + ", burstFactor=" + this.burstFactor
+                + ", burstPeriod=" + this.burstPeriod
+                + ", burstDuration=" + this.burstDuration
+                + ", maxStreamSize=" + this.maxStreamSize
+                + ", seed=" + this.seed
+                + '}';
+    }
+
+}
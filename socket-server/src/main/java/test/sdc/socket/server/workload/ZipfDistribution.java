@@ -0,0 +1,61 @@
+package test.sdc.socket.server.workload;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distribution of ranks from 0 to a given cardinality (exclusive): rank k is drawn with a probability that is
+ * proportional to 1 / (k + 1)^s, where s is the exponent of the distribution. Ranks are uniformly distributed when
+ * the exponent is 0, and the first ranks get more and more of the draws as it grows.
+ * Cumulative probabilities are computed once, so that each draw is a binary search.
+ */
+final class ZipfDistribution {
+
+    private final int cardinality;
+    private final double[] cumulativeProbabilities;
+
+    /**
+     * Constructor.
+     *
+     * @param cardinality number of ranks (positive)
+     * @param exponent    exponent of the distribution (0 for a uniform distribution)
+     */
+    ZipfDistribution(final int cardinality, final double exponent) {
+        if (cardinality <= 0) {
+            throw new IllegalArgumentException("Cardinality must be positive");
+        }
+        if (exponent < 0.0) {
+            throw new IllegalArgumentException("Exponent must not be negative");
+        }
+        this.cardinality = cardinality;
+        if (exponent == 0.0) {
+            this.cumulativeProbabilities = null;
+        } else {
+            this.cumulativeProbabilities = new double[cardinality];
+            double sum = 0.0;
+            for (int i = 0; i < cardinality; i++) {
+                sum += 1.0 / Math.pow(i + 1, exponent);
+                this.cumulativeProbabilities[i] = sum;
+            }
+            for (int i = 0; i < cardinality; i++) {
+                this.cumulativeProbabilities[i] /= sum;
+            }
+        }
+    }
+
+    /**
+     * Draw rank.
+     *
+     * @param random random generator
+     * @return rank
+     */
+    int next(final SplittableRandom random) {
+        if (this.cumulativeProbabilities == null) {
+            return random.nextInt(this.cardinality);
+        }
+        final int index = Arrays.binarySearch(this.cumulativeProbabilities, random.nextDouble());
+        // Rank is the first one whose cumulative probability is above the draw
+        return Math.min(index < 0 ? -index - 1 : index + 1, this.cardinality - 1);
+    }
+
+}
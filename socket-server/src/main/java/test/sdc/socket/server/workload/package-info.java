@@ -0,0 +1,4 @@
+/**
+ * Workload generator, which adds data elements to the streams at a configurable rate.
+ */
+package test.sdc.socket.server.workload;